@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Run benchmarks with allocation profiler. All arguments are passed to JMH, for example <code>DistributionBenchmark -p outputs=zip</code>
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class BenchmarkMain
+{
+	public static void main(String[] args) throws Exception
+	{
+		List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		if(!arguments.contains("-prof"))
+		{
+			// ops/s and allocation rate (gc.alloc.rate.norm) for every benchmark
+			arguments.add("-prof");
+			arguments.add("gc");
+		}
+
+		org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.benchmark;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveOutputStream;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic archives with the same shape as real platform distribution and jdk archives: many small text files (part of them with CRLF),
+ * big jars which are not compressible, native binaries and big <code>lib/modules</code> blob. Data is generated with fixed seed
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class Corpus
+{
+	public static class Entry
+	{
+		private final String myName;
+		// null for directory
+		private final byte[] myData;
+
+		private Entry(String name, byte[] data)
+		{
+			myName = name;
+			myData = data;
+		}
+
+		public String getName()
+		{
+			return myName;
+		}
+
+		public boolean isDirectory()
+		{
+			return myData == null;
+		}
+
+		public byte[] getData()
+		{
+			return myData;
+		}
+	}
+
+	private static final String[] ourWords = {
+			"consulo", "platform", "module", "<component", "name=", "value=", "</option>", "java", "import", "public", "class", "return", "true",
+			"false", "=", "{", "}", ";", "#", "description", "plugin", "version", "vendor", "depends", "extensions"
+	};
+
+	private static final byte[] ourElfHeader = {0x7F, 'E', 'L', 'F', 2, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0x3E, 0};
+
+	private final Random myRandom = new Random(42);
+
+	/**
+	 * @param textFiles count of small text files
+	 * @param jars      count of jars, size of jar is between 64Kb and 4Mb
+	 */
+	public List<Entry> platform(String root, int textFiles, int jars)
+	{
+		List<Entry> entries = new ArrayList<>();
+		entries.add(new Entry(root + "/", null));
+		entries.add(new Entry(root + "/consulo.sh", text(2048, false, "#!/bin/sh\n")));
+		entries.add(new Entry(root + "/platform/", null));
+		entries.add(new Entry(root + "/platform/buildSNAPSHOT/", null));
+		entries.add(new Entry(root + "/platform/buildSNAPSHOT/bin/", null));
+		entries.add(new Entry(root + "/platform/buildSNAPSHOT/bin/consulo.bat", text(4096, true, "@echo off\r\n")));
+		entries.add(new Entry(root + "/platform/buildSNAPSHOT/bin/fsnotifier", nativeBinary(64 * 1024)));
+		entries.add(new Entry(root + "/platform/buildSNAPSHOT/lib/", null));
+
+		for(int i = 0; i < jars; i++)
+		{
+			entries.add(new Entry(root + "/platform/buildSNAPSHOT/lib/library" + i + ".jar", binary(64 * 1024 + myRandom.nextInt(4 * 1024 * 1024))));
+		}
+
+		String[] extensions = {".xml", ".properties", ".txt", ".html"};
+		for(int i = 0; i < textFiles; i++)
+		{
+			String directory = root + "/platform/buildSNAPSHOT/plugins/plugin" + (i / 100) + "/";
+			if(i % 100 == 0)
+			{
+				entries.add(new Entry(directory, null));
+			}
+			entries.add(new Entry(directory + "file" + i + extensions[i % extensions.length], text(200 + myRandom.nextInt(8 * 1024), i % 3 == 0, "")));
+		}
+		return entries;
+	}
+
+	/**
+	 * @param root        root directory of jdk, for example <code>./jdk-17/</code>, or <code>./</code> for pkg payload
+	 * @param home        java home inside root, <code>Contents/Home/</code> for mac
+	 * @param modulesSize size of <code>lib/modules</code>
+	 */
+	public List<Entry> jdk(String root, String home, int modulesSize)
+	{
+		List<Entry> entries = new ArrayList<>();
+		entries.add(new Entry(root, null));
+		if(!home.isEmpty())
+		{
+			entries.add(new Entry(root + home, null));
+		}
+
+		String javaHome = root + home;
+		entries.add(new Entry(javaHome + "bin/", null));
+		for(String tool : new String[]{"java", "javac", "jar", "jcmd", "jfr", "jlink", "jps", "jstack", "keytool", "serialver"})
+		{
+			entries.add(new Entry(javaHome + "bin/" + tool, nativeBinary(16 * 1024 + myRandom.nextInt(64 * 1024))));
+		}
+
+		entries.add(new Entry(javaHome + "lib/", null));
+		entries.add(new Entry(javaHome + "lib/modules", compressible(modulesSize)));
+		entries.add(new Entry(javaHome + "lib/src.zip", binary(8 * 1024 * 1024)));
+		for(int i = 0; i < 60; i++)
+		{
+			entries.add(new Entry(javaHome + "lib/libnative" + i + ".so", nativeBinary(32 * 1024 + myRandom.nextInt(1024 * 1024))));
+		}
+
+		entries.add(new Entry(javaHome + "jmods/", null));
+		for(int i = 0; i < 20; i++)
+		{
+			entries.add(new Entry(javaHome + "jmods/module" + i + ".jmod", binary(256 * 1024 + myRandom.nextInt(1024 * 1024))));
+		}
+
+		entries.add(new Entry(javaHome + "legal/", null));
+		for(int i = 0; i < 400; i++)
+		{
+			entries.add(new Entry(javaHome + "legal/LICENSE" + i + ".md", text(500 + myRandom.nextInt(4 * 1024), false, "")));
+		}
+		return entries;
+	}
+
+	public static void writeZip(Path file, List<Entry> entries) throws IOException
+	{
+		try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(file))
+		{
+			for(Entry entry : entries)
+			{
+				write(out, new ZipArchiveEntry(entry.getName()), entry);
+			}
+		}
+	}
+
+	public static void writeTarGz(Path file, List<Entry> entries) throws IOException
+	{
+		try (TarArchiveOutputStream out = new TarArchiveOutputStream(new GzipCompressorOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))))
+		{
+			out.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+			for(Entry entry : entries)
+			{
+				TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getName());
+				tarEntry.setMode(entry.isDirectory() ? 0755 : entry.getName().contains("/bin/") ? 0755 : 0644);
+				if(!entry.isDirectory())
+				{
+					tarEntry.setSize(entry.getData().length);
+				}
+				write(out, tarEntry, entry);
+			}
+		}
+	}
+
+	/**
+	 * Payload of mac <code>.pkg</code>: gzipped cpio
+	 */
+	public static void writeCpioGz(Path file, List<Entry> entries) throws IOException
+	{
+		try (CpioArchiveOutputStream out = new CpioArchiveOutputStream(new GzipCompressorOutputStream(new BufferedOutputStream(Files.newOutputStream(file))), CpioConstants.FORMAT_OLD_ASCII))
+		{
+			for(Entry entry : entries)
+			{
+				String name = entry.getName().endsWith("/") ? entry.getName().substring(0, entry.getName().length() - 1) : entry.getName();
+				CpioArchiveEntry cpioEntry = new CpioArchiveEntry(CpioConstants.FORMAT_OLD_ASCII, name.isEmpty() ? "." : name);
+				cpioEntry.setMode(entry.isDirectory() ? CpioConstants.C_ISDIR | 0755 : CpioConstants.C_ISREG | 0644);
+				if(!entry.isDirectory())
+				{
+					cpioEntry.setSize(entry.getData().length);
+				}
+				write(out, cpioEntry, entry);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void write(ArchiveOutputStream out, ArchiveEntry archiveEntry, Entry entry) throws IOException
+	{
+		out.putArchiveEntry(archiveEntry);
+		if(!entry.isDirectory())
+		{
+			out.write(entry.getData());
+		}
+		out.closeArchiveEntry();
+	}
+
+	public byte[] text(int size, boolean crlf, String header)
+	{
+		StringBuilder builder = new StringBuilder(size + 64);
+		builder.append(header);
+		int lineLength = 0;
+		while(builder.length() < size)
+		{
+			builder.append(ourWords[myRandom.nextInt(ourWords.length)]);
+			lineLength++;
+			if(lineLength > 8 + myRandom.nextInt(8))
+			{
+				builder.append(crlf ? "\r\n" : "\n");
+				lineLength = 0;
+			}
+			else
+			{
+				builder.append(myRandom.nextBoolean() ? ' ' : '\t');
+			}
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Random data - same as compressed jar content
+	 */
+	public byte[] binary(int size)
+	{
+		byte[] data = new byte[size];
+		myRandom.nextBytes(data);
+		// jar magic, zip local header
+		if(size >= 4)
+		{
+			data[0] = 'P';
+			data[1] = 'K';
+			data[2] = 3;
+			data[3] = 4;
+		}
+		return data;
+	}
+
+	public byte[] nativeBinary(int size)
+	{
+		byte[] data = compressible(size);
+		System.arraycopy(ourElfHeader, 0, data, 0, Math.min(size, ourElfHeader.length));
+		return data;
+	}
+
+	/**
+	 * Binary data with repeated blocks, which is compressed like class files
+	 */
+	public byte[] compressible(int size)
+	{
+		byte[] data = new byte[size];
+		byte[] block = new byte[4096];
+		int position = 0;
+		while(position < size)
+		{
+			if(myRandom.nextInt(4) == 0)
+			{
+				myRandom.nextBytes(block);
+			}
+			int length = Math.min(size - position, 64 + myRandom.nextInt(block.length - 64));
+			System.arraycopy(block, 0, data, position, length);
+			// control bytes, like in class files
+			data[position] = 0;
+			position += length;
+		}
+		return data;
+	}
+}
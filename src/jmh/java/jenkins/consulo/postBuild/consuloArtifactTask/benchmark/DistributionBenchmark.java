@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.benchmark;
+
+import jenkins.consulo.postBuild.consuloArtifactTask.*;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchiveEntryWrapper;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy of platform distribution zip to tar and/or zip outputs, same as {@link Generator#buildDistributionInArchives}, without output compression
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DistributionBenchmark
+{
+	@Param({"zip", "tar", "zip+tar"})
+	public String outputs;
+
+	@Param({"5000"})
+	public int textFiles;
+
+	@Param({"40"})
+	public int jars;
+
+	private Path myDirectory;
+	private Path myPlatformZip;
+
+	private final ArchiveStreamFactory myFactory = new ArchiveStreamFactory();
+	private final EntryRules myRules = EntryRules.builder()
+			.replace(Generator.ourBuildSNAPSHOT, "build1")
+			.lineEnds(".bat", false)
+			.lineEnds(".jar", false)
+			.build();
+	private final ExecutableDetector myDetector = ExecutableDetector.compile("Consulo/consulo.sh", "Consulo/platform/*/bin/fsnotifier*");
+
+	@Setup
+	public void setup() throws Exception
+	{
+		myDirectory = Files.createTempDirectory("consulo-benchmark");
+		myPlatformZip = myDirectory.resolve("platform.zip");
+		Corpus.writeZip(myPlatformZip, new Corpus().platform("Consulo", textFiles, jars));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		FileUtils.deleteDirectory(myDirectory.toFile());
+	}
+
+	@Benchmark
+	public int copyDistribution() throws Exception
+	{
+		List<ArchiveSink> sinks = new ArrayList<>();
+		for(String type : outputs.split("\\+"))
+		{
+			sinks.add(new ArchiveSink(new ArchiveOutput("benchmark", type), NullOutputStream.INSTANCE, myFactory));
+		}
+
+		int count = 0;
+		try (ZipFileArchiveInputStream ais = new ZipFileArchiveInputStream(myPlatformZip.toFile()))
+		{
+			ArchiveEntry tempEntry = ais.getNextEntry();
+			while(tempEntry != null)
+			{
+				EntryRules.Match match = myRules.match(tempEntry.getName(), tempEntry.isDirectory());
+
+				ArchiveEntryWrapper.Multi newEntry = ArchiveSink.createEntry(sinks, match.getName(), tempEntry);
+
+				int mode = match.getMode(tempEntry.isDirectory() ? 0755 : 0644);
+				newEntry.setMode(mode);
+				newEntry.setTime(tempEntry.getLastModifiedDate().getTime());
+
+				ArchiveSink.copyEntry(sinks, ais, tempEntry, newEntry, myDetector, mode, match.isConvertLineEnds());
+
+				count++;
+				tempEntry = ais.getNextEntry();
+			}
+		}
+
+		for(ArchiveSink sink : sinks)
+		{
+			sink.finish();
+			sink.close();
+		}
+		return count;
+	}
+}
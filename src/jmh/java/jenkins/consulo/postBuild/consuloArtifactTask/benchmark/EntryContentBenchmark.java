@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.benchmark;
+
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryContent;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text detection and line ends conversion of one entry
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryContentBenchmark
+{
+	@Param({"text-lf", "text-crlf", "jar", "native"})
+	public String kind;
+
+	@Param({"2048", "65536", "4194304"})
+	public int size;
+
+	private byte[] myData;
+
+	@Setup
+	public void setup()
+	{
+		Corpus corpus = new Corpus();
+		switch(kind)
+		{
+			case "text-lf":
+				myData = corpus.text(size, false, "");
+				break;
+			case "text-crlf":
+				myData = corpus.text(size, true, "");
+				break;
+			case "jar":
+				myData = corpus.binary(size);
+				break;
+			case "native":
+				myData = corpus.nativeBinary(size);
+				break;
+			default:
+				throw new IllegalArgumentException(kind);
+		}
+	}
+
+	/**
+	 * Tar output - size is required before data
+	 */
+	@Benchmark
+	public long readSizeRequired() throws IOException
+	{
+		try (EntryContent content = EntryContent.read(new ByteArrayInputStream(myData), myData.length, true))
+		{
+			content.writeTo(NullOutputStream.INSTANCE);
+			return content.getSize();
+		}
+	}
+
+	/**
+	 * Zip output, or entry without declared size
+	 */
+	@Benchmark
+	public long readSizeNotRequired() throws IOException
+	{
+		try (EntryContent content = EntryContent.read(new ByteArrayInputStream(myData), -1, false))
+		{
+			content.writeTo(NullOutputStream.INSTANCE);
+			return content.getSize();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.benchmark;
+
+import hudson.FilePath;
+import jenkins.consulo.postBuild.consuloArtifactTask.ArchiveOutput;
+import jenkins.consulo.postBuild.consuloArtifactTask.ArchiveSink;
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryContent;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchivedBundledJRE;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering of jdk archive to jre entries of distribution (tar output, without output compression).
+ * <p>
+ * Real <code>.pkg</code> is xar container, which can't be created there - <code>pkg-payload</code> measure reading of its cpio payload only
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JreFilterBenchmark
+{
+	@Param({"tar.gz", "zip", "pkg-payload"})
+	public String format;
+
+	@Param({"134217728"})
+	public int modulesSize;
+
+	private Path myDirectory;
+	private Path myJdkArchive;
+
+	private final ArchiveStreamFactory myFactory = new ArchiveStreamFactory();
+
+	@Setup
+	public void setup() throws Exception
+	{
+		myDirectory = Files.createTempDirectory("consulo-benchmark");
+
+		Corpus corpus = new Corpus();
+		switch(format)
+		{
+			case "tar.gz":
+				myJdkArchive = myDirectory.resolve("jdk.tar.gz");
+				Corpus.writeTarGz(myJdkArchive, corpus.jdk("./jdk-17/", "", modulesSize));
+				break;
+			case "zip":
+				myJdkArchive = myDirectory.resolve("jdk.zip");
+				Corpus.writeZip(myJdkArchive, corpus.jdk("jdk-17/", "", modulesSize));
+				break;
+			case "pkg-payload":
+				myJdkArchive = myDirectory.resolve("Payload");
+				Corpus.writeCpioGz(myJdkArchive, corpus.jdk("./", "Contents/Home/", modulesSize));
+				break;
+			default:
+				throw new IllegalArgumentException(format);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		FileUtils.deleteDirectory(myDirectory.toFile());
+	}
+
+	@Benchmark
+	public long filterJre() throws Exception
+	{
+		if(format.equals("pkg-payload"))
+		{
+			return readPayload();
+		}
+
+		ArchiveSink sink = new ArchiveSink(new ArchiveOutput("benchmark", ArchiveStreamFactory.TAR), NullOutputStream.INSTANCE, myFactory);
+		try
+		{
+			new ArchivedBundledJRE(1, myFactory, new FilePath(myJdkArchive.toFile()), false, Collections.singletonList(sink)).build();
+			sink.finish();
+		}
+		finally
+		{
+			sink.close();
+		}
+		return 0;
+	}
+
+	private long readPayload() throws Exception
+	{
+		long size = 0;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(myJdkArchive), 64 * 1024);
+			 CpioArchiveInputStream ais = new CpioArchiveInputStream(new GzipCompressorInputStream(in)))
+		{
+			ArchiveEntry entry = ais.getNextEntry();
+			while(entry != null)
+			{
+				if(!entry.isDirectory())
+				{
+					try (EntryContent content = EntryContent.read(ais, entry.getSize(), true))
+					{
+						content.writeTo(NullOutputStream.INSTANCE);
+						size += content.getSize();
+					}
+				}
+				entry = ais.getNextEntry();
+			}
+		}
+		return size;
+	}
+}
@@ -22,19 +22,34 @@ import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
+import hudson.model.Node;
 import hudson.model.Result;
+import hudson.model.Run;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
 import jakarta.annotation.Nonnull;
-import jenkins.consulo.postBuild.consuloArtifactTask.Generator;
+import jenkins.consulo.postBuild.consuloArtifactTask.ArchiveOutput;
+import jenkins.consulo.postBuild.consuloArtifactTask.GeneratorCallable;
+import jenkins.consulo.postBuild.consuloArtifactTask.GeneratorOptions;
+import jenkins.consulo.postBuild.consuloArtifactTask.GeneratorResult;
+import jenkins.consulo.postBuild.consuloArtifactTask.GeneratorTarget;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.zip.Deflater;
 
 /**
  * @author VISTALL
@@ -76,6 +91,25 @@ public class ConsuloArtifactPostTask extends Notifier {
 
     private String buildSnapshot;
 
+    // optional settings, 0 or null means default value
+    private int threadCount;
+
+    private int compressionThreads;
+    private int gzipBlockSize;
+    private int gzipLevel;
+
+    private String outputCodecs;
+    private boolean codecReport;
+
+    private boolean nodeCache;
+    private int entryCacheSize;
+
+    private boolean deltaPackages;
+
+    private int stagingSpillThreshold;
+
+    private boolean reproducible;
+
     @DataBoundConstructor
     public ConsuloArtifactPostTask(String winJre32Path,
                                    String winJreA64Path,
@@ -154,6 +188,105 @@ public class ConsuloArtifactPostTask extends Notifier {
         return buildSnapshot;
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    @DataBoundSetter
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    @DataBoundSetter
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
+    public int getGzipBlockSize() {
+        return gzipBlockSize;
+    }
+
+    @DataBoundSetter
+    public void setGzipBlockSize(int gzipBlockSize) {
+        this.gzipBlockSize = gzipBlockSize;
+    }
+
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    @DataBoundSetter
+    public void setGzipLevel(int gzipLevel) {
+        this.gzipLevel = gzipLevel;
+    }
+
+    public String getOutputCodecs() {
+        return outputCodecs;
+    }
+
+    @DataBoundSetter
+    public void setOutputCodecs(String outputCodecs) {
+        this.outputCodecs = outputCodecs;
+    }
+
+    public boolean isCodecReport() {
+        return codecReport;
+    }
+
+    @DataBoundSetter
+    public void setCodecReport(boolean codecReport) {
+        this.codecReport = codecReport;
+    }
+
+    public boolean isNodeCache() {
+        return nodeCache;
+    }
+
+    @DataBoundSetter
+    public void setNodeCache(boolean nodeCache) {
+        this.nodeCache = nodeCache;
+    }
+
+    public int getEntryCacheSize() {
+        return entryCacheSize;
+    }
+
+    @DataBoundSetter
+    public void setEntryCacheSize(int entryCacheSize) {
+        this.entryCacheSize = entryCacheSize;
+    }
+
+    public boolean isDeltaPackages() {
+        return deltaPackages;
+    }
+
+    @DataBoundSetter
+    public void setDeltaPackages(boolean deltaPackages) {
+        this.deltaPackages = deltaPackages;
+    }
+
+    public int getStagingSpillThreshold() {
+        return stagingSpillThreshold;
+    }
+
+    @DataBoundSetter
+    public void setStagingSpillThreshold(int stagingSpillThreshold) {
+        this.stagingSpillThreshold = stagingSpillThreshold;
+    }
+
+    public boolean isReproducible() {
+        return reproducible;
+    }
+
+    @DataBoundSetter
+    public void setReproducible(boolean reproducible) {
+        this.reproducible = reproducible;
+    }
+
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
         return BuildStepMonitor.BUILD;
@@ -181,85 +314,180 @@ public class ConsuloArtifactPostTask extends Notifier {
             targetDir.mkdirs();
         }
 
+        // outputs of last build, which built all outputs - base of delta packages. Not inside maven target directory, it's removed by clean
+        String previousArtifactsPath = "consulo-previous-artifacts";
+        // delta package is built only against previous successful build - it's deployed
+        Run<?, ?> previousBuild = build.getPreviousSuccessfulBuild();
+
         FilePath distDir = workspace.child(artifactPaths.getRawArtifactsPath());
         if (!distDir.exists()) {
             throw new IOException("Project is not build");
         }
 
-        FilePath jreDirectory = workspace.child("distribution/target/jre");
+        // not cleaned - downloaded jre archives are revalidated by JreDownloader
+        String jrePath = "distribution/target/jre";
+        workspace.child(jrePath).mkdirs();
 
-        if (jreDirectory.exists()) {
-            jreDirectory.deleteContents();
+        Node node = build.getBuiltOn();
+        FilePath nodeRoot = node == null ? null : node.getRootPath();
+        FilePath cacheDirectory = !nodeCache || nodeRoot == null ? null : nodeRoot.child("consulo-artifacts-cache");
+
+        GeneratorOptions options = new GeneratorOptions();
+        options.setCompressionThreads(compressionThreads);
+        if (gzipBlockSize > 0) {
+            options.setGzipBlockSize(gzipBlockSize * 1024);
         }
-        else {
-            jreDirectory.mkdirs();
+        if (gzipLevel > 0) {
+            options.setGzipLevel(Math.min(gzipLevel, Deflater.BEST_COMPRESSION));
+        }
+        options.setCodecReport(codecReport);
+        if (entryCacheSize > 0) {
+            options.setEntryCacheSize(entryCacheSize * 1024L * 1024L);
+        }
+        if (stagingSpillThreshold > 0) {
+            options.setStagingSpillThreshold(stagingSpillThreshold * 1024L * 1024L);
+        }
+        options.setReproducible(reproducible);
+        try {
+            options.setCodecs(outputCodecs);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException("Wrong output codecs: " + e.getMessage());
         }
 
-        Generator generator = new Generator(distDir, targetDir, jreDirectory, build.getNumber(), listener);
+        // local paths are paths on controller, generation is executed on node of workspace
+        Map<String, String> jdkArchives = resolveJdkArchives(workspace.child(jrePath), listener,
+            winJre32Path, winJre64Path, winJreA64Path,
+            linuxJre32Path, linuxJre64Path, linuxJreA64Path, linuxJreLoong64Path, linuxJreRiscv64Path,
+            macJre64Path, macJreA64Path);
 
-        try {
-            // win no jre
-            generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), null, "consulo.dist.windows.no.jre.zip", ArchiveStreamFactory.ZIP);
-            generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), null, "consulo.dist.windows.no.jre", ArchiveStreamFactory.TAR);  // archive for platformDeploy
-
-            // win 32 bit
-            if (!StringUtils.isBlank(winJre32Path)) {
-                generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), winJre32Path, "consulo.dist.windows", ArchiveStreamFactory.ZIP);
-                generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), winJre32Path, "consulo.dist.windows.zip", ArchiveStreamFactory.TAR); // archive for platformDeploy
-            }
+        List<GeneratorTarget> targets = new ArrayList<>();
 
-            // win 64 bit
-            generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), winJre64Path, "consulo.dist.windows64.zip", ArchiveStreamFactory.ZIP);
-            generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), winJre64Path, "consulo.dist.windows64", ArchiveStreamFactory.TAR); // archive for platformDeploy
+        // win no jre
+        targets.add(new GeneratorTarget.Archive(artifactPaths.winX64ArtifactName(), null,
+            new ArchiveOutput("consulo.dist.windows.no.jre.zip", ArchiveStreamFactory.ZIP),
+            new ArchiveOutput("consulo.dist.windows.no.jre", ArchiveStreamFactory.TAR)));  // archive for platformDeploy
 
-            if (!StringUtils.isBlank(winJre64Nsis)) {
-                // distribution/src\nsis/x64
-                generator.buildWindowsInstaller(build.getWorkspace(), artifactPaths.winX64ArtifactName(), winJre64Path, winJre64Nsis, "consulo.dist.windows64.installer");
-            }
+        // win 32 bit
+        if (!StringUtils.isBlank(winJre32Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.winX64ArtifactName(), jdkArchives.get(winJre32Path),
+                new ArchiveOutput("consulo.dist.windows", ArchiveStreamFactory.ZIP),
+                new ArchiveOutput("consulo.dist.windows.zip", ArchiveStreamFactory.TAR))); // archive for platformDeploy
+        }
 
-            // win A64 bit
-            if (!StringUtils.isBlank(winJreA64Path)) {
-                generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), winJreA64Path, "consulo.dist.windows.aarch64.zip", ArchiveStreamFactory.ZIP);
-                generator.buildDistributionInArchive(artifactPaths.winX64ArtifactName(), winJreA64Path, "consulo.dist.windows.aarch64", ArchiveStreamFactory.TAR); // archive for platformDeploy
-            }
+        // win 64 bit
+        targets.add(new GeneratorTarget.Archive(artifactPaths.winX64ArtifactName(), jdkArchives.get(winJre64Path),
+            new ArchiveOutput("consulo.dist.windows64.zip", ArchiveStreamFactory.ZIP),
+            new ArchiveOutput("consulo.dist.windows64", ArchiveStreamFactory.TAR))); // archive for platformDeploy
 
-            // linux no jre
-            generator.buildDistributionInArchive(artifactPaths.linuxArtifactName(), null, "consulo.dist.linux.no.jre", ArchiveStreamFactory.TAR);
+        if (!StringUtils.isBlank(winJre64Nsis)) {
+            // distribution/src\nsis/x64
+            targets.add(new GeneratorTarget.Installer(build.getWorkspace(), artifactPaths.winX64ArtifactName(), jdkArchives.get(winJre64Path), winJre64Nsis, "consulo.dist.windows64.installer"));
+        }
 
-            // linux x86
-            if (!StringUtils.isBlank(linuxJre32Path)) {
-                generator.buildDistributionInArchive(artifactPaths.linuxArtifactName(), linuxJre32Path, "consulo.dist.linux", ArchiveStreamFactory.TAR);
-            }
+        // win A64 bit
+        if (!StringUtils.isBlank(winJreA64Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.winX64ArtifactName(), jdkArchives.get(winJreA64Path),
+                new ArchiveOutput("consulo.dist.windows.aarch64.zip", ArchiveStreamFactory.ZIP),
+                new ArchiveOutput("consulo.dist.windows.aarch64", ArchiveStreamFactory.TAR))); // archive for platformDeploy
+        }
+
+        // linux no jre
+        targets.add(new GeneratorTarget.Archive(artifactPaths.linuxArtifactName(), null, "consulo.dist.linux.no.jre", ArchiveStreamFactory.TAR));
+
+        // linux x86
+        if (!StringUtils.isBlank(linuxJre32Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.linuxArtifactName(), jdkArchives.get(linuxJre32Path), "consulo.dist.linux", ArchiveStreamFactory.TAR));
+        }
+
+        // linux aarch64
+        if (!StringUtils.isBlank(linuxJreA64Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.linuxArtifactName(), jdkArchives.get(linuxJreA64Path), "consulo.dist.linux.aarch64", ArchiveStreamFactory.TAR));
+        }
+
+        // loongarch64
+        if (!StringUtils.isBlank(linuxJreLoong64Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.linuxArtifactName(), jdkArchives.get(linuxJreLoong64Path), "consulo.dist.linux.loong64", ArchiveStreamFactory.TAR));
+        }
+
+        // riscv64
+        if (!StringUtils.isBlank(linuxJreRiscv64Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.linuxArtifactName(), jdkArchives.get(linuxJreRiscv64Path), "consulo.dist.linux.riscv64", ArchiveStreamFactory.TAR));
+        }
 
-            // linux aarch64
-            if (!StringUtils.isBlank(linuxJreA64Path)) {
-                generator.buildDistributionInArchive(artifactPaths.linuxArtifactName(), linuxJreA64Path, "consulo.dist.linux.aarch64", ArchiveStreamFactory.TAR);
+        targets.add(new GeneratorTarget.Archive(artifactPaths.linuxArtifactName(), jdkArchives.get(linuxJre64Path), "consulo.dist.linux64", ArchiveStreamFactory.TAR));
+
+        // mac
+        targets.add(new GeneratorTarget.Archive(artifactPaths.macX64ArtifactName(), null, "consulo.dist.mac64.no.jre", ArchiveStreamFactory.TAR));
+        targets.add(new GeneratorTarget.Archive(artifactPaths.macX64ArtifactName(), jdkArchives.get(macJre64Path), "consulo.dist.mac64", ArchiveStreamFactory.TAR));
+
+        if (!StringUtils.isBlank(macJreA64Path)) {
+            targets.add(new GeneratorTarget.Archive(artifactPaths.macA64ArtifactName(), null, "consulo.dist.macA64.no.jre", ArchiveStreamFactory.TAR));
+            targets.add(new GeneratorTarget.Archive(artifactPaths.macA64ArtifactName(), jdkArchives.get(macJreA64Path), "consulo.dist.macA64", ArchiveStreamFactory.TAR));
+        }
+
+        // generation is executed near workspace files, only log and summary are sent over channel
+        GeneratorCallable callable = new GeneratorCallable(artifactPaths.getRawArtifactsPath(),
+            artifactPaths.getAllArtifactsPath(),
+            jrePath,
+            cacheDirectory == null ? null : cacheDirectory.getRemote(),
+            deltaPackages ? previousArtifactsPath : null,
+            previousBuild == null ? -1 : previousBuild.getNumber(),
+            build.getNumber(),
+            threadCount,
+            options,
+            targets,
+            listener);
+
+        GeneratorResult generatorResult = workspace.act(callable);
+
+        listener.getLogger().println("Build: " + generatorResult.getArtifacts().size() + " artifacts, " +
+            generatorResult.getTotalSize() / (1024 * 1024) + " MB in " + generatorResult.getDuration() / 1000 + " s");
+
+        build.addAction(new GeneratorMetricsAction(generatorResult.getTargetMetrics()));
+        return true;
+    }
+
+    /**
+     * Jdk archive path, which is not https url, is path on controller. Archive is copied to node of workspace, if node is not controller
+     * and archive is not copied by previous build
+     *
+     * @return path or url for generator, by configured path or url
+     */
+    private static Map<String, String> resolveJdkArchives(FilePath jreDir, BuildListener listener, String... pathsOrUrls) throws IOException, InterruptedException {
+        Map<String, String> result = new HashMap<>();
+        for (String pathOrUrl : pathsOrUrls) {
+            if (StringUtils.isBlank(pathOrUrl) || result.containsKey(pathOrUrl)) {
+                continue;
             }
 
-            // loongarch64
-            if (!StringUtils.isBlank(linuxJreLoong64Path)) {
-                generator.buildDistributionInArchive(artifactPaths.linuxArtifactName(), linuxJreLoong64Path, "consulo.dist.linux.loong64", ArchiveStreamFactory.TAR);
+            if (pathOrUrl.startsWith("https://")) {
+                result.put(pathOrUrl, pathOrUrl);
+                continue;
             }
 
-            // riscv64
-            if (!StringUtils.isBlank(linuxJreRiscv64Path)) {
-                generator.buildDistributionInArchive(artifactPaths.linuxArtifactName(), linuxJreRiscv64Path, "consulo.dist.linux.riscv64", ArchiveStreamFactory.TAR);
+            FilePath source = new FilePath(new File(pathOrUrl));
+            if (!source.exists()) {
+                throw new IOException("JDK archive " + pathOrUrl + " is not found on controller");
             }
 
-            generator.buildDistributionInArchive(artifactPaths.linuxArtifactName(), linuxJre64Path, "consulo.dist.linux64", ArchiveStreamFactory.TAR);
+            if (!jreDir.isRemote()) {
+                result.put(pathOrUrl, pathOrUrl);
+                continue;
+            }
 
-            // mac
-            generator.buildDistributionInArchive(artifactPaths.macX64ArtifactName(), null, "consulo.dist.mac64.no.jre", ArchiveStreamFactory.TAR);
-            generator.buildDistributionInArchive(artifactPaths.macX64ArtifactName(), macJre64Path, "consulo.dist.mac64", ArchiveStreamFactory.TAR);
+            String id = JreCache.toHex(JreCache.sha256().digest(pathOrUrl.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+            FilePath target = jreDir.child("controller").child(id + "-" + source.getName());
+            if (!target.exists() || target.length() != source.length() || target.lastModified() != source.lastModified()) {
+                listener.getLogger().println("JRE: copying " + pathOrUrl + " from controller");
 
-            if (!StringUtils.isBlank(macJreA64Path)) {
-                generator.buildDistributionInArchive(artifactPaths.macA64ArtifactName(), null, "consulo.dist.macA64.no.jre", ArchiveStreamFactory.TAR);
-                generator.buildDistributionInArchive(artifactPaths.macA64ArtifactName(), macJreA64Path, "consulo.dist.macA64", ArchiveStreamFactory.TAR);
+                FilePath tempFile = target.sibling(target.getName() + ".tmp");
+                source.copyTo(tempFile);
+                tempFile.touch(source.lastModified());
+                tempFile.renameTo(target);
             }
+            result.put(pathOrUrl, target.getRemote());
         }
-        catch (Exception throwable) {
-            throw new IOException(throwable);
-        }
-        return true;
+        return result;
     }
 }
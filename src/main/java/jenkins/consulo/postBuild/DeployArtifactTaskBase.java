@@ -31,6 +31,7 @@ import hudson.scm.RepositoryBrowser;
 import hudson.scm.SCM;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
+import jenkins.consulo.postBuild.consuloArtifactTask.ArtifactChecksums;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.StatusLine;
@@ -121,6 +122,9 @@ public abstract class DeployArtifactTaskBase extends Notifier {
             }
         }
 
+        // computed by generator while artifact was written, see ArtifactChecksums
+        String sha256 = ArtifactChecksums.readSidecar(artifactPath);
+
         List<PluginHistoryEntry> pluginHistoryEntries = buildChangeSet(build);
         Gson gson = new Gson();
 
@@ -148,6 +152,9 @@ public abstract class DeployArtifactTaskBase extends Notifier {
 
             MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
             entityBuilder.addBinaryBody("file", contentStream = artifactPath.read(), ContentType.DEFAULT_BINARY, artifactPath.getName());
+            if (sha256 != null) {
+                entityBuilder.addTextBody("sha256", sha256);
+            }
             if (!pluginHistoryEntries.isEmpty()) {
                 String historyJson = gson.toJson(pluginHistoryEntries);
                 entityBuilder.addBinaryBody("history", historyJson.getBytes(StandardCharsets.UTF_8), ContentType.DEFAULT_BINARY, "history");
@@ -24,6 +24,8 @@ import hudson.model.BuildListener;
 import hudson.model.Result;
 import hudson.util.Secret;
 import jakarta.annotation.Nonnull;
+import jenkins.consulo.postBuild.consuloArtifactTask.ArtifactChecksums;
+import jenkins.consulo.postBuild.consuloArtifactTask.delta.DeltaPackageBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.github.GHContent;
 import org.kohsuke.github.GHRepository;
@@ -32,6 +34,8 @@ import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -112,6 +116,22 @@ public class DeployPlatformTask extends DeployArtifactTaskBase {
                 continue;
             }
 
+            // checksums are sent with artifact
+            if (ArtifactChecksums.isChecksumFile(artifactPath.getName())) {
+                continue;
+            }
+
+            Integer deltaBaseBuild = DeltaPackageBuilder.getBaseBuild(artifactPath.getName());
+            if (deltaBaseBuild != null) {
+                // delta package is deployed as update of artifact from base build
+                Map<String, String> parameters = new HashMap<>();
+                parameters.put("platformVersion", buildNumber);
+                parameters.put("deltaFrom", String.valueOf(deltaBaseBuild));
+                parameters.put("deltaArtifact", DeltaPackageBuilder.getArtifactFileName(artifactPath.getName()));
+                artifactCount += deployArtifact("platformDeploy", parameters, artifactPath, listener, build, artifactCount);
+                continue;
+            }
+
             artifactCount += deployArtifact("platformDeploy", Collections.singletonMap("platformVersion", buildNumber), artifactPath, listener, build, artifactCount);
         }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild;
+
+import hudson.model.Api;
+import hudson.model.Run;
+import jenkins.consulo.postBuild.consuloArtifactTask.TargetMetrics;
+import jenkins.model.RunAction2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Metrics of targets of {@link ConsuloArtifactPostTask}, shown at build page and exported by <code>/api/json</code>
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+@ExportedBean
+public class GeneratorMetricsAction implements RunAction2 {
+    private final List<TargetMetrics> targets;
+
+    private transient Run<?, ?> run;
+
+    public GeneratorMetricsAction(List<TargetMetrics> targets) {
+        this.targets = new ArrayList<>(targets);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "clipboard.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Artifact Generation Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "artifactMetrics";
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        run = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        run = r;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @Exported
+    public List<TargetMetrics> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * @return target with longest wall time, or null if there no targets
+     */
+    public TargetMetrics getSlowestTarget() {
+        TargetMetrics slowest = null;
+        for (TargetMetrics target : targets) {
+            if (slowest == null || target.getWallTimeMillis() > slowest.getWallTimeMillis()) {
+                slowest = target;
+            }
+        }
+        return slowest;
+    }
+
+    @Exported
+    public long getBytesWritten() {
+        long bytes = 0;
+        for (TargetMetrics target : targets) {
+            bytes += target.getBytesWritten();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+
+import java.io.Serializable;
+
+/**
+ * Output archive of target. Path is file name inside target directory without extension,
+ * type is {@link ArchiveStreamFactory#ZIP} or {@link ArchiveStreamFactory#TAR}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public final class ArchiveOutput implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String myPath;
+	private final String myType;
+
+	public ArchiveOutput(String path, String type)
+	{
+		myPath = path;
+		myType = type;
+	}
+
+	public String getPath()
+	{
+		return myPath;
+	}
+
+	public String getType()
+	{
+		return myType;
+	}
+
+	@Override
+	public String toString()
+	{
+		return myPath + " (" + myType + ")";
+	}
+}
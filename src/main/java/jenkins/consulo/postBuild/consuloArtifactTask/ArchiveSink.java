@@ -0,0 +1,730 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchiveEntryWrapper;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One of archives which receive the same entries. Entry data is read and converted once, and written to all sinks
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ArchiveSink implements Closeable
+{
+	private static class FanOutOutputStream extends OutputStream
+	{
+		private final List<ArchiveSink> mySinks;
+
+		private FanOutOutputStream(List<ArchiveSink> sinks)
+		{
+			mySinks = sinks;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			for(ArchiveSink sink : mySinks)
+			{
+				sink.getArchiveOutputStream().write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			for(ArchiveSink sink : mySinks)
+			{
+				sink.getArchiveOutputStream().write(b, off, len);
+			}
+		}
+	}
+
+	/**
+	 * Measure time which is spent in archive streams - compression and write of output
+	 */
+	private static class TimedOutputStream extends OutputStream
+	{
+		private final OutputStream myDelegate;
+		private long myTime;
+
+		private TimedOutputStream(OutputStream delegate)
+		{
+			myDelegate = delegate;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			long start = System.nanoTime();
+			myDelegate.write(b);
+			myTime += System.nanoTime() - start;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			long start = System.nanoTime();
+			myDelegate.write(b, off, len);
+			myTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Entry which is read from source, but not written to sinks yet, see {@link EntryPipeline}
+	 */
+	static final class PendingEntry implements Closeable
+	{
+		private final ArchiveEntry myTempEntry;
+		private final ArchiveEntryWrapper.Multi myNewEntry;
+		@Nullable
+		private final ExecutableDetector myDetector;
+		private final int myMode;
+		// current entry of source can be changed before entry is written
+		@Nullable
+		private final ZipFileArchiveInputStream myRawSource;
+		@Nullable
+		private final ZipArchiveEntry myRawEntry;
+		// null if entry has no data, or only compressed data of source is copied
+		@Nullable
+		private EntryContent myContent;
+		// compressed data from cache by index of sink, see prepareEntry()
+		@Nullable
+		private CompressedEntryCache.Entry[] myCachedEntries;
+		// time of all stages
+		private long myTime;
+
+		private PendingEntry(ArchiveEntry tempEntry,
+							 ArchiveEntryWrapper.Multi newEntry,
+							 @Nullable ExecutableDetector detector,
+							 int mode,
+							 @Nullable ZipFileArchiveInputStream rawSource,
+							 @Nullable EntryContent content)
+		{
+			myTempEntry = tempEntry;
+			myNewEntry = newEntry;
+			myDetector = detector;
+			myMode = mode;
+			myRawSource = rawSource;
+			myRawEntry = rawSource == null ? null : rawSource.getCurrentEntry();
+			myContent = content;
+		}
+
+		ArchiveEntry getTempEntry()
+		{
+			return myTempEntry;
+		}
+
+		long getTime()
+		{
+			return myTime;
+		}
+
+		void addTime(long time)
+		{
+			myTime += time;
+		}
+
+		private CompressedEntryCache.Entry[] getCachedEntries(int sinkCount)
+		{
+			if(myCachedEntries == null)
+			{
+				myCachedEntries = new CompressedEntryCache.Entry[sinkCount];
+			}
+			return myCachedEntries;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if(myContent != null)
+			{
+				myContent.close();
+			}
+		}
+	}
+
+	private enum WriteMode
+	{
+		// data of archive entry
+		DATA,
+		// compressed data of zip source
+		RAW,
+		// zip entry without compression
+		STORED,
+		// compressed data from cache
+		CACHED
+	}
+
+	/**
+	 * Time of entries in reproducible mode - 2000-01-01 00:00:00 UTC
+	 */
+	public static final long REPRODUCIBLE_TIME = 946684800000L;
+
+	// zip stores local time without zone, same local time is written by any node
+	private static final long ourReproducibleZipTime = LocalDateTime.of(2000, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+	private static final String[] ourCompressedExtensions = {".jar", ".zip", ".jmod", ".gz", ".png", ".jpg"};
+
+	private final ArchiveOutput myOutput;
+	private final OutputStream myFileStream;
+	private final ArchiveOutputStream<?> myArchiveOutputStream;
+	@Nullable
+	private CompressedEntryCache myEntryCache;
+	@Nullable
+	private TargetMetrics myMetrics;
+	private BufferArena myArena = BufferArena.getInstance();
+	@Nullable
+	private ArtifactChecksums.ChecksumOutputStream myChecksumStream;
+	private boolean myReproducible;
+
+	public ArchiveSink(ArchiveOutput output, OutputStream fileStream, ArchiveStreamFactory factory) throws ArchiveException
+	{
+		this(output, fileStream, factory.createArchiveOutputStream(output.getType(), fileStream));
+	}
+
+	/**
+	 * @param archiveOutputStream archive stream over {@code fileStream}, for example {@link ParallelZipOutputStream}
+	 */
+	public ArchiveSink(ArchiveOutput output, OutputStream fileStream, ArchiveOutputStream<?> archiveOutputStream)
+	{
+		myOutput = output;
+		myFileStream = fileStream;
+		myArchiveOutputStream = archiveOutputStream;
+		if(myArchiveOutputStream instanceof TarArchiveOutputStream)
+		{
+			((TarArchiveOutputStream) myArchiveOutputStream).setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+		}
+	}
+
+	/**
+	 * @param entryCache cache of deflated entries, used only by zip sink
+	 */
+	public void setEntryCache(@Nullable CompressedEntryCache entryCache)
+	{
+		myEntryCache = entryCache;
+	}
+
+	/**
+	 * @param metrics metrics of target, all sinks of target must share it
+	 */
+	public void setMetrics(@Nullable TargetMetrics metrics)
+	{
+		myMetrics = metrics;
+	}
+
+	/**
+	 * @param arena arena for staging of entry data, all sinks of target must share it
+	 */
+	public void setArena(BufferArena arena)
+	{
+		myArena = arena;
+	}
+
+	/**
+	 * @param checksumStream stream of output file, it's committed by {@link #finish()}
+	 */
+	public void setChecksumStream(@Nullable ArtifactChecksums.ChecksumOutputStream checksumStream)
+	{
+		myChecksumStream = checksumStream;
+	}
+
+	/**
+	 * @param reproducible if true, entry times and tar owner are fixed, see {@link GeneratorOptions#isReproducible()}
+	 */
+	public void setReproducible(boolean reproducible)
+	{
+		myReproducible = reproducible;
+	}
+
+	public ArchiveOutput getOutput()
+	{
+		return myOutput;
+	}
+
+	public ArchiveOutputStream<?> getArchiveOutputStream()
+	{
+		return myArchiveOutputStream;
+	}
+
+	/**
+	 * @param entry entry created by {@link #createEntry(String, ArchiveEntry)}
+	 */
+	public void putArchiveEntry(ArchiveEntry entry) throws IOException
+	{
+		if(myArchiveOutputStream instanceof TarArchiveOutputStream)
+		{
+			((TarArchiveOutputStream) myArchiveOutputStream).putArchiveEntry((TarArchiveEntry) entry);
+		}
+		else
+		{
+			((ZipArchiveOutputStream) myArchiveOutputStream).putArchiveEntry((ZipArchiveEntry) entry);
+		}
+	}
+
+	/**
+	 * Tar header contains size of entry, zip can write size after data
+	 */
+	public boolean isSizeRequired()
+	{
+		return myOutput.getType().equals(ArchiveStreamFactory.TAR);
+	}
+
+	public boolean isZip()
+	{
+		return myOutput.getType().equals(ArchiveStreamFactory.ZIP);
+	}
+
+	public ArchiveEntryWrapper<? extends ArchiveEntry> createEntry(String name, ArchiveEntry tempEntry)
+	{
+		if(myOutput.getType().equals(ArchiveStreamFactory.TAR))
+		{
+			ArchiveEntryWrapper.Tar entry = new ArchiveEntryWrapper.Tar(name, tempEntry);
+			if(myReproducible)
+			{
+				// by default owner is user of build process
+				TarArchiveEntry item = entry.getItem();
+				item.setUserId(0);
+				item.setGroupId(0);
+				item.setUserName("root");
+				item.setGroupName("root");
+			}
+			return entry;
+		}
+
+		ArchiveEntryWrapper.Zip entry = new ArchiveEntryWrapper.Zip(name);
+		if(isSymbolicLink(tempEntry))
+		{
+			// unix zip symlink - link target is stored as entry data
+			entry.getItem().setUnixMode(UnixStat.LINK_FLAG | UnixStat.DEFAULT_LINK_PERM);
+		}
+		return entry;
+	}
+
+	private static boolean isSymbolicLink(ArchiveEntry entry)
+	{
+		return entry instanceof TarArchiveEntry && ((TarArchiveEntry) entry).isSymbolicLink();
+	}
+
+	public void finish() throws IOException
+	{
+		myArchiveOutputStream.finish();
+		if(myChecksumStream != null)
+		{
+			myChecksumStream.commit();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		myFileStream.close();
+	}
+
+	public static ArchiveEntryWrapper.Multi createEntry(List<ArchiveSink> sinks, String name, ArchiveEntry tempEntry)
+	{
+		List<ArchiveEntryWrapper<? extends ArchiveEntry>> entries = new ArrayList<>(sinks.size());
+		for(ArchiveSink sink : sinks)
+		{
+			entries.add(sink.createEntry(name, tempEntry));
+		}
+		return new ArchiveEntryWrapper.Multi(entries);
+	}
+
+	/**
+	 * Read entry data from stream, and write it to all sinks. Entry wrappers of {@code newEntry} must be in sinks order
+	 */
+	public static void copyEntry(List<ArchiveSink> sinks, InputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper.Multi newEntry) throws IOException
+	{
+		copyEntry(sinks, ais, tempEntry, newEntry, null, 0, true);
+	}
+
+	/**
+	 * @param detector if not null, and entry data is native binary or script - entry will be executable
+	 * @param mode     mode of {@code newEntry}
+	 * @param convertLineEnds if false, text data is written as is
+	 */
+	public static void copyEntry(List<ArchiveSink> sinks,
+								 InputStream ais,
+								 ArchiveEntry tempEntry,
+								 ArchiveEntryWrapper.Multi newEntry,
+								 @Nullable ExecutableDetector detector,
+								 int mode,
+								 boolean convertLineEnds) throws IOException
+	{
+		TargetMetrics metrics = sinks.isEmpty() ? null : sinks.get(0).myMetrics;
+
+		long start = System.nanoTime();
+		try (PendingEntry entry = readEntry(sinks, ais, tempEntry, newEntry, detector, mode, convertLineEnds, false))
+		{
+			writeEntry(sinks, entry);
+		}
+
+		if(metrics != null)
+		{
+			metrics.addEntry(tempEntry.getName(), tempEntry.isDirectory() ? 0 : tempEntry.getSize(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Read entry from source, data is not written to sinks. Data is not read at all, if only compressed data of zip source is copied
+	 *
+	 * @param stagingRequired if true, data is staged - source can be moved to next entry before entry is written
+	 */
+	static PendingEntry readEntry(List<ArchiveSink> sinks,
+								  InputStream ais,
+								  ArchiveEntry tempEntry,
+								  ArchiveEntryWrapper.Multi newEntry,
+								  @Nullable ExecutableDetector detector,
+								  int mode,
+								  boolean convertLineEnds,
+								  boolean stagingRequired) throws IOException
+	{
+		if(!sinks.isEmpty() && sinks.get(0).myReproducible)
+		{
+			List<ArchiveEntryWrapper<? extends ArchiveEntry>> entries = newEntry.getItem();
+			for(int i = 0; i < sinks.size(); i++)
+			{
+				entries.get(i).setTime(sinks.get(i).isZip() ? ourReproducibleZipTime : REPRODUCIBLE_TIME);
+			}
+		}
+
+		if(tempEntry.isDirectory() || isSymbolicLink(tempEntry))
+		{
+			return new PendingEntry(tempEntry, newEntry, detector, mode, null, null);
+		}
+
+		// compressed data of zip source can be copied to zip sinks as is, if entry data is not changed
+		ZipFileArchiveInputStream rawSource = ais instanceof ZipFileArchiveInputStream && ((ZipFileArchiveInputStream) ais).canReadRawData() ? (ZipFileArchiveInputStream) ais : null;
+
+		boolean sizeRequired = false;
+		boolean allZip = true;
+		boolean storedRequired = false;
+		boolean cacheRequired = false;
+		for(ArchiveSink sink : sinks)
+		{
+			sizeRequired |= sink.isSizeRequired();
+			allZip &= sink.isZip();
+			storedRequired |= sink.isZip() && isCompressedData(tempEntry.getName());
+			cacheRequired |= sink.isZip() && sink.myEntryCache != null && tempEntry.getSize() >= CompressedEntryCache.MIN_SIZE;
+		}
+
+		if(rawSource != null && allZip && !convertLineEnds)
+		{
+			// zip entry mode is not stored - executable detection is not required
+			return new PendingEntry(tempEntry, newEntry, detector, mode, rawSource, null);
+		}
+
+		// CRC is required if data will be stored without compression, digest is key of compressed data in cache
+		boolean checksumRequired = rawSource == null && (storedRequired || cacheRequired);
+
+		TargetMetrics metrics = sinks.isEmpty() ? null : sinks.get(0).myMetrics;
+		BufferArena arena = sinks.isEmpty() ? BufferArena.getInstance() : sinks.get(0).myArena;
+
+		long readStart = System.nanoTime();
+		EntryContent content = EntryContent.read(ais, tempEntry.getSize(), sizeRequired, convertLineEnds, checksumRequired, stagingRequired, arena);
+		if(metrics != null)
+		{
+			metrics.addReadTime(System.nanoTime() - readStart);
+		}
+		return new PendingEntry(tempEntry, newEntry, detector, mode, rawSource, content);
+	}
+
+	/**
+	 * Work on staged data which not depend on order of entries - line ends conversion, and compression of zip entries which are stored in cache.
+	 * Can be called by any thread, it's optional before {@link #writeEntry(List, PendingEntry)}
+	 */
+	static void prepareEntry(List<ArchiveSink> sinks, PendingEntry entry) throws IOException
+	{
+		if(entry.myContent == null)
+		{
+			return;
+		}
+
+		TargetMetrics metrics = sinks.isEmpty() ? null : sinks.get(0).myMetrics;
+
+		if(entry.myContent.isConverted())
+		{
+			long start = System.nanoTime();
+			entry.myContent = entry.myContent.convertNow();
+			if(metrics != null)
+			{
+				metrics.addLineEndTime(System.nanoTime() - start);
+			}
+		}
+
+		long start = System.nanoTime();
+		for(int i = 0; i < sinks.size(); i++)
+		{
+			ArchiveSink sink = sinks.get(i);
+			if(getWriteMode(sink, entry) == WriteMode.CACHED)
+			{
+				entry.getCachedEntries(sinks.size())[i] = sink.myEntryCache.getOrCompress(entry.myContent);
+			}
+		}
+		if(metrics != null)
+		{
+			metrics.addCompressionTime(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Write entry to all sinks. Sinks must be used by one thread
+	 */
+	static void writeEntry(List<ArchiveSink> sinks, PendingEntry pendingEntry) throws IOException
+	{
+		ArchiveEntry tempEntry = pendingEntry.myTempEntry;
+		ArchiveEntryWrapper.Multi newEntry = pendingEntry.myNewEntry;
+		List<ArchiveEntryWrapper<? extends ArchiveEntry>> entries = newEntry.getItem();
+
+		TargetMetrics metrics = sinks.isEmpty() ? null : sinks.get(0).myMetrics;
+
+		if(tempEntry.isDirectory())
+		{
+			for(int i = 0; i < sinks.size(); i++)
+			{
+				ArchiveSink sink = sinks.get(i);
+				sink.putArchiveEntry(entries.get(i).getItem());
+				sink.getArchiveOutputStream().closeArchiveEntry();
+			}
+			return;
+		}
+
+		if(isSymbolicLink(tempEntry))
+		{
+			byte[] link = ((TarArchiveEntry) tempEntry).getLinkName().getBytes(StandardCharsets.UTF_8);
+
+			for(int i = 0; i < sinks.size(); i++)
+			{
+				ArchiveSink sink = sinks.get(i);
+				ArchiveOutputStream<?> archiveOutputStream = sink.getArchiveOutputStream();
+				boolean tar = sink.getOutput().getType().equals(ArchiveStreamFactory.TAR);
+				if(!tar)
+				{
+					entries.get(i).setSize(link.length);
+				}
+
+				sink.putArchiveEntry(entries.get(i).getItem());
+				if(!tar)
+				{
+					archiveOutputStream.write(link);
+				}
+				archiveOutputStream.closeArchiveEntry();
+			}
+			return;
+		}
+
+		EntryContent content = pendingEntry.myContent;
+		if(content == null)
+		{
+			// data is not read at all
+			long start = System.nanoTime();
+			for(int i = 0; i < sinks.size(); i++)
+			{
+				sinks.get(i).copyRawEntry(entries.get(i), pendingEntry);
+			}
+			if(metrics != null)
+			{
+				metrics.addCompressionTime(System.nanoTime() - start);
+			}
+			return;
+		}
+
+		long writeStart = System.nanoTime();
+
+		int mode = pendingEntry.myMode;
+		ExecutableDetector detector = pendingEntry.myDetector;
+		if(detector != null && (mode & 0b001_001_001) == 0 && detector.isExecutable(content.getMagic(), content.getMagicLength()))
+		{
+			newEntry.setMode(mode | 0b001_001_001);
+		}
+
+		long size = content.getSize();
+		if(size >= 0)
+		{
+			newEntry.setSize(size);
+		}
+
+		List<ArchiveSink> targets = new ArrayList<>(sinks.size());
+		for(int i = 0; i < sinks.size(); i++)
+		{
+			ArchiveSink sink = sinks.get(i);
+			WriteMode writeMode = getWriteMode(sink, pendingEntry);
+			if(writeMode == WriteMode.RAW)
+			{
+				sink.copyRawEntry(entries.get(i), pendingEntry);
+				continue;
+			}
+
+			if(writeMode == WriteMode.STORED)
+			{
+				ZipArchiveEntry entry = (ZipArchiveEntry) entries.get(i).getItem();
+				entry.setMethod(ZipArchiveEntry.STORED);
+				entry.setCrc(content.getCrc());
+			}
+			else if(writeMode == WriteMode.CACHED)
+			{
+				CompressedEntryCache.Entry cachedEntry = pendingEntry.myCachedEntries == null ? null : pendingEntry.myCachedEntries[i];
+				sink.copyCachedEntry(entries.get(i), cachedEntry == null ? sink.myEntryCache.getOrCompress(content) : cachedEntry);
+				continue;
+			}
+
+			sink.putArchiveEntry(entries.get(i).getItem());
+			targets.add(sink);
+		}
+
+		if(targets.isEmpty())
+		{
+			if(metrics != null)
+			{
+				metrics.addCompressionTime(System.nanoTime() - writeStart);
+			}
+			return;
+		}
+
+		OutputStream targetStream = targets.size() == 1 ? targets.get(0).getArchiveOutputStream() : new FanOutOutputStream(targets);
+		if(metrics == null)
+		{
+			content.writeTo(targetStream);
+		}
+		else
+		{
+			TimedOutputStream timedStream = new TimedOutputStream(targetStream);
+			long dataStart = System.nanoTime();
+			content.writeTo(timedStream);
+			long dataTime = System.nanoTime() - dataStart;
+
+			// time which is not spent in archive streams is line ends conversion, or copy of staged data
+			if(content.isConverted())
+			{
+				metrics.addLineEndTime(dataTime - timedStream.myTime);
+			}
+			else
+			{
+				metrics.addReadTime(dataTime - timedStream.myTime);
+			}
+			metrics.addCompressionTime(dataStart - writeStart + timedStream.myTime);
+		}
+
+		long closeStart = System.nanoTime();
+		for(ArchiveSink sink : targets)
+		{
+			sink.getArchiveOutputStream().closeArchiveEntry();
+		}
+		if(metrics != null)
+		{
+			metrics.addCompressionTime(System.nanoTime() - closeStart);
+		}
+	}
+
+	private static WriteMode getWriteMode(ArchiveSink sink, PendingEntry entry)
+	{
+		EntryContent content = entry.myContent;
+		if(!sink.isZip() || content == null)
+		{
+			return WriteMode.DATA;
+		}
+
+		if(entry.myRawSource != null && !content.isConverted())
+		{
+			return WriteMode.RAW;
+		}
+
+		long size = content.getSize();
+		if(size >= 0 && content.getCrc() != -1 && isCompressedData(entry.myTempEntry.getName()))
+		{
+			return WriteMode.STORED;
+		}
+
+		if(sink.myEntryCache != null && content.getDigest() != null && size >= CompressedEntryCache.MIN_SIZE)
+		{
+			return WriteMode.CACHED;
+		}
+		return WriteMode.DATA;
+	}
+
+	/**
+	 * Copy compressed data of source entry, with CRC and sizes of source
+	 */
+	private void copyRawEntry(ArchiveEntryWrapper<? extends ArchiveEntry> newEntry, PendingEntry pendingEntry) throws IOException
+	{
+		ZipArchiveEntry sourceEntry = pendingEntry.myRawEntry;
+
+		ZipArchiveEntry entry = (ZipArchiveEntry) newEntry.getItem();
+		entry.setMethod(sourceEntry.getMethod());
+		entry.setCrc(sourceEntry.getCrc());
+		entry.setSize(sourceEntry.getSize());
+		entry.setCompressedSize(sourceEntry.getCompressedSize());
+
+		try (InputStream stream = pendingEntry.myRawSource.getRawInputStream(sourceEntry))
+		{
+			((ZipArchiveOutputStream) myArchiveOutputStream).addRawArchiveEntry(entry, stream);
+		}
+	}
+
+	/**
+	 * Copy deflate data from cache
+	 */
+	private void copyCachedEntry(ArchiveEntryWrapper<? extends ArchiveEntry> newEntry, CompressedEntryCache.Entry cachedEntry) throws IOException
+	{
+		ZipArchiveEntry entry = (ZipArchiveEntry) newEntry.getItem();
+		entry.setMethod(ZipArchiveEntry.DEFLATED);
+		entry.setCrc(cachedEntry.getCrc());
+		entry.setSize(cachedEntry.getSize());
+		entry.setCompressedSize(cachedEntry.getCompressedSize());
+
+		try (InputStream stream = cachedEntry.openCompressed())
+		{
+			((ZipArchiveOutputStream) myArchiveOutputStream).addRawArchiveEntry(entry, stream);
+		}
+	}
+
+	/**
+	 * Formats which are compressed already, deflate will not reduce size of them
+	 */
+	private static boolean isCompressedData(String name)
+	{
+		for(String extension : ourCompressedExtensions)
+		{
+			if(name.endsWith(extension))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
\ No newline at end of file
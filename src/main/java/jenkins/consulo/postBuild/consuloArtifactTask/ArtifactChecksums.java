@@ -0,0 +1,241 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.FilePath;
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 and SHA-512 of generated files, which are computed while files are written - verification of artifact not require one more
+ * read of file. When file is completely written and closed, <code>.sha256</code> sidecar is written near it, see {@link #readSidecar(FilePath)}, and
+ * {@link #writeManifests(FilePath)} write checksums of all files in format of <code>sha256sum</code> and <code>sha512sum</code>
+ * <p>
+ * Shared by all copies of generator
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ArtifactChecksums
+{
+	/**
+	 * Digests are recorded on close, only if stream is {@link #commit() committed} and closed without error. Otherwise sidecar is deleted -
+	 * incomplete file must not be verified by it
+	 */
+	public final class ChecksumOutputStream extends FilterOutputStream
+	{
+		private final FilePath myFile;
+		private final MessageDigest mySha256 = JreCache.sha256();
+		private final MessageDigest mySha512 = sha512();
+		private boolean myCommitted;
+		private boolean myClosed;
+
+		private ChecksumOutputStream(FilePath file, OutputStream out)
+		{
+			super(out);
+			myFile = file;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			mySha256.update((byte) b);
+			mySha512.update((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			mySha256.update(b, off, len);
+			mySha512.update(b, off, len);
+		}
+
+		/**
+		 * Mark that all data of file is written. Data which is written by close of wrapping streams (like trailer of compressed stream) is
+		 * included too
+		 */
+		public void commit()
+		{
+			myCommitted = true;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if(myClosed)
+			{
+				return;
+			}
+			myClosed = true;
+
+			FilePath sidecar = myFile.sibling(myFile.getName() + SIDECAR_EXTENSION);
+			boolean recorded = false;
+			try
+			{
+				out.close();
+
+				if(myCommitted)
+				{
+					String sha256 = JreCache.toHex(mySha256.digest());
+					String sha512 = JreCache.toHex(mySha512.digest());
+
+					sidecar.write(formatLine(sha256, myFile.getName()), "UTF-8");
+
+					synchronized(myDigests)
+					{
+						myDigests.put(myFile.getName(), new String[]{sha256, sha512});
+					}
+					recorded = true;
+				}
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			finally
+			{
+				if(!recorded)
+				{
+					deleteSidecar(sidecar);
+				}
+			}
+		}
+	}
+
+	public static final String SIDECAR_EXTENSION = ".sha256";
+
+	public static final String SHA256_MANIFEST = "SHA256SUMS";
+	public static final String SHA512_MANIFEST = "SHA512SUMS";
+
+	// file name -> SHA-256, SHA-512
+	private final Map<String, String[]> myDigests = new TreeMap<>();
+
+	/**
+	 * @param file file which is written by stream, sidecar is created in same directory
+	 * @return stream which compute checksums of all data written to <code>out</code>, it must be committed after last write
+	 */
+	public ChecksumOutputStream wrap(FilePath file, OutputStream out)
+	{
+		return new ChecksumOutputStream(file, out);
+	}
+
+	/**
+	 * @return SHA-256 of file, if it was written by stream of {@link #wrap(FilePath, OutputStream)}
+	 */
+	@Nullable
+	public String getSha256(String fileName)
+	{
+		synchronized(myDigests)
+		{
+			String[] digests = myDigests.get(fileName);
+			return digests == null ? null : digests[0];
+		}
+	}
+
+	/**
+	 * Write checksums of all closed files to directory, in order of file names
+	 */
+	public void writeManifests(FilePath directory) throws IOException, InterruptedException
+	{
+		StringBuilder sha256 = new StringBuilder();
+		StringBuilder sha512 = new StringBuilder();
+		synchronized(myDigests)
+		{
+			for(Map.Entry<String, String[]> entry : myDigests.entrySet())
+			{
+				sha256.append(formatLine(entry.getValue()[0], entry.getKey()));
+				sha512.append(formatLine(entry.getValue()[1], entry.getKey()));
+			}
+		}
+
+		directory.child(SHA256_MANIFEST).write(sha256.toString(), "UTF-8");
+		directory.child(SHA512_MANIFEST).write(sha512.toString(), "UTF-8");
+	}
+
+	/**
+	 * @return true if file is sidecar or manifest, and not artifact
+	 */
+	public static boolean isChecksumFile(String fileName)
+	{
+		return fileName.endsWith(SIDECAR_EXTENSION) || fileName.equals(SHA256_MANIFEST) || fileName.equals(SHA512_MANIFEST);
+	}
+
+	/**
+	 * @return SHA-256 from sidecar of artifact, or null if artifact was not written by generator
+	 */
+	@Nullable
+	public static String readSidecar(FilePath artifact) throws IOException, InterruptedException
+	{
+		FilePath sidecar = artifact.sibling(artifact.getName() + SIDECAR_EXTENSION);
+		if(!sidecar.exists())
+		{
+			return null;
+		}
+
+		String text = sidecar.readToString().trim();
+		int space = text.indexOf(' ');
+		return space == -1 ? text : text.substring(0, space);
+	}
+
+	private static void deleteSidecar(FilePath sidecar)
+	{
+		try
+		{
+			if(sidecar.exists())
+			{
+				sidecar.delete();
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(IOException ignored)
+		{
+			// error of file is reported by caller
+		}
+	}
+
+	// binary mode of sha256sum
+	private static String formatLine(String digest, String fileName)
+	{
+		return digest + " *" + fileName + "\n";
+	}
+
+	private static MessageDigest sha512()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-512");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
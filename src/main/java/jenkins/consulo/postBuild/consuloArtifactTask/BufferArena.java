@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers, which are used for staging entry data - see {@link StagingBuffer}. Buffers are allocated once
+ * and reused by all entries, so big entries are not allocated in heap (and not become humongous objects for G1).
+ * <p>
+ * Each {@link Generator} has own arena with settings of build, so builds on same node do not change settings and statistics of each other.
+ * Buffers of arena are released by GC after build. {@link #getInstance()} is used by code, which is not called by generator
+ * <p>
+ * If all memory of arena is used, or staged data is bigger than spill threshold, staging continues in temp file
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class BufferArena
+{
+	public static final int CHUNK_SIZE = 256 * 1024;
+
+	private static final BufferArena ourInstance = new BufferArena(256L * 1024 * 1024, 32L * 1024 * 1024);
+
+	/**
+	 * @return arena with default settings, shared by JVM
+	 */
+	public static BufferArena getInstance()
+	{
+		return ourInstance;
+	}
+
+	private final Deque<ByteBuffer> myFreeChunks = new ArrayDeque<>();
+
+	private final long myCapacity;
+	private final long mySpillThreshold;
+
+	private long myAllocated;
+	private long myInUse;
+	private long myPeakInUse;
+
+	private final AtomicLong mySpillCount = new AtomicLong();
+	private final AtomicLong mySpilledBytes = new AtomicLong();
+
+	public BufferArena(long capacity, long spillThreshold)
+	{
+		myCapacity = capacity;
+		mySpillThreshold = spillThreshold;
+	}
+
+	public long getSpillThreshold()
+	{
+		return mySpillThreshold;
+	}
+
+	/**
+	 * @return cleared chunk of {@link #CHUNK_SIZE}, or null if arena has no free memory
+	 */
+	ByteBuffer acquire()
+	{
+		synchronized(myFreeChunks)
+		{
+			if(myInUse + CHUNK_SIZE > myCapacity)
+			{
+				return null;
+			}
+
+			ByteBuffer chunk = myFreeChunks.pollFirst();
+			if(chunk == null)
+			{
+				try
+				{
+					chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+				}
+				catch(OutOfMemoryError e)
+				{
+					// limited by -XX:MaxDirectMemorySize, data will be staged in file
+					return null;
+				}
+				myAllocated += CHUNK_SIZE;
+			}
+
+			myInUse += CHUNK_SIZE;
+			myPeakInUse = Math.max(myPeakInUse, myInUse);
+
+			chunk.clear();
+			return chunk;
+		}
+	}
+
+	void release(ByteBuffer chunk)
+	{
+		synchronized(myFreeChunks)
+		{
+			myInUse -= CHUNK_SIZE;
+			myFreeChunks.addFirst(chunk);
+		}
+	}
+
+	long getInUse()
+	{
+		synchronized(myFreeChunks)
+		{
+			return myInUse;
+		}
+	}
+
+	void spilled(long size)
+	{
+		mySpillCount.incrementAndGet();
+		mySpilledBytes.addAndGet(size);
+	}
+
+	public StagingBuffer newBuffer(String prefix)
+	{
+		return new StagingBuffer(this, prefix);
+	}
+
+	/**
+	 * @return statistics of memory use since last call
+	 */
+	public String resetStatistics()
+	{
+		long allocated;
+		long peakInUse;
+		synchronized(myFreeChunks)
+		{
+			allocated = myAllocated;
+			peakInUse = myPeakInUse;
+			myPeakInUse = myInUse;
+		}
+
+		return "peak " + peakInUse / (1024 * 1024) + " MB of " + allocated / (1024 * 1024) + " MB direct buffers, " +
+				mySpillCount.getAndSet(0) + " entries spilled to disk (" + mySpilledBytes.getAndSet(0) / (1024 * 1024) + " MB)";
+	}
+}
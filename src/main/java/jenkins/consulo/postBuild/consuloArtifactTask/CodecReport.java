@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import jakarta.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare size and compress/decompress time of all {@link OutputCodec}s on real tar outputs.
+ * Every output is decompressed to local temp file, and compressed by every codec again, so time of artifact transfer is not included
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class CodecReport
+{
+	private static class Row
+	{
+		private final String myArtifact;
+		private final OutputCodec.Choice myChoice;
+		private final long myTarSize;
+		private final long mySize;
+		private final long myCompressTime;
+		private final long myDecompressTime;
+
+		private Row(String artifact, OutputCodec.Choice choice, long tarSize, long size, long compressTime, long decompressTime)
+		{
+			myArtifact = artifact;
+			myChoice = choice;
+			myTarSize = tarSize;
+			mySize = size;
+			myCompressTime = compressTime;
+			myDecompressTime = decompressTime;
+		}
+	}
+
+	private final GeneratorOptions myOptions;
+	@Nullable
+	private final ExecutorService myExecutor;
+	private final TaskListener myListener;
+
+	private final List<Row> myRows = new ArrayList<>();
+
+	public CodecReport(GeneratorOptions options, @Nullable ExecutorService executor, TaskListener listener)
+	{
+		myOptions = options;
+		myExecutor = executor;
+		myListener = listener;
+	}
+
+	/**
+	 * @param outputPath output path without extension, used for select configured codec
+	 */
+	public void measure(FilePath artifact, String outputPath, OutputCodec sourceCodec) throws IOException, InterruptedException
+	{
+		Path tar = Files.createTempFile("codec-report", ".tar");
+		Path compressed = Files.createTempFile("codec-report", ".compressed");
+		try
+		{
+			try (InputStream in = sourceCodec.decompress(new BufferedInputStream(artifact.read())); OutputStream out = Files.newOutputStream(tar))
+			{
+				IOUtils.copy(in, out);
+			}
+
+			long tarSize = Files.size(tar);
+
+			for(OutputCodec.Choice choice : getChoices(outputPath))
+			{
+				if(Thread.interrupted())
+				{
+					throw new InterruptedException();
+				}
+
+				long start = System.nanoTime();
+				try (InputStream in = Files.newInputStream(tar); OutputStream out = choice.getCodec().compress(new BufferedOutputStream(Files.newOutputStream(compressed)), choice.getLevel(), myOptions, myExecutor))
+				{
+					IOUtils.copy(in, out);
+				}
+				long compressTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				try (InputStream in = choice.getCodec().decompress(new BufferedInputStream(Files.newInputStream(compressed))))
+				{
+					IOUtils.copy(in, NullOutputStream.INSTANCE);
+				}
+				long decompressTime = System.nanoTime() - start;
+
+				Row row = new Row(artifact.getName(), choice, tarSize, Files.size(compressed), compressTime, decompressTime);
+				myRows.add(row);
+
+				myListener.getLogger().println("Codec report: " + format(row));
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(tar);
+			Files.deleteIfExists(compressed);
+		}
+	}
+
+	private Set<OutputCodec.Choice> getChoices(String outputPath)
+	{
+		// configured choice first, and every codec with default level
+		Set<OutputCodec.Choice> choices = new LinkedHashSet<>();
+		OutputCodec.Choice configured = myOptions.getCodec(outputPath);
+		choices.add(configured);
+		for(OutputCodec codec : OutputCodec.values())
+		{
+			if(codec != configured.getCodec() || configured.getLevel() != OutputCodec.DEFAULT_LEVEL)
+			{
+				choices.add(new OutputCodec.Choice(codec, OutputCodec.DEFAULT_LEVEL));
+			}
+		}
+		return choices;
+	}
+
+	public void write(FilePath file) throws IOException, InterruptedException
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-50s %-10s %14s %14s %8s %12s %14s%n", "artifact", "codec", "tar size", "size", "ratio", "compress ms", "decompress ms"));
+		for(Row row : myRows)
+		{
+			builder.append(format(row)).append('\n');
+		}
+		file.write(builder.toString(), StandardCharsets.UTF_8.name());
+	}
+
+	private static String format(Row row)
+	{
+		double ratio = row.myTarSize == 0 ? 0 : (double) row.mySize / row.myTarSize;
+		return String.format("%-50s %-10s %14d %14d %8.3f %12d %14d",
+				row.myArtifact,
+				row.myChoice,
+				row.myTarSize,
+				row.mySize,
+				ratio,
+				TimeUnit.NANOSECONDS.toMillis(row.myCompressTime),
+				TimeUnit.NANOSECONDS.toMillis(row.myDecompressTime));
+	}
+}
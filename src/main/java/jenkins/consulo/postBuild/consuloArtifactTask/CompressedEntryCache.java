@@ -0,0 +1,415 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Node local cache of deflated zip entry data. Key is SHA-256 of entry data and compression settings, value is file with
+ * CRC and size of data, and deflate data which can be written by {@link org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream#addRawArchiveEntry}.
+ * <p>
+ * Most of distribution and jre files are not changed between builds, so they are compressed only once. Files which are not used longest time
+ * are removed by {@link #evict()} if cache is bigger than limit.
+ * <p>
+ * Build holds shared lock of cache directory while it uses cache, and files are removed only with exclusive lock - file is not removed
+ * while another build reads it. Lock file is locked once by JVM, builds of one JVM are counted by {@link #ourLocks}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class CompressedEntryCache
+{
+	public static final class Entry
+	{
+		private final Path myPath;
+		private final long myCrc;
+		private final long mySize;
+		private final long myCompressedSize;
+
+		private Entry(Path path, long crc, long size, long compressedSize)
+		{
+			myPath = path;
+			myCrc = crc;
+			mySize = size;
+			myCompressedSize = compressedSize;
+		}
+
+		public long getCrc()
+		{
+			return myCrc;
+		}
+
+		public long getSize()
+		{
+			return mySize;
+		}
+
+		public long getCompressedSize()
+		{
+			return myCompressedSize;
+		}
+
+		public InputStream openCompressed() throws IOException
+		{
+			InputStream stream = Files.newInputStream(myPath);
+			try
+			{
+				IOUtils.skipFully(stream, ourHeaderSize);
+			}
+			catch(IOException e)
+			{
+				stream.close();
+				throw e;
+			}
+			return new BufferedInputStream(stream, 64 * 1024);
+		}
+	}
+
+	/**
+	 * Smaller entries are compressed without cache - file per entry is more expensive than compression
+	 */
+	public static final long MIN_SIZE = 16 * 1024;
+
+	private static final String ourExtension = ".deflate";
+
+	private static final String ourLockFile = ".lock";
+
+	private static final class DirectoryLock
+	{
+		// shared lock is held while channel is open
+		private final FileChannel myChannel;
+		private int myUsers;
+
+		private DirectoryLock(FileChannel channel)
+		{
+			myChannel = channel;
+		}
+	}
+
+	// shared locks of cache directories, which are used by builds of this JVM
+	private static final Map<Path, DirectoryLock> ourLocks = new HashMap<>();
+
+	// CRC and size of data
+	private static final int ourHeaderSize = 16;
+
+	private final Path myDirectory;
+	private final long myMaxSize;
+	private final int myLevel;
+	private final int myBlockSize;
+	@Nullable
+	private final ExecutorService myExecutor;
+	private final int myMaxBlocksInFlight;
+	// compressed data depends on settings
+	private final String myFormat;
+
+	private final AtomicLong myHits = new AtomicLong();
+	private final AtomicLong myMisses = new AtomicLong();
+
+	// guarded by ourLocks
+	private boolean myLocked;
+
+	/**
+	 * @param executor if not null, data is compressed by blocks in parallel, see {@link ParallelGzipOutputStream}
+	 */
+	public CompressedEntryCache(Path directory, long maxSize, int level, int blockSize, @Nullable ExecutorService executor, int maxBlocksInFlight)
+	{
+		myDirectory = directory;
+		myMaxSize = maxSize;
+		myLevel = level;
+		myBlockSize = blockSize;
+		myExecutor = executor;
+		myMaxBlocksInFlight = maxBlocksInFlight;
+		myFormat = executor == null ? "l" + level : "l" + level + "b" + blockSize;
+	}
+
+	/**
+	 * @param content data which was read with checksums, see {@link EntryContent#getDigest()}
+	 */
+	public Entry getOrCompress(EntryContent content) throws IOException
+	{
+		byte[] digest = content.getDigest();
+		if(digest == null)
+		{
+			throw new IllegalArgumentException("Content without digest");
+		}
+
+		lock();
+
+		// converted data is different for same original data
+		String key = JreCache.toHex(digest) + (content.isConverted() ? "-lf-" : "-") + myFormat;
+
+		Path file = myDirectory.resolve(key + ourExtension);
+
+		Entry entry = read(file);
+		if(entry != null)
+		{
+			myHits.incrementAndGet();
+			// used by eviction
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return entry;
+		}
+
+		myMisses.incrementAndGet();
+
+		Path tempFile = Files.createTempFile(myDirectory, key, ".tmp");
+		try
+		{
+			compress(content, tempFile);
+
+			// replaces same data, if it was compressed by another target
+			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+
+		entry = read(file);
+		if(entry == null)
+		{
+			throw new IOException("Can't read " + file);
+		}
+		return entry;
+	}
+
+	private void compress(EntryContent content, Path file) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		Deflater deflater = myExecutor == null ? new Deflater(myLevel, true) : null;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			channel.position(ourHeaderSize);
+
+			// channel is used for header after data
+			OutputStream out = new BufferedOutputStream(CloseShieldOutputStream.wrap(Channels.newOutputStream(channel)), 64 * 1024);
+			OutputStream deflateStream;
+			if(deflater == null)
+			{
+				deflateStream = ParallelGzipOutputStream.raw(out, myLevel, myBlockSize, myExecutor, myMaxBlocksInFlight);
+			}
+			else
+			{
+				deflateStream = new DeflaterOutputStream(out, deflater, 64 * 1024);
+			}
+
+			try (OutputStream stream = new CheckedOutputStream(deflateStream, crc))
+			{
+				content.writeTo(stream);
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(ourHeaderSize);
+			header.putLong(crc.getValue());
+			header.putLong(content.getSize());
+			header.flip();
+			channel.write(header, 0);
+		}
+		finally
+		{
+			if(deflater != null)
+			{
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * @return null if file not exists, or it's truncated - it will be compressed again
+	 */
+	@Nullable
+	private static Entry read(Path file) throws IOException
+	{
+		try (DataInputStream stream = new DataInputStream(Files.newInputStream(file)))
+		{
+			long crc = stream.readLong();
+			long size = stream.readLong();
+			return new Entry(file, crc, size, Files.size(file) - ourHeaderSize);
+		}
+		catch(NoSuchFileException | EOFException e)
+		{
+			return null;
+		}
+	}
+
+	private void lock() throws IOException
+	{
+		synchronized(ourLocks)
+		{
+			if(myLocked)
+			{
+				return;
+			}
+
+			Path key = myDirectory.toAbsolutePath().normalize();
+			DirectoryLock lock = ourLocks.get(key);
+			if(lock == null)
+			{
+				Files.createDirectories(myDirectory);
+
+				FileChannel channel = FileChannel.open(myDirectory.resolve(ourLockFile), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				try
+				{
+					// waits for eviction by another process
+					channel.lock(0, Long.MAX_VALUE, true);
+				}
+				catch(IOException | RuntimeException e)
+				{
+					channel.close();
+					throw e;
+				}
+				lock = new DirectoryLock(channel);
+				ourLocks.put(key, lock);
+			}
+
+			lock.myUsers++;
+			myLocked = true;
+		}
+	}
+
+	/**
+	 * Release cache, and remove files which are not used longest time while cache is bigger than limit. Must be called after all entries are written.
+	 * Files are not removed if cache is used by another build now - it will be done by next build
+	 *
+	 * @return false if eviction was skipped
+	 */
+	public boolean evict() throws IOException
+	{
+		synchronized(ourLocks)
+		{
+			Path key = myDirectory.toAbsolutePath().normalize();
+			DirectoryLock lock = ourLocks.get(key);
+			if(myLocked)
+			{
+				myLocked = false;
+				if(--lock.myUsers == 0)
+				{
+					ourLocks.remove(key);
+					// closing of channel releases lock
+					lock.myChannel.close();
+					lock = null;
+				}
+			}
+
+			if(lock != null)
+			{
+				return false;
+			}
+
+			if(!Files.isDirectory(myDirectory))
+			{
+				return true;
+			}
+
+			// closing of other channel of same file can release locks of JVM - there no other channels now
+			try (FileChannel channel = FileChannel.open(myDirectory.resolve(ourLockFile), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				if(channel.tryLock() == null)
+				{
+					return false;
+				}
+
+				evictFiles();
+				return true;
+			}
+		}
+	}
+
+	private void evictFiles() throws IOException
+	{
+		List<Path> files = new ArrayList<>();
+		try (Stream<Path> stream = Files.list(myDirectory))
+		{
+			stream.forEach(files::add);
+		}
+
+		long now = System.currentTimeMillis();
+
+		// newest first
+		files.sort(Comparator.comparingLong(CompressedEntryCache::lastModified).reversed());
+
+		long size = 0;
+		for(Path file : files)
+		{
+			if(file.getFileName().toString().equals(ourLockFile))
+			{
+				continue;
+			}
+
+			if(!file.getFileName().toString().endsWith(ourExtension))
+			{
+				// temp files can be left by killed build
+				if(now - lastModified(file) > TimeUnit.DAYS.toMillis(1))
+				{
+					Files.deleteIfExists(file);
+				}
+				continue;
+			}
+
+			size += Files.size(file);
+			if(size > myMaxSize)
+			{
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	private static long lastModified(Path file)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(file).toMillis();
+		}
+		catch(IOException e)
+		{
+			return 0;
+		}
+	}
+
+	public long getHits()
+	{
+		return myHits.get();
+	}
+
+	public long getMisses()
+	{
+		return myMisses.get();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Directory as archive stream. Entry names start from directory name, same as for zip created by {@link hudson.FilePath#zip(hudson.FilePath)}.
+ * Entries are {@link TarArchiveEntry} with real POSIX mode, size, modification time and symlinks, in order of names
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class DirectoryArchiveInputStream extends ArchiveInputStream<TarArchiveEntry>
+{
+	private static final int ourTypeDirectory = 0040000;
+	private static final int ourTypeFile = 0100000;
+	private static final int ourTypeSymlink = 0120000;
+
+	private static final class Item
+	{
+		private final Path myPath;
+		private final String myName;
+		private final BasicFileAttributes myAttributes;
+
+		private Item(Path path, String name, BasicFileAttributes attributes)
+		{
+			myPath = path;
+			myName = name;
+			myAttributes = attributes;
+		}
+	}
+
+	private final Iterator<Item> myItems;
+	private final boolean myPosix;
+	private InputStream myCurrentStream;
+
+	public DirectoryArchiveInputStream(Path directory) throws IOException
+	{
+		String rootName = directory.getFileName().toString();
+
+		List<Item> items = new ArrayList<>();
+		Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+			{
+				items.add(new Item(dir, entryName(rootName, directory, dir) + "/", attrs));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+			{
+				items.add(new Item(file, entryName(rootName, directory, file), attrs));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		// order of file system listing can differ between nodes, parent directory is always before children
+		items.sort(Comparator.comparing(item -> item.myName));
+
+		myItems = items.iterator();
+		myPosix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+	}
+
+	private static String entryName(String rootName, Path root, Path path)
+	{
+		Path relative = root.relativize(path);
+		if(relative.toString().isEmpty())
+		{
+			return rootName;
+		}
+
+		StringBuilder builder = new StringBuilder(rootName);
+		for(Path part : relative)
+		{
+			builder.append('/').append(part);
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public TarArchiveEntry getNextEntry() throws IOException
+	{
+		closeCurrentStream();
+
+		if(!myItems.hasNext())
+		{
+			return null;
+		}
+
+		Item item = myItems.next();
+
+		BasicFileAttributes attributes = item.myAttributes;
+
+		TarArchiveEntry entry;
+		if(attributes.isSymbolicLink())
+		{
+			entry = new TarArchiveEntry(item.myName, TarConstants.LF_SYMLINK);
+			entry.setLinkName(Files.readSymbolicLink(item.myPath).toString().replace('\\', '/'));
+			entry.setMode(ourTypeSymlink | 0777);
+		}
+		else if(attributes.isDirectory())
+		{
+			entry = new TarArchiveEntry(item.myName, TarConstants.LF_DIR);
+			entry.setMode(ourTypeDirectory | permissions(item.myPath, 0755));
+		}
+		else
+		{
+			entry = new TarArchiveEntry(item.myName, TarConstants.LF_NORMAL);
+			entry.setMode(ourTypeFile | permissions(item.myPath, 0644));
+			entry.setSize(attributes.size());
+
+			myCurrentStream = Files.newInputStream(item.myPath);
+		}
+
+		entry.setModTime(attributes.lastModifiedTime().toMillis());
+		return entry;
+	}
+
+	private int permissions(Path path, int defaultValue) throws IOException
+	{
+		if(!myPosix)
+		{
+			return defaultValue;
+		}
+
+		int mode = 0;
+		for(PosixFilePermission permission : Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS))
+		{
+			// enum order is owner rwx, group rwx, others rwx
+			mode |= 1 << (8 - permission.ordinal());
+		}
+		return mode;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if(myCurrentStream == null)
+		{
+			return -1;
+		}
+
+		int read = myCurrentStream.read(b, off, len);
+		count(read);
+		return read;
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return myCurrentStream == null ? 0 : myCurrentStream.available();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		closeCurrentStream();
+	}
+
+	private void closeCurrentStream() throws IOException
+	{
+		if(myCurrentStream != null)
+		{
+			myCurrentStream.close();
+			myCurrentStream = null;
+		}
+	}
+}
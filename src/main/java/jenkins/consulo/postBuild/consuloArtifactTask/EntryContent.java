@@ -0,0 +1,448 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Data of one archive entry, with converted line ends for text files.
+ * <p>
+ * Data is classified as text or binary by first bytes. Binary data with known size is not buffered at all - it copied
+ * directly from input stream. Other data is staged in {@link BufferArena}, see {@link StagingBuffer}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public abstract class EntryContent implements Closeable
+{
+	private static class Bytes extends EntryContent
+	{
+		private final byte[] myData;
+		private final int myLength;
+
+		private Bytes(byte[] data, int length)
+		{
+			myData = data;
+			myLength = length;
+		}
+
+		@Override
+		public long getSize()
+		{
+			return myLength;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException
+		{
+			out.write(myData, 0, myLength);
+		}
+	}
+
+	private static class Streaming extends EntryContent
+	{
+		private final byte[] myHead;
+		private final int myHeadLength;
+		private final InputStream myRemaining;
+		private final long mySize;
+
+		private Streaming(byte[] head, int headLength, InputStream remaining, long size)
+		{
+			myHead = head;
+			myHeadLength = headLength;
+			myRemaining = remaining;
+			mySize = size;
+		}
+
+		@Override
+		public long getSize()
+		{
+			return mySize;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException
+		{
+			out.write(myHead, 0, myHeadLength);
+
+			IOUtils.copyLarge(myRemaining, out, new byte[ourBufferSize]);
+		}
+	}
+
+	/**
+	 * Output to array of known size
+	 */
+	private static class ArrayOutputStream extends OutputStream
+	{
+		private final byte[] myData;
+		private int myPosition;
+
+		private ArrayOutputStream(int size)
+		{
+			myData = new byte[size];
+		}
+
+		@Override
+		public void write(int b)
+		{
+			myData[myPosition++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			System.arraycopy(b, off, myData, myPosition, len);
+			myPosition += len;
+		}
+	}
+
+	private static class Spooled extends EntryContent
+	{
+		private final StagingBuffer mySpool;
+		private final boolean myConvertLineEnds;
+		private final long mySize;
+
+		private Spooled(StagingBuffer spool, boolean convertLineEnds, long size)
+		{
+			mySpool = spool;
+			myConvertLineEnds = convertLineEnds;
+			mySize = size;
+		}
+
+		@Override
+		public long getSize()
+		{
+			return mySize;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException
+		{
+			if(!myConvertLineEnds)
+			{
+				mySpool.writeTo(out);
+				return;
+			}
+
+			try (InputStream stream = mySpool.openStream())
+			{
+				LineEnds.Converter converter = new LineEnds.Converter();
+				byte[] buffer = new byte[ourBufferSize];
+				int read;
+				while((read = stream.read(buffer)) != -1)
+				{
+					converter.convert(buffer, 0, read, out);
+				}
+			}
+		}
+
+		@Override
+		public EntryContent convertNow() throws IOException
+		{
+			if(!myConvertLineEnds)
+			{
+				return this;
+			}
+
+			StagingBuffer converted = mySpool.getArena().newBuffer("consulo-entry");
+			try
+			{
+				writeTo(converted);
+				converted.close();
+			}
+			catch(IOException | RuntimeException e)
+			{
+				converted.dispose();
+				throw e;
+			}
+
+			mySpool.dispose();
+
+			EntryContent content = new Spooled(converted, false, mySize);
+			content.myMagic = getMagic();
+			content.myMagicLength = getMagicLength();
+			content.myConverted = isConverted();
+			content.myCrc = getCrc();
+			content.myDigest = getDigest();
+			return content;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			mySpool.dispose();
+		}
+	}
+
+	private static final int ourBufferSize = 64 * 1024;
+	private static final int ourLookaheadSize = 8 * 1024;
+
+	/**
+	 * @param declaredSize size of data from archive header, or -1 if unknown
+	 * @param sizeRequired if false, {@link #getSize()} can return -1 - output can write entry without size
+	 */
+	public static EntryContent read(InputStream in, long declaredSize, boolean sizeRequired) throws IOException
+	{
+		return read(in, declaredSize, sizeRequired, true);
+	}
+
+	/**
+	 * @param convertLineEnds if false, text data is not converted
+	 */
+	public static EntryContent read(InputStream in, long declaredSize, boolean sizeRequired, boolean convertLineEnds) throws IOException
+	{
+		return read(in, declaredSize, sizeRequired, convertLineEnds, false);
+	}
+
+	/**
+	 * @param checksumRequired if true, data is always staged and can be written several times, {@link #getDigest()} is known,
+	 *                         and {@link #getCrc()} is known for not converted data
+	 */
+	public static EntryContent read(InputStream in, long declaredSize, boolean sizeRequired, boolean convertLineEnds, boolean checksumRequired) throws IOException
+	{
+		return read(in, declaredSize, sizeRequired, convertLineEnds, checksumRequired, false);
+	}
+
+	/**
+	 * @param stagingRequired if true, data is always staged - stream can be moved to next entry before data is written, see {@link EntryPipeline}
+	 */
+	public static EntryContent read(InputStream in, long declaredSize, boolean sizeRequired, boolean convertLineEnds, boolean checksumRequired, boolean stagingRequired) throws IOException
+	{
+		return read(in, declaredSize, sizeRequired, convertLineEnds, checksumRequired, stagingRequired, BufferArena.getInstance());
+	}
+
+	/**
+	 * @param arena arena of staged data, see {@link Generator}
+	 */
+	public static EntryContent read(InputStream in,
+									long declaredSize,
+									boolean sizeRequired,
+									boolean convertLineEnds,
+									boolean checksumRequired,
+									boolean stagingRequired,
+									BufferArena arena) throws IOException
+	{
+		byte[] head = new byte[ourLookaheadSize];
+		int headLength = IOUtils.read(in, head);
+
+		EntryContent content = read(in, head, headLength, declaredSize, sizeRequired, convertLineEnds, checksumRequired || stagingRequired, checksumRequired, arena);
+		content.myMagicLength = Math.min(headLength, ExecutableDetector.MAGIC_LENGTH);
+		content.myMagic = Arrays.copyOf(head, content.myMagicLength);
+		return content;
+	}
+
+	private static EntryContent read(InputStream in,
+									 byte[] head,
+									 int headLength,
+									 long declaredSize,
+									 boolean sizeRequired,
+									 boolean convertText,
+									 boolean stagingRequired,
+									 boolean checksumRequired,
+									 BufferArena arena) throws IOException
+	{
+		LineEnds.Scanner scanner = new LineEnds.Scanner();
+		// not converted text is copied as binary data
+		boolean binary = !convertText || !scanner.scan(head, 0, headLength);
+
+		if(headLength < ourLookaheadSize)
+		{
+			// all data inside lookahead window
+			if(!binary && scanner.hasCR())
+			{
+				ArrayOutputStream stream = new ArrayOutputStream((int) scanner.getConvertedSize(headLength));
+				new LineEnds.Converter().convert(head, 0, headLength, stream);
+
+				EntryContent content = new Bytes(stream.myData, stream.myPosition);
+				content.myConverted = true;
+				if(checksumRequired)
+				{
+					MessageDigest digest = JreCache.sha256();
+					digest.update(head, 0, headLength);
+					content.myDigest = digest.digest();
+				}
+				return content;
+			}
+
+			EntryContent content = new Bytes(head, headLength);
+			if(checksumRequired)
+			{
+				CRC32 crc = new CRC32();
+				crc.update(head, 0, headLength);
+				content.myCrc = crc.getValue();
+
+				MessageDigest digest = JreCache.sha256();
+				digest.update(head, 0, headLength);
+				content.myDigest = digest.digest();
+			}
+			return content;
+		}
+
+		if(binary && !stagingRequired && (declaredSize >= 0 || !sizeRequired))
+		{
+			return new Streaming(head, headLength, in, declaredSize);
+		}
+
+		StagingBuffer spool = arena.newBuffer("consulo-entry");
+
+		boolean text = !binary;
+		CRC32 crc = checksumRequired ? new CRC32() : null;
+		MessageDigest digest = checksumRequired ? JreCache.sha256() : null;
+		try
+		{
+			spool.write(head, 0, headLength);
+			if(crc != null)
+			{
+				crc.update(head, 0, headLength);
+				digest.update(head, 0, headLength);
+			}
+
+			// text check while data is staged, line ends are converted while writing
+			byte[] buffer = new byte[ourBufferSize];
+			int read;
+			while((read = in.read(buffer)) != -1)
+			{
+				spool.write(buffer, 0, read);
+				if(crc != null)
+				{
+					crc.update(buffer, 0, read);
+					digest.update(buffer, 0, read);
+				}
+				if(text)
+				{
+					text = scanner.scan(buffer, 0, read);
+				}
+			}
+			spool.close();
+		}
+		catch(IOException | RuntimeException e)
+		{
+			new Spooled(spool, false, -1).close();
+			throw e;
+		}
+
+		boolean convertLineEnds = text && scanner.hasCR();
+		long size = convertLineEnds ? scanner.getConvertedSize(spool.size()) : spool.size();
+		EntryContent content = new Spooled(spool, convertLineEnds, size);
+		content.myConverted = convertLineEnds;
+		if(crc != null)
+		{
+			content.myCrc = convertLineEnds ? -1 : crc.getValue();
+			content.myDigest = digest.digest();
+		}
+		return content;
+	}
+
+	/**
+	 * Read data as is, without line ends conversion
+	 */
+	public static EntryContent readRaw(InputStream in, long declaredSize, boolean sizeRequired) throws IOException
+	{
+		if(declaredSize >= 0 || !sizeRequired)
+		{
+			return new Streaming(new byte[0], 0, in, declaredSize);
+		}
+
+		StagingBuffer spool = BufferArena.getInstance().newBuffer("consulo-entry");
+		try
+		{
+			IOUtils.copyLarge(in, spool, new byte[ourBufferSize]);
+			spool.close();
+		}
+		catch(IOException | RuntimeException e)
+		{
+			new Spooled(spool, false, -1).close();
+			throw e;
+		}
+		return new Spooled(spool, false, spool.size());
+	}
+
+	private byte[] myMagic = new byte[0];
+	private int myMagicLength;
+	private boolean myConverted;
+	private long myCrc = -1;
+	private byte[] myDigest;
+
+	/**
+	 * @return first bytes of original data (before line ends conversion), see {@link ExecutableDetector#MAGIC_LENGTH}. Empty for {@link #readRaw(InputStream, long, boolean)}
+	 */
+	public byte[] getMagic()
+	{
+		return myMagic;
+	}
+
+	public int getMagicLength()
+	{
+		return myMagicLength;
+	}
+
+	/**
+	 * @return true if line ends of data were converted, and data differs from original
+	 */
+	public boolean isConverted()
+	{
+		return myConverted;
+	}
+
+	/**
+	 * @return CRC-32 of data, or -1 if it was not requested or data is converted
+	 */
+	public long getCrc()
+	{
+		return myCrc;
+	}
+
+	/**
+	 * @return SHA-256 of original data (before line ends conversion), or null if it was not requested
+	 */
+	@Nullable
+	public byte[] getDigest()
+	{
+		return myDigest;
+	}
+
+	/**
+	 * Convert line ends of staged data now, for example by worker thread - returned content is written without conversion.
+	 * This content must not be used after call
+	 */
+	public EntryContent convertNow() throws IOException
+	{
+		return this;
+	}
+
+	/**
+	 * @return size of data which will be written by {@link #writeTo(OutputStream)}, or -1 if unknown
+	 */
+	public abstract long getSize();
+
+	/**
+	 * Write data to stream. Can be called only once, if data is not staged - see {@link #read(InputStream, long, boolean, boolean, boolean)}
+	 */
+	public abstract void writeTo(OutputStream out) throws IOException;
+
+	@Override
+	public void close() throws IOException
+	{
+	}
+}
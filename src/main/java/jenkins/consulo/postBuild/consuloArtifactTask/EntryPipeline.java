@@ -0,0 +1,301 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchiveEntryWrapper;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Pipeline of entries of one pass over distribution: caller thread read entry data from source and stage it, workers convert line ends
+ * and compress zip entries which are stored in cache, and writer thread write entries to sinks in order of reading - order of entries
+ * in archives is same as order of {@link ArchiveSink#copyEntry} calls.
+ * <p>
+ * Stages are connected by bounded queue: reader is blocked if writer is behind by {@code maxEntriesInFlight} entries, staged data
+ * is limited by {@link BufferArena}. Sinks must not be used by another threads until {@link #finish()}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class EntryPipeline implements Closeable
+{
+	// end of entries, written by finish() or close()
+	private static final Future<ArchiveSink.PendingEntry> ourEnd = CompletableFuture.completedFuture(null);
+
+	private final List<ArchiveSink> mySinks;
+	private final ExecutorService myWorkers;
+	@Nullable
+	private final TargetMetrics myMetrics;
+	private final BlockingQueue<Future<ArchiveSink.PendingEntry>> myQueue;
+	private final Thread myWriter;
+
+	// first error of workers or writer, next entries are discarded
+	private volatile Throwable myError;
+	private volatile boolean myDiscard;
+	private boolean myFinished;
+
+	/**
+	 * @param workers threads of transform stage, must not be used by compression of sinks - workers wait for compression threads
+	 */
+	public EntryPipeline(List<ArchiveSink> sinks, ExecutorService workers, int maxEntriesInFlight, @Nullable TargetMetrics metrics)
+	{
+		mySinks = sinks;
+		myWorkers = workers;
+		myMetrics = metrics;
+		myQueue = new ArrayBlockingQueue<>(Math.max(maxEntriesInFlight, 1));
+
+		myWriter = new Thread(this::writeEntries, "Consulo Artifact Writer");
+		myWriter.setDaemon(true);
+		myWriter.start();
+	}
+
+	/**
+	 * Read entry data from stream, entry is written later by writer thread. Parameters are same as {@link ArchiveSink#copyEntry}
+	 */
+	public void submit(InputStream ais,
+					   ArchiveEntry tempEntry,
+					   ArchiveEntryWrapper.Multi newEntry,
+					   @Nullable ExecutableDetector detector,
+					   int mode,
+					   boolean convertLineEnds) throws IOException
+	{
+		checkError();
+
+		long start = System.nanoTime();
+		ArchiveSink.PendingEntry entry = ArchiveSink.readEntry(mySinks, ais, tempEntry, newEntry, detector, mode, convertLineEnds, true);
+		long readTime = System.nanoTime() - start;
+
+		Future<ArchiveSink.PendingEntry> future;
+		try
+		{
+			future = myWorkers.submit(() ->
+			{
+				long prepareStart = System.nanoTime();
+				try
+				{
+					ArchiveSink.prepareEntry(mySinks, entry);
+				}
+				catch(IOException | RuntimeException e)
+				{
+					entry.close();
+					throw e;
+				}
+				entry.addTime(readTime + System.nanoTime() - prepareStart);
+				return entry;
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			entry.close();
+			throw new IOException(e);
+		}
+
+		try
+		{
+			myQueue.put(future);
+		}
+		catch(InterruptedException e)
+		{
+			discard(future);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Wait until all entries are written to sinks
+	 */
+	public void finish() throws IOException, InterruptedException
+	{
+		myQueue.put(ourEnd);
+		myWriter.join();
+
+		myFinished = true;
+
+		checkError();
+	}
+
+	Thread getWriter()
+	{
+		return myWriter;
+	}
+
+	private void checkError() throws IOException
+	{
+		Throwable error = myError;
+		if(error == null)
+		{
+			return;
+		}
+
+		if(error instanceof IOException)
+		{
+			throw new IOException(error.getMessage(), error);
+		}
+		throw new IOException(error);
+	}
+
+	private void writeEntries()
+	{
+		while(true)
+		{
+			Future<ArchiveSink.PendingEntry> future;
+			try
+			{
+				future = myQueue.take();
+			}
+			catch(InterruptedException e)
+			{
+				// writer is stopped, but queue is drained until end - reader must not be blocked by full queue
+				fail(e);
+				continue;
+			}
+
+			if(future == ourEnd)
+			{
+				return;
+			}
+
+			// reader is not blocked by full queue, entries are discarded until end
+			if(myDiscard)
+			{
+				discard(future);
+				continue;
+			}
+
+			try (ArchiveSink.PendingEntry entry = future.get())
+			{
+				long start = System.nanoTime();
+				ArchiveSink.writeEntry(mySinks, entry);
+				entry.addTime(System.nanoTime() - start);
+
+				if(myMetrics != null)
+				{
+					ArchiveEntry tempEntry = entry.getTempEntry();
+					myMetrics.addEntry(tempEntry.getName(), tempEntry.isDirectory() ? 0 : tempEntry.getSize(), entry.getTime());
+				}
+			}
+			catch(ExecutionException e)
+			{
+				fail(e.getCause());
+			}
+			catch(InterruptedException e)
+			{
+				// entry is not taken from worker, its staged data is released here
+				fail(e);
+				discard(future);
+			}
+			catch(Throwable e)
+			{
+				fail(e);
+			}
+		}
+	}
+
+	private void fail(Throwable error)
+	{
+		if(myError == null)
+		{
+			myError = error;
+		}
+		myDiscard = true;
+	}
+
+	/**
+	 * Wait for worker, and release staged data of entry
+	 */
+	private static void discard(Future<ArchiveSink.PendingEntry> future)
+	{
+		boolean interrupted = false;
+		while(true)
+		{
+			try
+			{
+				future.get().close();
+				break;
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+			catch(ExecutionException | IOException e)
+			{
+				// staged data is released by worker
+				break;
+			}
+		}
+
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stop writer, if pipeline is not finished - not written entries are discarded
+	 */
+	@Override
+	public void close()
+	{
+		if(myFinished)
+		{
+			return;
+		}
+		myFinished = true;
+		myDiscard = true;
+
+		// writer discard entries, so queue is not full for long time
+		boolean interrupted = Thread.interrupted();
+		while(true)
+		{
+			try
+			{
+				myQueue.put(ourEnd);
+				break;
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+
+		while(true)
+		{
+			try
+			{
+				myWriter.join();
+				break;
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rules which decide for entry name: skip it or not, new name, mode and line ends conversion.
+ * <p>
+ * Prefix rules are compiled to character trie, segment rules (suffix of path segment, or full segment) are checked at segment ends.
+ * All rules are applied by one walk over entry name, new name is built only if some rename rule matched.
+ * Text replacements are applied to new name after it
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class EntryRules
+{
+	public static class Builder
+	{
+		private final Node myRoot = new Node();
+		private final List<SegmentRule> mySegmentRules = new ArrayList<>();
+		private final List<String> myReplacements = new ArrayList<>();
+		private boolean mySkipUnmatched;
+
+		/**
+		 * Skip entries which are not matched by any {@link #renamePrefix(String, String)} rule
+		 */
+		public Builder skipUnmatched()
+		{
+			mySkipUnmatched = true;
+			return this;
+		}
+
+		/**
+		 * Skip entry, and all entries inside it
+		 */
+		public Builder skipPrefix(String prefix)
+		{
+			myRoot.getOrCreate(prefix).mySkip = true;
+			return this;
+		}
+
+		/**
+		 * Skip entry if name or one of parent directories ends with suffix. For example <code>.dSYM</code> skip all directory content
+		 */
+		public Builder skipSuffix(String suffix)
+		{
+			mySegmentRules.add(new SegmentRule(suffix, true, null, null));
+			return this;
+		}
+
+		/**
+		 * Skip entry with exact name
+		 */
+		public Builder skipName(String name)
+		{
+			myRoot.getOrCreate(name).mySkipExact = true;
+			return this;
+		}
+
+		/**
+		 * Replace start of name. If several prefixes matched - longest is used
+		 */
+		public Builder renamePrefix(String prefix, String newPrefix)
+		{
+			myRoot.getOrCreate(prefix).myRenameTo = newPrefix;
+			return this;
+		}
+
+		/**
+		 * Replace full path segment. Segments of replaced prefix are not affected
+		 */
+		public Builder renameSegment(String segment, String newSegment)
+		{
+			mySegmentRules.add(new SegmentRule(segment, false, newSegment, null));
+			return this;
+		}
+
+		/**
+		 * Replace all occurrences of text in new name, like {@link String#replace(CharSequence, CharSequence)}
+		 */
+		public Builder replace(String text, String replacement)
+		{
+			myReplacements.add(text);
+			myReplacements.add(replacement);
+			return this;
+		}
+
+		/**
+		 * Mode for files (not directories) with prefix. If several prefixes matched - longest is used
+		 */
+		public Builder mode(String prefix, int mode)
+		{
+			myRoot.getOrCreate(prefix).myMode = mode;
+			return this;
+		}
+
+		/**
+		 * Line ends of text files with name suffix
+		 */
+		public Builder lineEnds(String suffix, boolean convert)
+		{
+			mySegmentRules.add(new SegmentRule(suffix, false, null, convert));
+			return this;
+		}
+
+		public EntryRules build()
+		{
+			return new EntryRules(myRoot, mySegmentRules.toArray(new SegmentRule[0]), myReplacements.toArray(new String[0]), mySkipUnmatched);
+		}
+	}
+
+	/**
+	 * Result of matching one entry
+	 */
+	public static class Match
+	{
+		private final String myName;
+		private final boolean mySkip;
+		private final int myMode;
+		private final boolean myConvertLineEnds;
+
+		private Match(String name, boolean skip, int mode, boolean convertLineEnds)
+		{
+			myName = name;
+			mySkip = skip;
+			myMode = mode;
+			myConvertLineEnds = convertLineEnds;
+		}
+
+		public boolean isSkipped()
+		{
+			return mySkip;
+		}
+
+		/**
+		 * @return new name, or original name if there no rename rules for it
+		 */
+		public String getName()
+		{
+			return myName;
+		}
+
+		public int getMode(int defaultMode)
+		{
+			return myMode == NO_MODE ? defaultMode : myMode;
+		}
+
+		public boolean isConvertLineEnds()
+		{
+			return myConvertLineEnds;
+		}
+	}
+
+	private static class Node
+	{
+		private char[] myKeys = new char[0];
+		private Node[] myChildren = new Node[0];
+
+		private boolean mySkip;
+		private boolean mySkipExact;
+		@Nullable
+		private String myRenameTo;
+		private int myMode = NO_MODE;
+
+		private Node getOrCreate(String path)
+		{
+			Node node = this;
+			for(int i = 0; i < path.length(); i++)
+			{
+				char c = path.charAt(i);
+				int index = Arrays.binarySearch(node.myKeys, c);
+				if(index < 0)
+				{
+					// keys are always sorted, rules can be added in any order
+					index = -index - 1;
+					node.insert(index, c, new Node());
+				}
+				node = node.myChildren[index];
+			}
+			return node;
+		}
+
+		private void insert(int index, char key, Node child)
+		{
+			char[] keys = new char[myKeys.length + 1];
+			Node[] children = new Node[myChildren.length + 1];
+			System.arraycopy(myKeys, 0, keys, 0, index);
+			System.arraycopy(myChildren, 0, children, 0, index);
+			keys[index] = key;
+			children[index] = child;
+			System.arraycopy(myKeys, index, keys, index + 1, myKeys.length - index);
+			System.arraycopy(myChildren, index, children, index + 1, myChildren.length - index);
+			myKeys = keys;
+			myChildren = children;
+		}
+
+		@Nullable
+		private Node find(char c)
+		{
+			// keys are sorted, linear search is faster for few keys
+			char[] keys = myKeys;
+			if(keys.length > 8)
+			{
+				int index = Arrays.binarySearch(keys, c);
+				return index < 0 ? null : myChildren[index];
+			}
+
+			for(int i = 0; i < keys.length; i++)
+			{
+				if(keys[i] == c)
+				{
+					return myChildren[i];
+				}
+			}
+			return null;
+		}
+	}
+
+	private static class SegmentRule
+	{
+		private final String myText;
+		// suffix rule if true, else full segment rule
+		private final boolean mySkipSuffix;
+		@Nullable
+		private final String myRenameTo;
+		@Nullable
+		private final Boolean myConvertLineEnds;
+
+		private SegmentRule(String text, boolean skipSuffix, @Nullable String renameTo, @Nullable Boolean convertLineEnds)
+		{
+			myText = text;
+			mySkipSuffix = skipSuffix;
+			myRenameTo = renameTo;
+			myConvertLineEnds = convertLineEnds;
+		}
+	}
+
+	private static final int NO_MODE = -1;
+
+	private final Node myRoot;
+	private final SegmentRule[] mySegmentRules;
+	// text, replacement pairs
+	private final String[] myReplacements;
+	private final boolean mySkipUnmatched;
+
+	private EntryRules(Node root, SegmentRule[] segmentRules, String[] replacements, boolean skipUnmatched)
+	{
+		myRoot = root;
+		mySegmentRules = segmentRules;
+		myReplacements = replacements;
+		mySkipUnmatched = skipUnmatched;
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public Match match(String name, boolean directory)
+	{
+		int length = name.length();
+
+		boolean skip = false;
+		int mode = NO_MODE;
+		boolean convertLineEnds = true;
+
+		String renameTo = null;
+		int renameLength = 0;
+
+		// renamed segments: start, end, rule index. Allocated only if needed
+		int[] segmentRenames = null;
+		int segmentRenameCount = 0;
+
+		Node node = myRoot;
+		int segmentStart = 0;
+		for(int i = 0; i <= length; i++)
+		{
+			if(node != null)
+			{
+				skip |= node.mySkip;
+				if(node.myRenameTo != null)
+				{
+					renameTo = node.myRenameTo;
+					renameLength = i;
+				}
+				if(node.myMode != NO_MODE)
+				{
+					mode = node.myMode;
+				}
+				if(i == length && node.mySkipExact)
+				{
+					skip = true;
+				}
+
+				node = i < length ? node.find(name.charAt(i)) : null;
+			}
+
+			if(i == length || name.charAt(i) == '/')
+			{
+				if(i > segmentStart)
+				{
+					for(int r = 0; r < mySegmentRules.length; r++)
+					{
+						SegmentRule rule = mySegmentRules[r];
+						String text = rule.myText;
+						if(rule.mySkipSuffix)
+						{
+							if(i - segmentStart >= text.length() && name.regionMatches(i - text.length(), text, 0, text.length()))
+							{
+								skip = true;
+							}
+						}
+						else if(rule.myConvertLineEnds != null)
+						{
+							if(i == length && length - segmentStart >= text.length() && name.regionMatches(length - text.length(), text, 0, text.length()))
+							{
+								convertLineEnds = rule.myConvertLineEnds;
+							}
+						}
+						else if(i - segmentStart == text.length() && name.regionMatches(segmentStart, text, 0, text.length()))
+						{
+							if(segmentRenames == null)
+							{
+								segmentRenames = new int[6];
+							}
+							else if(segmentRenameCount * 3 == segmentRenames.length)
+							{
+								segmentRenames = Arrays.copyOf(segmentRenames, segmentRenames.length * 2);
+							}
+							segmentRenames[segmentRenameCount * 3] = segmentStart;
+							segmentRenames[segmentRenameCount * 3 + 1] = i;
+							segmentRenames[segmentRenameCount * 3 + 2] = r;
+							segmentRenameCount++;
+						}
+					}
+				}
+				segmentStart = i + 1;
+			}
+		}
+
+		if(skip || mySkipUnmatched && renameTo == null)
+		{
+			return new Match(name, true, NO_MODE, convertLineEnds);
+		}
+
+		String newName = name;
+		if(renameTo != null || segmentRenameCount > 0)
+		{
+			StringBuilder builder = new StringBuilder(length + 16);
+			int position = 0;
+			if(renameTo != null)
+			{
+				builder.append(renameTo);
+				position = renameLength;
+			}
+
+			for(int s = 0; s < segmentRenameCount; s++)
+			{
+				int start = segmentRenames[s * 3];
+				if(start < position)
+				{
+					continue;
+				}
+				builder.append(name, position, start);
+				builder.append(mySegmentRules[segmentRenames[s * 3 + 2]].myRenameTo);
+				position = segmentRenames[s * 3 + 1];
+			}
+			builder.append(name, position, length);
+			newName = builder.toString();
+		}
+
+		for(int r = 0; r < myReplacements.length; r += 2)
+		{
+			if(newName.contains(myReplacements[r]))
+			{
+				newName = newName.replace(myReplacements[r], myReplacements[r + 1]);
+			}
+		}
+
+		return new Match(newName, false, directory ? NO_MODE : mode, convertLineEnds);
+	}
+}
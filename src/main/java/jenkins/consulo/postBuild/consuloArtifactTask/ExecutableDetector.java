@@ -0,0 +1,229 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detect entries which must have executable permission. Entry is executable if name match one of path patterns,
+ * or if data starts with magic of native binary (ELF, Mach-O) or script (<code>#!</code>).
+ * <p>
+ * Patterns are compiled to trie by path segments. Segment can contains <code>*</code> and <code>?</code>, segment <code>**</code> match any count of segments.
+ * Entry names are matched without creating substrings
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ExecutableDetector
+{
+	private static class Node
+	{
+		private final List<String> mySegments = new ArrayList<>();
+		private final List<Node> myChildren = new ArrayList<>();
+		private boolean myTerminal;
+
+		private Node getOrCreateChild(String segment)
+		{
+			int index = mySegments.indexOf(segment);
+			if(index != -1)
+			{
+				return myChildren.get(index);
+			}
+
+			Node child = new Node();
+			mySegments.add(segment);
+			myChildren.add(child);
+			return child;
+		}
+	}
+
+	/**
+	 * Count of data bytes, required for {@link #isExecutable(byte[], int)}
+	 */
+	public static final int MAGIC_LENGTH = 20;
+
+	private static final String ANY_SEGMENTS = "**";
+
+	private final Node myRoot = new Node();
+
+	public static ExecutableDetector compile(String... patterns)
+	{
+		ExecutableDetector detector = new ExecutableDetector();
+		for(String pattern : patterns)
+		{
+			Node node = detector.myRoot;
+			for(String segment : pattern.split("/"))
+			{
+				if(!segment.isEmpty())
+				{
+					node = node.getOrCreateChild(segment);
+				}
+			}
+			node.myTerminal = true;
+		}
+		return detector;
+	}
+
+	public boolean matches(String entryName)
+	{
+		return matches(myRoot, entryName, 0);
+	}
+
+	/**
+	 * @param magic first bytes of entry data
+	 * @param length count of bytes in magic, can be less than {@link #MAGIC_LENGTH} for small entries
+	 */
+	public boolean isExecutable(byte[] magic, int length)
+	{
+		if(length >= 2 && magic[0] == '#' && magic[1] == '!')
+		{
+			return true;
+		}
+
+		if(length < 8)
+		{
+			return false;
+		}
+
+		int first = readInt(magic, 0, true);
+		switch(first)
+		{
+			case 0x7F454C46:
+				// ELF, all except relocatable objects. Shared libraries are executable too
+				if(length < 18)
+				{
+					return false;
+				}
+				boolean bigEndian = magic[5] == 2;
+				int elfType = bigEndian ? ((magic[16] & 0xFF) << 8) | (magic[17] & 0xFF) : ((magic[17] & 0xFF) << 8) | (magic[16] & 0xFF);
+				return elfType != 1;
+			case 0xFEEDFACE:
+			case 0xFEEDFACF:
+				return length >= 16 && readInt(magic, 12, true) != 1;
+			case 0xCEFAEDFE:
+			case 0xCFFAEDFE:
+				return length >= 16 && readInt(magic, 12, false) != 1;
+			case 0xCAFEBABE:
+				// universal Mach-O binary, or java class file. Class file contains version there, which is never lower than 45
+				int archCount = readInt(magic, 4, true);
+				return archCount > 0 && archCount < 45;
+			default:
+				return false;
+		}
+	}
+
+	private static int readInt(byte[] data, int offset, boolean bigEndian)
+	{
+		int value = 0;
+		for(int i = 0; i < 4; i++)
+		{
+			int b = data[offset + (bigEndian ? i : 3 - i)] & 0xFF;
+			value = (value << 8) | b;
+		}
+		return value;
+	}
+
+	private static boolean matches(Node node, String name, int position)
+	{
+		int length = name.length();
+		if(position == length && node.myTerminal)
+		{
+			return true;
+		}
+
+		int segmentEnd = name.indexOf('/', position);
+		if(segmentEnd == -1)
+		{
+			segmentEnd = length;
+		}
+
+		for(int i = 0; i < node.mySegments.size(); i++)
+		{
+			String segment = node.mySegments.get(i);
+			Node child = node.myChildren.get(i);
+
+			if(segment.equals(ANY_SEGMENTS))
+			{
+				int next = position;
+				while(true)
+				{
+					if(matches(child, name, next))
+					{
+						return true;
+					}
+
+					if(next == length)
+					{
+						break;
+					}
+
+					int slash = name.indexOf('/', next);
+					next = slash == -1 ? length : slash + 1;
+				}
+			}
+			else if(position < length && matchesSegment(segment, name, position, segmentEnd))
+			{
+				if(matches(child, name, segmentEnd == length ? length : segmentEnd + 1))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Wildcard match of pattern to name[start, end)
+	 */
+	private static boolean matchesSegment(String pattern, String name, int start, int end)
+	{
+		int p = 0;
+		int n = start;
+		int starPattern = -1;
+		int starName = -1;
+
+		while(n < end)
+		{
+			if(p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n)))
+			{
+				p++;
+				n++;
+			}
+			else if(p < pattern.length() && pattern.charAt(p) == '*')
+			{
+				starPattern = p++;
+				starName = n;
+			}
+			else if(starPattern != -1)
+			{
+				p = starPattern + 1;
+				n = ++starName;
+			}
+			else
+			{
+				return false;
+			}
+		}
+
+		while(p < pattern.length() && pattern.charAt(p) == '*')
+		{
+			p++;
+		}
+		return p == pattern.length();
+	}
+}
@@ -16,72 +16,60 @@
 
 package jenkins.consulo.postBuild.consuloArtifactTask;
 
-import com.Ostermiller.util.BinaryDataException;
-import com.Ostermiller.util.LineEnds;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.BuildListener;
 import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.delta.DeltaManifest;
+import jenkins.consulo.postBuild.consuloArtifactTask.delta.DeltaPackageBuilder;
 import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchiveEntryWrapper;
 import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchivedBundledJRE;
 import jenkins.consulo.postBuild.consuloArtifactTask.jre.BundledJRE;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreDownloader;
 import jenkins.consulo.postBuild.consuloArtifactTask.jre.LocalBundledJRE;
 import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.ArchiveInputStream;
-import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
-import org.apache.commons.io.IOUtils;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Arrays;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 /**
  * @author VISTALL
  * @since 2019-11-17
  */
-public class Generator
+public class Generator implements Closeable
 {
-	private static final String[] ourExecutable = new String[]{
+	// names are matched before buildSNAPSHOT replacement. Native binaries and scripts which are not listed there, are detected by data
+	private static final ExecutableDetector ourExecutableDetector = ExecutableDetector.compile(
 			// linux
 			"Consulo/consulo.sh",
 			"Consulo/platform/buildSNAPSHOT/bin/launcher.sh",
-			"Consulo/platform/buildSNAPSHOT/bin/fsnotifier",
-			"Consulo/platform/buildSNAPSHOT/bin/fsnotifier64",
-			"Consulo/platform/buildSNAPSHOT/bin/fsnotifier-aarch64",
-			// new linux
-			"Consulo/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier",
-			"Consulo/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier64",
-			"Consulo/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier-aarch64",
-			"Consulo/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier-loong64",
-			"Consulo/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier-riscv64",
+			"Consulo/platform/buildSNAPSHOT/bin/fsnotifier*",
+			"Consulo/platform/buildSNAPSHOT/modules/*/native/fsnotifier*",
 
 			// mac
-			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/fsnotifier",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/fsnotifier-aarch64",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/restarter-aarch64",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/printenv.py",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/printenv",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/printenv-aarch64",
 			"Consulo.app/Contents/MacOS/consulo",
-
-			// new mac
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier64",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo/native/fsnotifier-aarch64",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo/native/printenv",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo/native/printenv64",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo/native/printenv-aarch64",
-
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo.desktop.awt/native/restarter",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo.desktop.awt/native/restarter64",
-			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/consulo.desktop.awt/native/restarter-aarch64",
-	};
+			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/fsnotifier*",
+			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/restarter*",
+			"Consulo.app/Contents/platform/buildSNAPSHOT/bin/printenv*",
+			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/*/native/fsnotifier*",
+			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/*/native/printenv*",
+			"Consulo.app/Contents/platform/buildSNAPSHOT/modules/*/native/restarter*"
+	);
 
 	public static final String ourBuildSNAPSHOT = "buildSNAPSHOT";
 
@@ -89,52 +77,234 @@ public class Generator
 	protected FilePath myTargetDir;
 	protected FilePath myJreDirectory;
 	protected int myBuildNumber;
+	protected final GeneratorOptions myOptions;
 	protected BuildListener myListener;
-
-	public Generator(FilePath distPath, FilePath targetDir, FilePath jreDirectory, int buildNumber, BuildListener listener)
+	// rules of distribution entries, jre entries use own rules - see BundledJRE
+	protected final EntryRules myEntryRules;
+
+	// shared by all outputs, see ParallelGzipOutputStream
+	@Nullable
+	protected final ExecutorService myCompressionExecutor;
+	// workers of distribution entries, see EntryPipeline. Separate from compression threads, since workers wait for them
+	@Nullable
+	protected final ExecutorService myPipelineExecutor;
+
+	// shared between all copies of generator, guard files which can be requested by different targets
+	protected final ConcurrentMap<String, Object> myLocks;
+	// url -> downloaded file. Targets can read jre archive in parallel, and it must not be overwritten while reading
+	protected final ConcurrentMap<String, FilePath> myDownloadedJres;
+
+	@Nullable
+	protected final JreCache myJreCache;
+	@Nullable
+	protected final CompressedEntryCache myEntryCache;
+	// downloaded jre archives are kept between builds, if cache is enabled
+	protected final FilePath myDownloadDirectory;
+	// content addressed store of installer inputs, null if cache is disabled
+	@Nullable
+	protected final StagingStore myStagingStore;
+	// checksums of all files in target directory, which are written by generator
+	protected final ArtifactChecksums myChecksums;
+	// staging memory of build, settings and statistics are not shared with other builds of node
+	protected final BufferArena myArena;
+
+	// metrics of current target, see forTarget()
+	@Nullable
+	protected final TargetMetrics myMetrics;
+
+	/**
+	 * @param cacheDirectory node local directory for data which can be reused by next builds, if null - cache is disabled
+	 */
+	public Generator(FilePath distPath, FilePath targetDir, FilePath jreDirectory, @Nullable FilePath cacheDirectory, int buildNumber, GeneratorOptions options, BuildListener listener)
 	{
 		myDistPath = distPath;
 		myTargetDir = targetDir;
 		myJreDirectory = jreDirectory;
 		myBuildNumber = buildNumber;
+		myOptions = options;
 		myListener = listener;
+		myEntryRules = EntryRules.builder()
+				.replace(ourBuildSNAPSHOT, "build" + buildNumber)
+				// binary formats, never checked as text
+				.lineEnds(".jar", false)
+				.lineEnds(".zip", false)
+				.lineEnds(".gz", false)
+				.lineEnds(".class", false)
+				.lineEnds(".jmod", false)
+				.lineEnds(".so", false)
+				.lineEnds(".dll", false)
+				.lineEnds(".exe", false)
+				.lineEnds(".png", false)
+				.lineEnds(".jpg", false)
+				.build();
+		myCompressionExecutor = options.getCompressionThreads() > 1 ? createExecutor("Consulo Artifact Compressor #", options.getCompressionThreads()) : null;
+		myPipelineExecutor = options.getCompressionThreads() > 1 ? createExecutor("Consulo Artifact Pipeline #", options.getCompressionThreads()) : null;
+		myLocks = new ConcurrentHashMap<>();
+		myDownloadedJres = new ConcurrentHashMap<>();
+		myJreCache = cacheDirectory == null ? null : new JreCache(cacheDirectory.child("jre"));
+		// compressed data is copied by local file api
+		myEntryCache = cacheDirectory == null ? null : new CompressedEntryCache(Paths.get(cacheDirectory.child("entries").getRemote()),
+				options.getEntryCacheSize(),
+				Deflater.DEFAULT_COMPRESSION,
+				options.getGzipBlockSize(),
+				myCompressionExecutor,
+				options.getCompressionThreads() * 2);
+		myDownloadDirectory = cacheDirectory == null ? jreDirectory : cacheDirectory.child("downloads");
+		myStagingStore = cacheDirectory == null ? null : new StagingStore(Paths.get(cacheDirectory.child("staging").getRemote()));
+		myChecksums = new ArtifactChecksums();
+		myArena = new BufferArena(options.getStagingMemory(), options.getStagingSpillThreshold());
+		myMetrics = null;
 	}
 
-	private FilePath prepareJre(@Nullable String jdkArchivePathOrUrl) throws Exception
+	protected Generator(Generator parent, BuildListener listener, @Nullable TargetMetrics metrics)
 	{
-		if(jdkArchivePathOrUrl != null && jdkArchivePathOrUrl.startsWith("https://"))
+		myDistPath = parent.myDistPath;
+		myTargetDir = parent.myTargetDir;
+		myJreDirectory = parent.myJreDirectory;
+		myBuildNumber = parent.myBuildNumber;
+		myOptions = parent.myOptions;
+		myListener = listener;
+		myEntryRules = parent.myEntryRules;
+		myCompressionExecutor = parent.myCompressionExecutor;
+		myPipelineExecutor = parent.myPipelineExecutor;
+		myLocks = parent.myLocks;
+		myDownloadedJres = parent.myDownloadedJres;
+		myJreCache = parent.myJreCache;
+		myEntryCache = parent.myEntryCache;
+		myDownloadDirectory = parent.myDownloadDirectory;
+		myStagingStore = parent.myStagingStore;
+		myChecksums = parent.myChecksums;
+		myArena = parent.myArena;
+		myMetrics = metrics;
+	}
+
+	/**
+	 * @return generator which share state with this generator, but write log to another listener
+	 */
+	public Generator forListener(BuildListener listener)
+	{
+		return new Generator(this, listener, myMetrics);
+	}
+
+	/**
+	 * @return generator which share state with this generator, but write log to another listener and collect metrics of target
+	 */
+	public Generator forTarget(BuildListener listener, TargetMetrics metrics)
+	{
+		return new Generator(this, listener, metrics);
+	}
+
+	private static ExecutorService createExecutor(String threadName, int threads)
+	{
+		AtomicInteger threadIndex = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, r ->
 		{
-			myListener.getLogger().println("JRE: downloading " + jdkArchivePathOrUrl);
+			Thread thread = new Thread(r, threadName + threadIndex.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
 
-			URL jreUrl = new URL(jdkArchivePathOrUrl);
+	/**
+	 * Stop threads of generator. Must be called by owner of generator, copies created by {@link #forListener(BuildListener)} share this state
+	 */
+	@Override
+	public void close()
+	{
+		if(myCompressionExecutor != null)
+		{
+			myCompressionExecutor.shutdownNow();
+		}
 
-			HttpURLConnection connection = (HttpURLConnection) jreUrl.openConnection();
+		if(myPipelineExecutor != null)
+		{
+			myPipelineExecutor.shutdownNow();
+		}
+
+		myListener.getLogger().println("Staging: " + myArena.resetStatistics());
 
-			String fileName = null;
-			String contentDisposition = connection.getHeaderField("Content-Disposition");
-			if(contentDisposition != null)
+		if(myEntryCache != null)
+		{
+			myListener.getLogger().println("Entry cache: " + myEntryCache.getHits() + " hits, " + myEntryCache.getMisses() + " misses");
+			try
 			{
-				fileName = contentDisposition.replaceFirst("(?i)^.*filename=\"?([^\"]+)\"?.*$", "$1");
+				if(!myEntryCache.evict())
+				{
+					myListener.getLogger().println("Entry cache: used by another build, eviction is skipped");
+				}
 			}
-			else
+			catch(IOException e)
 			{
-				fileName = jdkArchivePathOrUrl.substring(jdkArchivePathOrUrl.lastIndexOf('/') + 1, jdkArchivePathOrUrl.length());
+				myListener.getLogger().println("Entry cache: failed to evict - " + e.getMessage());
 			}
+		}
 
-			connection.disconnect();
+		if(myStagingStore != null)
+		{
+			try
+			{
+				myStagingStore.evict();
+			}
+			catch(IOException e)
+			{
+				myListener.getLogger().println("Staging store: failed to evict - " + e.getMessage());
+			}
+		}
+	}
 
-			FilePath jreFileArchiveFile = myJreDirectory.child(fileName);
+	protected Object getLock(String key)
+	{
+		return myLocks.computeIfAbsent(key, k -> new Object());
+	}
 
-			jreFileArchiveFile.copyFrom(jreUrl);
+	protected static void checkCanceled() throws InterruptedException
+	{
+		if(Thread.interrupted())
+		{
+			throw new InterruptedException();
+		}
+	}
 
-			return jreFileArchiveFile;
+	private FilePath prepareJre(@Nullable String jdkArchivePathOrUrl) throws Exception
+	{
+		if(jdkArchivePathOrUrl != null && jdkArchivePathOrUrl.startsWith("https://"))
+		{
+			synchronized(getLock("jre:" + jdkArchivePathOrUrl))
+			{
+				FilePath downloaded = myDownloadedJres.get(jdkArchivePathOrUrl);
+				if(downloaded == null)
+				{
+					downloaded = downloadJre(jdkArchivePathOrUrl);
+					myDownloadedJres.put(jdkArchivePathOrUrl, downloaded);
+				}
+				return downloaded;
+			}
 		}
 		else
 		{
+			// path on node of generator, controller archives are copied to node before generation
 			return jdkArchivePathOrUrl == null ? null : new FilePath(new File(jdkArchivePathOrUrl));
 		}
 	}
 
+	private FilePath downloadJre(String jdkArchivePathOrUrl) throws Exception
+	{
+		JreDownloader downloader = new JreDownloader(jdkArchivePathOrUrl);
+
+		myListener.getLogger().println("JRE: downloading " + downloader.getUrl());
+
+		long start = System.nanoTime();
+		JreDownloader.Result result = myDownloadDirectory.act(downloader);
+		if(myMetrics != null)
+		{
+			myMetrics.addRemoteTime(System.nanoTime() - start);
+		}
+
+		myListener.getLogger().println("JRE: " + result.getStatus());
+
+		return myDownloadDirectory.child(result.getPath());
+	}
+
 	public void buildWindowsInstaller(FilePath workspace, String artifactName, @Nullable String jdkArchivePathOrUrl, String nsisPath, String artifactId) throws Exception
 	{
 		FilePath jdkArchivePath = prepareJre(jdkArchivePathOrUrl);
@@ -144,16 +314,31 @@ public class Generator
 		FilePath nsisDistroPath = myTargetDir.child(artifactId);
 		nsisDistroPath.mkdirs();
 
-		FilePath fileZip = getOrCreateZip(artifactName);
-
-		FilePath nsisWorkspaceDir = workspace.child(nsisPath);
-
-		nsisWorkspaceDir.copyRecursiveTo(nsisDistroPath);
+		Path nsisWorkspaceDir = Paths.get(workspace.child(nsisPath).getRemote());
+		Path sourceDir = getDistributionPath(artifactName);
+		Path targetDir = Paths.get(nsisDistroPath.getRemote());
 
-		fileZip.unzip(nsisDistroPath);
+		// inputs are staged as hard links of node local store, if it's possible
+		if(myStagingStore != null)
+		{
+			myStagingStore.stageTree(nsisWorkspaceDir, targetDir);
+			myStagingStore.stageTree(sourceDir, targetDir.resolve(sourceDir.getFileName().toString()));
+		}
+		else
+		{
+			copyTree(nsisWorkspaceDir, targetDir);
+			copyTree(sourceDir, targetDir.resolve(sourceDir.getFileName().toString()));
+		}
 
-		LocalBundledJRE bundledJRE = new LocalBundledJRE(myBuildNumber, new ArchiveStreamFactory(), jdkArchivePath, false, nsisDistroPath);
-		bundledJRE.build();
+		// all jre files are written by one call on node of installer directory
+		long jreStart = System.nanoTime();
+		FilePath filteredJre = myJreCache == null ? null : myJreCache.getFilteredJre(jdkArchivePath, false, myListener);
+		TargetMetrics jreMetrics = nsisDistroPath.act(new LocalBundledJRE.ExtractCallable(myBuildNumber, jdkArchivePath, filteredJre, artifactId));
+		if(myMetrics != null)
+		{
+			myMetrics.add(jreMetrics);
+			myMetrics.addJreTime(System.nanoTime() - jreStart);
+		}
 
 		FilePath[] nsisScripts = nsisDistroPath.list("*.nsi");
 		if(nsisScripts.length != 1)
@@ -172,83 +357,152 @@ public class Generator
 			throw new IllegalArgumentException("Failed to create installer");
 		}
 
+		if(myStagingStore != null)
+		{
+			myListener.getLogger().println("Staging: " + myStagingStore.resetStatistics());
+		}
+
 		String fileName = artifactId + ".exe";
 
 		FilePath exeFile = nsisDistroPath.child(fileName);
-		// now we move exe file to parent dir
-		exeFile.copyTo(myTargetDir.child(fileName));
+		FilePath targetFile = myTargetDir.child(fileName);
+		// now we move exe file to parent dir, checksums are computed while copying
+		try (ArtifactChecksums.ChecksumOutputStream outputStream = myChecksums.wrap(targetFile, targetFile.write()))
+		{
+			exeFile.copyTo(outputStream);
+			outputStream.commit();
+		}
 		// remove this temp dir
 		nsisDistroPath.deleteRecursive();
 	}
 
-	private FilePath getOrCreateZip(String artifactName) throws Exception
+	/**
+	 * @return Consulo (or Consulo.app) directory of distribution
+	 */
+	private FilePath getDistributionDirectory(String artifactName)
 	{
-		String zipArtifactName = artifactName + ".zip";
+		boolean mac = artifactName.contains("-mac-");
 
-		FilePath fileZip = myDistPath.child(zipArtifactName);
-		if(!fileZip.exists())
-		{
-			FilePath artifactDir = myDistPath.child(artifactName);
-			if(!artifactDir.exists())
-			{
-				throw new IllegalArgumentException(artifactDir + " not exists");
-			}
+		String childDir = mac ? "Consulo.app" : "Consulo";
 
-			boolean mac = artifactName.contains("-mac-");
+		return myDistPath.child(artifactName).child(childDir);
+	}
 
-			String childDir = mac ? "Consulo.app" : "Consulo";
+	/**
+	 * Generator is executed on node of workspace, see {@link GeneratorCallable} - distribution directory is read by local file api
+	 */
+	private Path getDistributionPath(String artifactName) throws IOException, InterruptedException
+	{
+		FilePath distributionDir = getDistributionDirectory(artifactName);
+		if(!distributionDir.isDirectory())
+		{
+			throw new IllegalArgumentException(distributionDir + " not exists");
+		}
+		return Paths.get(distributionDir.getRemote());
+	}
 
-			FilePath targetDir = artifactDir.child(childDir);
+	private static void copyTree(Path sourceDir, Path targetDir) throws IOException
+	{
+		Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+			{
+				Files.createDirectories(targetDir.resolve(sourceDir.relativize(dir).toString()));
+				return FileVisitResult.CONTINUE;
+			}
 
-			// make zip archive for processing - legacy processing from zip
-			targetDir.zip(fileZip);
-		}
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+			{
+				Path target = targetDir.resolve(sourceDir.relativize(file).toString());
+				if(attrs.isSymbolicLink())
+				{
+					Files.copy(file, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+					return FileVisitResult.CONTINUE;
+				}
 
-		return fileZip;
+				try (FileChannel from = FileChannel.open(file, StandardOpenOption.READ);
+					 FileChannel to = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+				{
+					long size = from.size();
+					long position = 0;
+					while(position < size)
+					{
+						position += from.transferTo(position, size - position, to);
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
 	}
 
 	public void buildDistributionInArchive(String artifactName, @Nullable String jdkArchivePathOrUrl, String path, String archiveOutType) throws Exception
+	{
+		buildDistributionInArchives(artifactName, jdkArchivePathOrUrl, Collections.singletonList(new ArchiveOutput(path, archiveOutType)));
+	}
+
+	/**
+	 * Build all outputs from one pass over distribution and jre archives
+	 */
+	public void buildDistributionInArchives(String artifactName, @Nullable String jdkArchivePathOrUrl, List<ArchiveOutput> outputs) throws Exception
 	{
 		FilePath jdkArchivePath = prepareJre(jdkArchivePathOrUrl);
 
-		myListener.getLogger().println("Build: " + path);
+		myListener.getLogger().println("Build: " + outputs.stream().map(ArchiveOutput::getPath).collect(Collectors.joining(", ")));
 
 		ArchiveStreamFactory factory = new ArchiveStreamFactory();
 
-		FilePath fileZip = getOrCreateZip(artifactName);
-
-		final List<String> executables = Arrays.asList(ourExecutable);
-
-		try (OutputStream pathStream = createOutputStream(archiveOutType, path))
+		List<ArchiveSink> sinks = new ArrayList<>(outputs.size());
+		try
 		{
-			ArchiveOutputStream archiveOutputStream = factory.createArchiveOutputStream(archiveOutType, pathStream);
-			if(archiveOutputStream instanceof TarArchiveOutputStream)
+			for(ArchiveOutput output : outputs)
 			{
-				((TarArchiveOutputStream) archiveOutputStream).setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+				sinks.add(createSink(output, factory));
 			}
 
-			// move Consulo to archive, and change permissions
-			try (InputStream is = fileZip.read())
+			// move Consulo to archive, and change permissions. Entries are read, converted and written by different threads, if pipeline is enabled
+			try (DirectoryArchiveInputStream ais = new DirectoryArchiveInputStream(getDistributionPath(artifactName));
+				 EntryPipeline pipeline = myPipelineExecutor == null ? null : new EntryPipeline(sinks, myPipelineExecutor, myOptions.getCompressionThreads() * 4, myMetrics))
 			{
-				try (ArchiveInputStream ais = factory.createArchiveInputStream(ArchiveStreamFactory.ZIP, is))
+				ArchiveEntry tempEntry = ais.getNextEntry();
+				while(tempEntry != null)
 				{
-					ArchiveEntry tempEntry = ais.getNextEntry();
-					while(tempEntry != null)
-					{
-						final ArchiveEntryWrapper<? extends ArchiveEntry> newEntry = createEntry(archiveOutType, tempEntry.getName(), tempEntry);
+					checkCanceled();
+
+					EntryRules.Match match = myEntryRules.match(tempEntry.getName(), tempEntry.isDirectory());
+
+					final ArchiveEntryWrapper.Multi newEntry = ArchiveSink.createEntry(sinks, match.getName(), tempEntry);
 
-						newEntry.setMode(extractMode(tempEntry));
-						newEntry.setTime(tempEntry.getLastModifiedDate().getTime());
+					int mode = match.getMode(extractMode(tempEntry));
+					if(!tempEntry.isDirectory() && ourExecutableDetector.matches(tempEntry.getName()))
+					{
+						mode = 0b111_101_101;
+					}
 
-						if(executables.contains(tempEntry.getName()))
-						{
-							newEntry.setMode(0b111_101_101);
-						}
+					newEntry.setMode(mode);
+					newEntry.setTime(tempEntry.getLastModifiedDate().getTime());
 
-						copyEntry(archiveOutputStream, ais, tempEntry, newEntry);
+					if(pipeline != null)
+					{
+						pipeline.submit(ais, tempEntry, newEntry, ourExecutableDetector, mode, match.isConvertLineEnds());
+					}
+					else
+					{
+						ArchiveSink.copyEntry(sinks, ais, tempEntry, newEntry, ourExecutableDetector, mode, match.isConvertLineEnds());
+					}
 
-						tempEntry = ais.getNextEntry();
+					if(myMetrics != null && !tempEntry.isDirectory())
+					{
+						myMetrics.addBytesRead(tempEntry.getSize());
 					}
+
+					tempEntry = ais.getNextEntry();
+				}
+
+				if(pipeline != null)
+				{
+					pipeline.finish();
 				}
 			}
 
@@ -256,18 +510,57 @@ public class Generator
 			if(jdkArchivePath != null)
 			{
 				boolean mac = artifactName.contains("-mac-");
-				buildBundledJRE(jdkArchivePath, factory, archiveOutType, archiveOutputStream, mac);
+				buildBundledJRE(jdkArchivePath, factory, sinks, mac);
+			}
+
+			for(ArchiveSink sink : sinks)
+			{
+				sink.finish();
+			}
+		}
+		finally
+		{
+			for(ArchiveSink sink : sinks)
+			{
+				sink.close();
 			}
+		}
 
-			archiveOutputStream.finish();
+		if(myMetrics != null)
+		{
+			for(ArchiveOutput output : outputs)
+			{
+				myMetrics.addBytesWritten(myTargetDir.child(getOutputFileName(output.getType(), output.getPath())).length());
+			}
 		}
 	}
 
-	protected void buildBundledJRE(FilePath jdkArchivePath, ArchiveStreamFactory factory, String archiveOutType, ArchiveOutputStream archiveOutputStream, boolean mac) throws Exception
+	protected void buildBundledJRE(FilePath jdkArchivePath, ArchiveStreamFactory factory, List<ArchiveSink> sinks, boolean mac) throws Exception
 	{
-		BundledJRE bundledJRE = new ArchivedBundledJRE(myBuildNumber, factory, jdkArchivePath, mac, archiveOutType, archiveOutputStream);
+		BundledJRE<?> bundledJRE = new ArchivedBundledJRE(myBuildNumber, factory, jdkArchivePath, mac, sinks);
 
-		bundledJRE.build();
+		buildBundledJRE(bundledJRE, jdkArchivePath, mac);
+	}
+
+	private void buildBundledJRE(BundledJRE<?> bundledJRE, FilePath jdkArchivePath, boolean mac) throws Exception
+	{
+		long start = System.nanoTime();
+
+		bundledJRE.setMetrics(myMetrics);
+		bundledJRE.setArena(myArena);
+		if(myJreCache != null)
+		{
+			bundledJRE.replay(myJreCache.getFilteredJre(jdkArchivePath, mac, myListener));
+		}
+		else
+		{
+			bundledJRE.build();
+		}
+
+		if(myMetrics != null)
+		{
+			myMetrics.addJreTime(System.nanoTime() - start);
+		}
 	}
 
 	protected static int extractMode(ArchiveEntry entry)
@@ -279,89 +572,196 @@ public class Generator
 		return entry.isDirectory() ? TarArchiveEntry.DEFAULT_DIR_MODE : TarArchiveEntry.DEFAULT_FILE_MODE;
 	}
 
-	protected static void copyEntry(ArchiveOutputStream archiveOutputStream, ArchiveInputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends ArchiveEntry> newEntry) throws IOException
+	protected ArchiveSink createSink(ArchiveOutput output, ArchiveStreamFactory factory) throws Exception
 	{
-		byte[] data = null;
-		if(!tempEntry.isDirectory())
-		{
-			try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream())
-			{
-				IOUtils.copy(ais, byteStream);
-				data = byteStream.toByteArray();
-			}
+		FilePath file = myTargetDir.child(getOutputFileName(output.getType(), output.getPath()));
+		ArtifactChecksums.ChecksumOutputStream checksumStream = myChecksums.wrap(file, file.write());
+		OutputStream outputStream = createOutputStream(output.getType(), output.getPath(), checksumStream);
 
-			// change line breaks
-			try (ByteArrayOutputStream stream = new ByteArrayOutputStream())
-			{
-				if(LineEnds.convert(new ByteArrayInputStream(data), stream, LineEnds.STYLE_UNIX))
-				{
-					data = stream.toByteArray();
-				}
-			}
-			catch(BinaryDataException ignored)
-			{
-				// ignore binary data
-			}
+		ArchiveSink sink;
+		if(output.getType().equals(ArchiveStreamFactory.ZIP) && myCompressionExecutor != null)
+		{
+			// zip entries are compressed by shared threads, same as gzip blocks
+			int threads = myOptions.getCompressionThreads();
+			sink = new ArchiveSink(output, outputStream, new ParallelZipOutputStream(outputStream, Deflater.DEFAULT_COMPRESSION, myOptions.getGzipBlockSize(), myCompressionExecutor, threads * 2, myArena));
 		}
-
-		if(data != null)
+		else
 		{
-			newEntry.setSize(data.length);
+			sink = new ArchiveSink(output, outputStream, factory);
 		}
+		sink.setEntryCache(myEntryCache);
+		sink.setMetrics(myMetrics);
+		sink.setArena(myArena);
+		sink.setChecksumStream(checksumStream);
+		sink.setReproducible(myOptions.isReproducible());
+		return sink;
+	}
 
-		archiveOutputStream.putArchiveEntry(newEntry.getItem());
-
-		if(data != null)
+	protected OutputStream createOutputStream(String type, String prefix, OutputStream fileStream) throws Exception
+	{
+		if(type.equals(ArchiveStreamFactory.TAR))
 		{
-			IOUtils.copy(new ByteArrayInputStream(data), archiveOutputStream);
+			OutputCodec.Choice choice = myOptions.getCodec(prefix);
+			// only gzip use shared threads
+			ExecutorService executor = choice.getCodec() == OutputCodec.GZIP ? myCompressionExecutor : null;
+			return choice.getCodec().compress(fileStream, choice.getLevel(), myOptions, executor);
 		}
-
-		archiveOutputStream.closeArchiveEntry();
+		return fileStream;
 	}
 
-	protected ArchiveEntryWrapper<? extends ArchiveEntry> createEntry(String type, String name, ArchiveEntry tempEntry)
+	public String getOutputFileName(String type, String prefix)
 	{
-		name = replaceBuildDirectory(name);
-
-		if(type.equals(ArchiveStreamFactory.TAR))
+		if(type.equals(ArchiveStreamFactory.ZIP))
 		{
-			return new ArchiveEntryWrapper.Tar(name, tempEntry);
+			return prefix + ".zip";
+		}
+		else if(type.equals(ArchiveStreamFactory.TAR))
+		{
+			return prefix + ".tar." + myOptions.getCodec(prefix).getCodec().getExtension();
+		}
+		else
+		{
+			throw new IllegalArgumentException(type);
 		}
-		return new ArchiveEntryWrapper.Zip(name);
 	}
 
-	protected String replaceBuildDirectory(String entryName)
+	/**
+	 * Measure all codecs on tar outputs, and write report to target directory. Report is not deployed, since it's not started with <code>consulo.dist.</code>
+	 */
+	public void buildCodecReport(List<ArchiveOutput> outputs) throws Exception
 	{
-		if(entryName.contains(ourBuildSNAPSHOT))
+		CodecReport report = new CodecReport(myOptions, myCompressionExecutor, myListener);
+		for(ArchiveOutput output : outputs)
 		{
-			return entryName.replace(ourBuildSNAPSHOT, "build" + myBuildNumber);
+			if(!output.getType().equals(ArchiveStreamFactory.TAR))
+			{
+				continue;
+			}
+
+			FilePath artifact = myTargetDir.child(getOutputFileName(output.getType(), output.getPath()));
+			report.measure(artifact, output.getPath(), myOptions.getCodec(output.getPath()).getCodec());
 		}
-		return entryName;
+
+		report.write(myTargetDir.child("codec-report.txt"));
 	}
 
-	protected OutputStream createOutputStream(String type, String prefix) throws Exception
+	/**
+	 * Build delta packages of outputs against outputs of previous build, see {@link DeltaPackageBuilder}
+	 *
+	 * @param previousDirectory   directory with outputs of previous build, see {@link #savePreviousArtifacts(FilePath, List)}
+	 * @param expectedBuildNumber number of previous successful build, or -1 if there no such build
+	 */
+	public void buildDeltaPackages(FilePath previousDirectory, int expectedBuildNumber, List<ArchiveOutput> outputs) throws Exception
 	{
-		final String fileName;
-		if(type.equals(ArchiveStreamFactory.ZIP))
+		FilePath marker = previousDirectory.child(DeltaPackageBuilder.BUILD_MARKER);
+		if(!marker.exists())
 		{
-			fileName = prefix + ".zip";
+			myListener.getLogger().println("Delta: no outputs of previous build");
+			return;
 		}
-		else if(type.equals(ArchiveStreamFactory.TAR))
+
+		int previousBuild = Integer.parseInt(marker.readToString().trim());
+		if(previousBuild != expectedBuildNumber)
 		{
-			fileName = prefix + ".tar.gz";
+			// outputs of failed build, or build of other workspace - they are not deployed
+			myListener.getLogger().println("Delta: outputs of build #" + previousBuild + " are not outputs of previous successful build" +
+					(expectedBuildNumber == -1 ? "" : " #" + expectedBuildNumber) + ", skipped");
+			return;
 		}
-		else
+
+		DeltaPackageBuilder builder = new DeltaPackageBuilder();
+		builder.setArena(myArena);
+		for(ArchiveOutput output : outputs)
 		{
-			throw new IllegalArgumentException(type);
+			checkCanceled();
+
+			String fileName = getOutputFileName(output.getType(), output.getPath());
+
+			FilePath previousArtifact = findPreviousArtifact(previousDirectory, output);
+			if(previousArtifact == null)
+			{
+				myListener.getLogger().println("Delta: " + fileName + " not exists in build #" + previousBuild);
+				continue;
+			}
+
+			FilePath deltaFile = myTargetDir.child(DeltaPackageBuilder.getDeltaFileName(fileName, previousBuild));
+
+			DeltaManifest manifest;
+			try (ArtifactChecksums.ChecksumOutputStream deltaOutput = myChecksums.wrap(deltaFile, deltaFile.write()))
+			{
+				manifest = builder.build(previousArtifact, previousBuild, myTargetDir.child(fileName), myBuildNumber, deltaOutput);
+				deltaOutput.commit();
+			}
+
+			myListener.getLogger().println("Delta: " + deltaFile.getName() + " - " +
+					manifest.count(DeltaManifest.ADD) + " added, " +
+					manifest.count(DeltaManifest.PATCH) + " patched, " +
+					manifest.count(DeltaManifest.REMOVE) + " removed, " +
+					deltaFile.length() / 1024 + " KB");
 		}
+	}
 
-		FilePath child = myTargetDir.child(fileName);
+	/**
+	 * Replace outputs of previous build by outputs of this build - they are base of delta packages of next build. Files are hard links
+	 * of outputs if it's possible, outputs are not changed in place
+	 */
+	public void savePreviousArtifacts(FilePath previousDirectory, List<ArchiveOutput> outputs) throws IOException, InterruptedException
+	{
+		previousDirectory.deleteRecursive();
+		previousDirectory.mkdirs();
 
-		final OutputStream outputStream = child.write();
-		if(type.equals(ArchiveStreamFactory.TAR))
+		for(ArchiveOutput output : outputs)
 		{
-			return new GzipCompressorOutputStream(outputStream);
+			String fileName = getOutputFileName(output.getType(), output.getPath());
+
+			FilePath artifact = myTargetDir.child(fileName);
+			if(!artifact.exists())
+			{
+				continue;
+			}
+
+			Path source = Paths.get(artifact.getRemote());
+			Path target = Paths.get(previousDirectory.child(fileName).getRemote());
+			try
+			{
+				Files.createLink(target, source);
+			}
+			catch(UnsupportedOperationException | FileSystemException e)
+			{
+				Files.copy(source, target);
+			}
+		}
+
+		// written last - directory contains all outputs
+		previousDirectory.child(DeltaPackageBuilder.BUILD_MARKER).write(String.valueOf(myBuildNumber), "UTF-8");
+	}
+
+	/**
+	 * Write checksum manifests of all outputs, installers and delta packages to target directory, see {@link ArtifactChecksums}
+	 */
+	public void writeChecksums() throws IOException, InterruptedException
+	{
+		myChecksums.writeManifests(myTargetDir);
+	}
+
+	@Nullable
+	private static FilePath findPreviousArtifact(FilePath previousDirectory, ArchiveOutput output) throws IOException, InterruptedException
+	{
+		if(output.getType().equals(ArchiveStreamFactory.ZIP))
+		{
+			FilePath zip = previousDirectory.child(output.getPath() + ".zip");
+			return zip.exists() ? zip : null;
+		}
+
+		// codec of output can be changed since previous build
+		for(OutputCodec codec : OutputCodec.values())
+		{
+			FilePath tar = previousDirectory.child(output.getPath() + ".tar." + codec.getExtension());
+			if(tar.exists())
+			{
+				return tar;
+			}
 		}
-		return outputStream;
+		return null;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.FilePath;
+import hudson.model.BuildListener;
+import hudson.remoting.VirtualChannel;
+import jakarta.annotation.Nullable;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.consulo.postBuild.consuloArtifactTask.delta.DeltaPackageBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Whole generation plan, which is executed on node of workspace. Distribution, jre archives and outputs are read and written
+ * by local file api of node - only build log and {@link GeneratorResult} are sent over remoting channel.
+ * <p>
+ * Paths are relative to workspace, except cache directory, which is absolute path on node
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class GeneratorCallable extends MasterToSlaveFileCallable<GeneratorResult>
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String myDistPath;
+	private final String myTargetPath;
+	private final String myJrePath;
+	@Nullable
+	private final String myCacheDirectory;
+	@Nullable
+	private final String myPreviousArtifactsPath;
+	private final int myPreviousBuildNumber;
+	private final int myBuildNumber;
+	private final int myThreadCount;
+	private final GeneratorOptions myOptions;
+	private final List<GeneratorTarget> myTargets;
+	private final BuildListener myListener;
+
+	/**
+	 * @param previousArtifactsPath directory with outputs of previous build, if not null - delta packages are built, see {@link DeltaPackageBuilder}.
+	 *                              Outputs of this build are saved to it
+	 * @param previousBuildNumber   number of previous successful build, or -1. Delta packages are built only if directory contains outputs of this build
+	 */
+	public GeneratorCallable(String distPath,
+							 String targetPath,
+							 String jrePath,
+							 @Nullable String cacheDirectory,
+							 @Nullable String previousArtifactsPath,
+							 int previousBuildNumber,
+							 int buildNumber,
+							 int threadCount,
+							 GeneratorOptions options,
+							 List<GeneratorTarget> targets,
+							 BuildListener listener)
+	{
+		myDistPath = distPath;
+		myTargetPath = targetPath;
+		myJrePath = jrePath;
+		myCacheDirectory = cacheDirectory;
+		myPreviousArtifactsPath = previousArtifactsPath;
+		myPreviousBuildNumber = previousBuildNumber;
+		myBuildNumber = buildNumber;
+		myThreadCount = threadCount;
+		myOptions = options;
+		myTargets = new ArrayList<>(targets);
+		myListener = listener;
+	}
+
+	@Override
+	public GeneratorResult invoke(File f, VirtualChannel channel) throws IOException, InterruptedException
+	{
+		long start = System.currentTimeMillis();
+
+		FilePath workspace = new FilePath(f);
+		FilePath targetDir = workspace.child(myTargetPath);
+		FilePath cacheDirectory = myCacheDirectory == null ? null : new FilePath(new File(myCacheDirectory));
+
+		GeneratorResult result = new GeneratorResult();
+
+		Generator generator = new Generator(workspace.child(myDistPath), targetDir, workspace.child(myJrePath), cacheDirectory, myBuildNumber, myOptions, myListener);
+		try
+		{
+			result.addTargetMetrics(new GeneratorExecutor(generator, myThreadCount, myListener).run(myTargets));
+
+			List<ArchiveOutput> outputs = new ArrayList<>();
+			for(GeneratorTarget target : myTargets)
+			{
+				if(target instanceof GeneratorTarget.Archive)
+				{
+					outputs.addAll(((GeneratorTarget.Archive) target).getOutputs());
+				}
+			}
+
+			if(myOptions.isCodecReport())
+			{
+				generator.buildCodecReport(outputs);
+			}
+
+			if(myPreviousArtifactsPath != null)
+			{
+				FilePath previousDirectory = workspace.child(myPreviousArtifactsPath);
+
+				generator.buildDeltaPackages(previousDirectory, myPreviousBuildNumber, outputs);
+
+				generator.savePreviousArtifacts(previousDirectory, outputs);
+			}
+
+			generator.writeChecksums();
+		}
+		catch(InterruptedException | IOException e)
+		{
+			throw e;
+		}
+		catch(Exception e)
+		{
+			throw new IOException(e);
+		}
+		finally
+		{
+			generator.close();
+		}
+
+		for(FilePath file : targetDir.list())
+		{
+			if(!file.isDirectory() && !ArtifactChecksums.isChecksumFile(file.getName()))
+			{
+				result.addArtifact(file.getName(), file.length());
+			}
+		}
+		result.setDuration(System.currentTimeMillis() - start);
+		return result;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.model.BuildListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run {@link GeneratorTarget}s on worker pool. First failed target cancel all others
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class GeneratorExecutor
+{
+	private final Generator myGenerator;
+	private final int myThreadCount;
+	private final BuildListener myListener;
+
+	public GeneratorExecutor(Generator generator, int threadCount, BuildListener listener)
+	{
+		myGenerator = generator;
+		myThreadCount = threadCount;
+		myListener = listener;
+	}
+
+	/**
+	 * @return metrics of targets, in order of targets
+	 */
+	public List<TargetMetrics> run(List<GeneratorTarget> targets) throws Exception
+	{
+		List<TargetMetrics> metrics = new ArrayList<>(targets.size());
+		for(GeneratorTarget target : targets)
+		{
+			metrics.add(new TargetMetrics(target.getId()));
+		}
+
+		int threadCount = Math.min(myThreadCount, targets.size());
+		if(threadCount <= 1)
+		{
+			for(int i = 0; i < targets.size(); i++)
+			{
+				long start = System.nanoTime();
+				targets.get(i).build(myGenerator.forTarget(myListener, metrics.get(i)));
+				metrics.get(i).setWallTime(System.nanoTime() - start);
+			}
+			return metrics;
+		}
+
+		myListener.getLogger().println("Build: " + targets.size() + " targets, using " + threadCount + " threads");
+
+		AtomicInteger threadIndex = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, r ->
+		{
+			Thread thread = new Thread(r, "Consulo Artifact Generator #" + threadIndex.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		CompletionService<GeneratorTarget> completionService = new ExecutorCompletionService<>(executor);
+		List<Future<GeneratorTarget>> futures = new ArrayList<>(targets.size());
+		try
+		{
+			for(int i = 0; i < targets.size(); i++)
+			{
+				GeneratorTarget target = targets.get(i);
+				TargetMetrics targetMetrics = metrics.get(i);
+				futures.add(completionService.submit(() -> buildTarget(target, targetMetrics)));
+			}
+
+			for(int i = 0; i < futures.size(); i++)
+			{
+				Future<GeneratorTarget> future = completionService.take();
+				try
+				{
+					future.get();
+				}
+				catch(ExecutionException e)
+				{
+					Throwable cause = e.getCause();
+					if(cause instanceof Exception)
+					{
+						throw (Exception) cause;
+					}
+					throw e;
+				}
+			}
+		}
+		finally
+		{
+			// fail fast - if some target failed (or build aborted), there no reason to continue others
+			for(Future<GeneratorTarget> future : futures)
+			{
+				future.cancel(true);
+			}
+
+			executor.shutdownNow();
+
+			if(!executor.awaitTermination(1, TimeUnit.MINUTES))
+			{
+				myListener.getLogger().println("Build: some targets are not stopped after cancellation");
+			}
+		}
+		return metrics;
+	}
+
+	private GeneratorTarget buildTarget(GeneratorTarget target, TargetMetrics metrics) throws Exception
+	{
+		PrefixedBuildListener listener = new PrefixedBuildListener(myListener, target.getId());
+		long start = System.nanoTime();
+		try
+		{
+			target.build(myGenerator.forTarget(listener, metrics));
+			return target;
+		}
+		catch(Exception e)
+		{
+			if(!(e instanceof InterruptedException))
+			{
+				listener.getLogger().println("Failed: " + e);
+			}
+			throw e;
+		}
+		finally
+		{
+			metrics.setWallTime(System.nanoTime() - start);
+			listener.finish();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jakarta.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Tuning of {@link Generator} output
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class GeneratorOptions implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private int myCompressionThreads;
+	private int myGzipBlockSize = 128 * 1024;
+	private int myGzipLevel = Deflater.DEFAULT_COMPRESSION;
+
+	private OutputCodec.Choice myDefaultCodec = new OutputCodec.Choice(OutputCodec.GZIP, OutputCodec.DEFAULT_LEVEL);
+	private final Map<String, OutputCodec.Choice> myCodecs = new LinkedHashMap<>();
+	private boolean myCodecReport;
+	private long myEntryCacheSize = 2048L * 1024 * 1024;
+	private long myStagingMemory = 256L * 1024 * 1024;
+	private long myStagingSpillThreshold = 32L * 1024 * 1024;
+	private boolean myReproducible;
+
+	/**
+	 * @return count of threads which compress outputs (gzip blocks, zstd workers or zip entries) and transform distribution entries, see {@link EntryPipeline}.
+	 * If less than 2 - output is written by one thread
+	 */
+	public int getCompressionThreads()
+	{
+		return myCompressionThreads;
+	}
+
+	public void setCompressionThreads(int compressionThreads)
+	{
+		myCompressionThreads = compressionThreads;
+	}
+
+	/**
+	 * @return size of block which is compressed by one thread, used by gzip and zip outputs
+	 */
+	public int getGzipBlockSize()
+	{
+		return myGzipBlockSize;
+	}
+
+	public void setGzipBlockSize(int gzipBlockSize)
+	{
+		myGzipBlockSize = gzipBlockSize;
+	}
+
+	public int getGzipLevel()
+	{
+		return myGzipLevel;
+	}
+
+	public void setGzipLevel(int gzipLevel)
+	{
+		myGzipLevel = gzipLevel;
+	}
+
+	public OutputCodec.Choice getCodec(String outputPath)
+	{
+		return myCodecs.getOrDefault(outputPath, myDefaultCodec);
+	}
+
+	/**
+	 * Parse codecs of tar outputs, one per line: <code>outputPath=codec[:level]</code>. Output path <code>*</code> change codec for all other outputs.
+	 * <p>
+	 * Example:
+	 * <pre>
+	 * *=gzip:9
+	 * consulo.dist.linux64=xz
+	 * consulo.dist.mac64=zstd:19
+	 * </pre>
+	 */
+	public void setCodecs(@Nullable String text)
+	{
+		myCodecs.clear();
+		if(text == null)
+		{
+			return;
+		}
+
+		for(String line : text.split("\\R"))
+		{
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#"))
+			{
+				continue;
+			}
+
+			int eq = line.indexOf('=');
+			if(eq == -1)
+			{
+				throw new IllegalArgumentException("Expected 'outputPath=codec[:level]': " + line);
+			}
+
+			String outputPath = line.substring(0, eq).trim();
+			OutputCodec.Choice choice = OutputCodec.Choice.parse(line.substring(eq + 1));
+			if(outputPath.equals("*"))
+			{
+				myDefaultCodec = choice;
+			}
+			else
+			{
+				myCodecs.put(outputPath, choice);
+			}
+		}
+	}
+
+	/**
+	 * @return true if all tar outputs must be measured with every codec, see {@link CodecReport}
+	 */
+	public boolean isCodecReport()
+	{
+		return myCodecReport;
+	}
+
+	public void setCodecReport(boolean codecReport)
+	{
+		myCodecReport = codecReport;
+	}
+
+	/**
+	 * @return max size of node local cache of deflated zip entries, see {@link CompressedEntryCache}
+	 */
+	public long getEntryCacheSize()
+	{
+		return myEntryCacheSize;
+	}
+
+	public void setEntryCacheSize(long entryCacheSize)
+	{
+		myEntryCacheSize = entryCacheSize;
+	}
+
+	/**
+	 * @return max size of direct buffers for staging of entry data, see {@link BufferArena}
+	 */
+	public long getStagingMemory()
+	{
+		return myStagingMemory;
+	}
+
+	public void setStagingMemory(long stagingMemory)
+	{
+		myStagingMemory = stagingMemory;
+	}
+
+	/**
+	 * @return size of entry data, above which data is staged in memory mapped temp file
+	 */
+	public long getStagingSpillThreshold()
+	{
+		return myStagingSpillThreshold;
+	}
+
+	public void setStagingSpillThreshold(long stagingSpillThreshold)
+	{
+		myStagingSpillThreshold = stagingSpillThreshold;
+	}
+
+	/**
+	 * @return true if outputs must not depend on time of build and file system - identical inputs give identical outputs.
+	 * Entry times are {@link ArchiveSink#REPRODUCIBLE_TIME}, tar owner is root, source entries are read in order of names
+	 */
+	public boolean isReproducible()
+	{
+		return myReproducible;
+	}
+
+	public void setReproducible(boolean reproducible)
+	{
+		myReproducible = reproducible;
+	}
+}
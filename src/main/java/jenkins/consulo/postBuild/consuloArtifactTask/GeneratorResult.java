@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of {@link GeneratorCallable}, which is sent back to controller
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public final class GeneratorResult implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	public static final class Artifact implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String myFileName;
+		private final long mySize;
+
+		public Artifact(String fileName, long size)
+		{
+			myFileName = fileName;
+			mySize = size;
+		}
+
+		public String getFileName()
+		{
+			return myFileName;
+		}
+
+		public long getSize()
+		{
+			return mySize;
+		}
+	}
+
+	private final List<Artifact> myArtifacts = new ArrayList<>();
+	private final List<TargetMetrics> myTargetMetrics = new ArrayList<>();
+	private long myDuration;
+
+	public void addArtifact(String fileName, long size)
+	{
+		myArtifacts.add(new Artifact(fileName, size));
+	}
+
+	public List<Artifact> getArtifacts()
+	{
+		return Collections.unmodifiableList(myArtifacts);
+	}
+
+	public void addTargetMetrics(List<TargetMetrics> metrics)
+	{
+		myTargetMetrics.addAll(metrics);
+	}
+
+	public List<TargetMetrics> getTargetMetrics()
+	{
+		return Collections.unmodifiableList(myTargetMetrics);
+	}
+
+	/**
+	 * @return time of generation on node in milliseconds
+	 */
+	public long getDuration()
+	{
+		return myDuration;
+	}
+
+	public void setDuration(long duration)
+	{
+		myDuration = duration;
+	}
+
+	public long getTotalSize()
+	{
+		long size = 0;
+		for(Artifact artifact : myArtifacts)
+		{
+			size += artifact.getSize();
+		}
+		return size;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.FilePath;
+import jakarta.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * One independent output of {@link Generator}. Targets do not share output files, and can be built in any order.
+ * Targets are serialized to node of workspace, see {@link GeneratorCallable}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public abstract class GeneratorTarget implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	public static class Archive extends GeneratorTarget
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String myArtifactName;
+		@Nullable
+		private final String myJdkArchivePathOrUrl;
+		private final List<ArchiveOutput> myOutputs;
+
+		public Archive(String artifactName, @Nullable String jdkArchivePathOrUrl, String path, String archiveOutType)
+		{
+			this(artifactName, jdkArchivePathOrUrl, new ArchiveOutput(path, archiveOutType));
+		}
+
+		/**
+		 * All outputs are written from one pass over distribution and jre
+		 */
+		public Archive(String artifactName, @Nullable String jdkArchivePathOrUrl, ArchiveOutput... outputs)
+		{
+			super(Arrays.stream(outputs).map(ArchiveOutput::getPath).collect(Collectors.joining(", ")));
+			myArtifactName = artifactName;
+			myJdkArchivePathOrUrl = jdkArchivePathOrUrl;
+			myOutputs = Arrays.asList(outputs);
+		}
+
+		public List<ArchiveOutput> getOutputs()
+		{
+			return myOutputs;
+		}
+
+		@Override
+		public void build(Generator generator) throws Exception
+		{
+			generator.buildDistributionInArchives(myArtifactName, myJdkArchivePathOrUrl, myOutputs);
+		}
+	}
+
+	public static class Installer extends GeneratorTarget
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final FilePath myWorkspace;
+		private final String myArtifactName;
+		@Nullable
+		private final String myJdkArchivePathOrUrl;
+		private final String myNsisPath;
+
+		public Installer(FilePath workspace, String artifactName, @Nullable String jdkArchivePathOrUrl, String nsisPath, String artifactId)
+		{
+			super(artifactId);
+			myWorkspace = workspace;
+			myArtifactName = artifactName;
+			myJdkArchivePathOrUrl = jdkArchivePathOrUrl;
+			myNsisPath = nsisPath;
+		}
+
+		@Override
+		public void build(Generator generator) throws Exception
+		{
+			generator.buildWindowsInstaller(myWorkspace, myArtifactName, myJdkArchivePathOrUrl, myNsisPath, myId);
+		}
+	}
+
+	protected final String myId;
+
+	protected GeneratorTarget(String id)
+	{
+		myId = id;
+	}
+
+	public String getId()
+	{
+		return myId;
+	}
+
+	public abstract void build(Generator generator) throws Exception;
+
+	@Override
+	public String toString()
+	{
+		return myId;
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Text detection and conversion of line ends to unix style. Data is text if it has no control bytes except <code>\t \n \f \r</code>.
+ * <code>\r\n</code> and single <code>\r</code> are replaced by <code>\n</code>.
+ * <p>
+ * Data is checked by 8 bytes words, only words with control bytes are checked byte by byte. Conversion writes parts between <code>\r</code> as is,
+ * and if data has no <code>\r</code> - it's not copied at all
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public final class LineEnds
+{
+	/**
+	 * Text check of data, which can be split to blocks
+	 */
+	public static final class Scanner
+	{
+		private boolean myBinary;
+		private boolean myPendingCR;
+		private boolean myHasCR;
+		private long myCRLFCount;
+
+		/**
+		 * @return false if data is binary. Next blocks must not be checked after it
+		 */
+		public boolean scan(byte[] data, int offset, int length)
+		{
+			int end = offset + length;
+			int i = offset;
+			while(i + 8 <= end)
+			{
+				long word = (long) ourLongView.get(data, i);
+				if(hasByteLessThanSpace(word))
+				{
+					for(int j = i; j < i + 8; j++)
+					{
+						if(!scanByte(data[j]))
+						{
+							return false;
+						}
+					}
+				}
+				else
+				{
+					myPendingCR = false;
+				}
+				i += 8;
+			}
+
+			for(; i < end; i++)
+			{
+				if(!scanByte(data[i]))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean scanByte(byte b)
+		{
+			if(b == '\n')
+			{
+				if(myPendingCR)
+				{
+					myCRLFCount++;
+					myPendingCR = false;
+				}
+			}
+			else if(b == '\r')
+			{
+				myHasCR = true;
+				myPendingCR = true;
+			}
+			else
+			{
+				if((b & 0xFF) < ' ' && b != '\t' && b != '\f')
+				{
+					myBinary = true;
+					return false;
+				}
+				myPendingCR = false;
+			}
+			return true;
+		}
+
+		public boolean isBinary()
+		{
+			return myBinary;
+		}
+
+		/**
+		 * @return true if text will be changed by conversion
+		 */
+		public boolean hasCR()
+		{
+			return myHasCR;
+		}
+
+		/**
+		 * @return size of text after conversion
+		 */
+		public long getConvertedSize(long size)
+		{
+			return size - myCRLFCount;
+		}
+	}
+
+	/**
+	 * Conversion of text, which can be split to blocks
+	 */
+	public static final class Converter
+	{
+		private boolean myPendingCR;
+
+		public void convert(byte[] data, int offset, int length, OutputStream out) throws IOException
+		{
+			int end = offset + length;
+			int i = offset;
+			if(myPendingCR)
+			{
+				// \n for \r is already written
+				myPendingCR = false;
+				if(i < end && data[i] == '\n')
+				{
+					i++;
+				}
+			}
+
+			int start = i;
+			while(true)
+			{
+				i = indexOfCR(data, i, end);
+				if(i == end)
+				{
+					break;
+				}
+
+				out.write(data, start, i - start);
+				out.write('\n');
+
+				i++;
+				if(i == end)
+				{
+					myPendingCR = true;
+				}
+				else if(data[i] == '\n')
+				{
+					i++;
+				}
+				start = i;
+			}
+
+			if(end > start)
+			{
+				out.write(data, start, end - start);
+			}
+		}
+	}
+
+	private static final VarHandle ourLongView = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final long ourOnes = 0x0101010101010101L;
+	private static final long ourHighBits = 0x8080808080808080L;
+	private static final long ourCRs = ourOnes * '\r';
+	private static final long ourSpaces = ourOnes * ' ';
+
+	private LineEnds()
+	{
+	}
+
+	/**
+	 * @return true if data is text, see {@link Scanner}
+	 */
+	public static boolean isText(byte[] data, int offset, int length)
+	{
+		return new Scanner().scan(data, offset, length);
+	}
+
+	private static int indexOfCR(byte[] data, int from, int end)
+	{
+		int i = from;
+		while(i + 8 <= end)
+		{
+			long word = (long) ourLongView.get(data, i) ^ ourCRs;
+			long zeros = (word - ourOnes) & ~word & ourHighBits;
+			if(zeros != 0)
+			{
+				return i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+			}
+			i += 8;
+		}
+
+		for(; i < end; i++)
+		{
+			if(data[i] == '\r')
+			{
+				return i;
+			}
+		}
+		return end;
+	}
+
+	private static boolean hasByteLessThanSpace(long word)
+	{
+		return ((word - ourSpaces) & ~word & ourHighBits) != 0;
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.annotation.Nullable;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Compression of tar outputs
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public enum OutputCodec
+{
+	GZIP("gz", 1, 9)
+		{
+			@Override
+			public OutputStream compress(OutputStream out, int level, GeneratorOptions options, @Nullable ExecutorService executor) throws IOException
+			{
+				GzipParameters parameters = new GzipParameters();
+				parameters.setCompressionLevel(level == DEFAULT_LEVEL ? options.getGzipLevel() : level);
+				if(options.isReproducible())
+				{
+					// zero - no time stamp
+					parameters.setModificationTime(0);
+				}
+
+				if(executor != null)
+				{
+					return new ParallelGzipOutputStream(out, parameters, options.getGzipBlockSize(), executor, options.getCompressionThreads() * 2);
+				}
+				return new GzipCompressorOutputStream(out, parameters);
+			}
+
+			@Override
+			public InputStream decompress(InputStream in) throws IOException
+			{
+				return new GzipCompressorInputStream(in, true);
+			}
+		},
+	ZSTD("zst", 1, 19)
+		{
+			@Override
+			public OutputStream compress(OutputStream out, int level, GeneratorOptions options, @Nullable ExecutorService executor) throws IOException
+			{
+				ZstdOutputStream stream = new ZstdOutputStream(out, level == DEFAULT_LEVEL ? 9 : level);
+				stream.setChecksum(true);
+				// zstd uses own native threads
+				if(options.getCompressionThreads() > 1)
+				{
+					stream.setWorkers(options.getCompressionThreads());
+				}
+				return stream;
+			}
+
+			@Override
+			public InputStream decompress(InputStream in) throws IOException
+			{
+				return new ZstdCompressorInputStream(in);
+			}
+		},
+	XZ("xz", 0, 9)
+		{
+			@Override
+			public OutputStream compress(OutputStream out, int level, GeneratorOptions options, @Nullable ExecutorService executor) throws IOException
+			{
+				return new XZCompressorOutputStream(out, level == DEFAULT_LEVEL ? 6 : level);
+			}
+
+			@Override
+			public InputStream decompress(InputStream in) throws IOException
+			{
+				return new XZCompressorInputStream(in, true);
+			}
+		};
+
+	/**
+	 * Codec with level, selected for output
+	 */
+	public static class Choice implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final OutputCodec myCodec;
+		private final int myLevel;
+
+		public Choice(OutputCodec codec, int level)
+		{
+			myCodec = codec;
+			myLevel = level;
+		}
+
+		public OutputCodec getCodec()
+		{
+			return myCodec;
+		}
+
+		/**
+		 * @return level or {@link #DEFAULT_LEVEL}
+		 */
+		public int getLevel()
+		{
+			return myLevel;
+		}
+
+		/**
+		 * Parse <code>codec[:level]</code>, for example <code>zstd:19</code>
+		 */
+		public static Choice parse(String text)
+		{
+			String codecText = text.trim();
+			int level = DEFAULT_LEVEL;
+
+			int colon = codecText.indexOf(':');
+			if(colon != -1)
+			{
+				try
+				{
+					level = Integer.parseInt(codecText.substring(colon + 1).trim());
+				}
+				catch(NumberFormatException e)
+				{
+					throw new IllegalArgumentException("Wrong level: " + text);
+				}
+				codecText = codecText.substring(0, colon).trim();
+			}
+
+			OutputCodec codec = find(codecText);
+			if(level != DEFAULT_LEVEL && (level < codec.getMinLevel() || level > codec.getMaxLevel()))
+			{
+				throw new IllegalArgumentException("Level of " + codec.getId() + " must be in range " + codec.getMinLevel() + ".." + codec.getMaxLevel() + ": " + text);
+			}
+			return new Choice(codec, level);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(this == o)
+			{
+				return true;
+			}
+			if(o == null || getClass() != o.getClass())
+			{
+				return false;
+			}
+			Choice choice = (Choice) o;
+			return myLevel == choice.myLevel && myCodec == choice.myCodec;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * myCodec.hashCode() + myLevel;
+		}
+
+		@Override
+		public String toString()
+		{
+			return myLevel == DEFAULT_LEVEL ? myCodec.getId() : myCodec.getId() + ":" + myLevel;
+		}
+	}
+
+	public static final int DEFAULT_LEVEL = -1;
+
+	private final String myExtension;
+	private final int myMinLevel;
+	private final int myMaxLevel;
+
+	OutputCodec(String extension, int minLevel, int maxLevel)
+	{
+		myExtension = extension;
+		myMinLevel = minLevel;
+		myMaxLevel = maxLevel;
+	}
+
+	public static OutputCodec find(String id)
+	{
+		for(OutputCodec codec : values())
+		{
+			if(codec.getId().equals(id.toLowerCase(Locale.ROOT)))
+			{
+				return codec;
+			}
+		}
+		throw new IllegalArgumentException("Unknown codec: " + id);
+	}
+
+	/**
+	 * @param fileName name of tar output, for example <code>consulo.dist.linux64.tar.gz</code>
+	 * @return codec of file, or null if it's not compressed tar
+	 */
+	@Nullable
+	public static OutputCodec findByFileName(String fileName)
+	{
+		for(OutputCodec codec : values())
+		{
+			if(fileName.endsWith(".tar." + codec.getExtension()))
+			{
+				return codec;
+			}
+		}
+		return null;
+	}
+
+	public String getId()
+	{
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return file extension, without <code>.tar</code>
+	 */
+	public String getExtension()
+	{
+		return myExtension;
+	}
+
+	public int getMinLevel()
+	{
+		return myMinLevel;
+	}
+
+	public int getMaxLevel()
+	{
+		return myMaxLevel;
+	}
+
+	/**
+	 * @param executor shared compression threads, or null if compression must be single threaded
+	 */
+	public abstract OutputStream compress(OutputStream out, int level, GeneratorOptions options, @Nullable ExecutorService executor) throws IOException;
+
+	public abstract InputStream decompress(InputStream in) throws IOException;
+}
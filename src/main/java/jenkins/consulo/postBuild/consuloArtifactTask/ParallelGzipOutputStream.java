@@ -0,0 +1,303 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip stream which compress fixed size blocks in parallel (same way as pigz).
+ * <p>
+ * Every block is compressed by own {@link Deflater} with last 32 KB of previous block as dictionary, and ends with sync flush,
+ * so compressed blocks can be concatenated to one deflate stream. Result is standard single member gzip file.
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ParallelGzipOutputStream extends OutputStream
+{
+	static final int ourDictionarySize = 32 * 1024;
+
+	private final OutputStream myOut;
+	private final GzipParameters myParameters;
+	private final int myBlockSize;
+	private final ExecutorService myExecutor;
+	private final int myMaxBlocksInFlight;
+	// raw deflate data, without gzip header and trailer
+	private final boolean myRaw;
+
+	private final Deque<Future<byte[]>> myBlocks = new ArrayDeque<>();
+	private final CRC32 myCrc = new CRC32();
+	private long mySize;
+
+	private byte[] myPreviousBlock;
+	private byte[] myBlock;
+	private int myBlockLength;
+
+	private boolean myFinished;
+
+	public ParallelGzipOutputStream(OutputStream out, GzipParameters parameters, int blockSize, ExecutorService executor, int maxBlocksInFlight) throws IOException
+	{
+		this(out, parameters, blockSize, executor, maxBlocksInFlight, false);
+	}
+
+	private ParallelGzipOutputStream(OutputStream out, GzipParameters parameters, int blockSize, ExecutorService executor, int maxBlocksInFlight, boolean raw) throws IOException
+	{
+		myOut = out;
+		myParameters = parameters;
+		myBlockSize = Math.max(blockSize, ourDictionarySize);
+		myExecutor = executor;
+		myMaxBlocksInFlight = Math.max(maxBlocksInFlight, 1);
+		myBlock = new byte[myBlockSize];
+		myRaw = raw;
+
+		if(!raw)
+		{
+			writeHeader();
+		}
+	}
+
+	/**
+	 * @return stream which write only deflate data, for example zip entry data
+	 */
+	public static ParallelGzipOutputStream raw(OutputStream out, int level, int blockSize, ExecutorService executor, int maxBlocksInFlight) throws IOException
+	{
+		GzipParameters parameters = new GzipParameters();
+		parameters.setCompressionLevel(level);
+		return new ParallelGzipOutputStream(out, parameters, blockSize, executor, maxBlocksInFlight, true);
+	}
+
+	private void writeHeader() throws IOException
+	{
+		int level = myParameters.getCompressionLevel();
+		long time = myParameters.getModificationTime() / 1000;
+
+		byte[] header = new byte[10];
+		header[0] = (byte) 0x1f;
+		header[1] = (byte) 0x8b;
+		header[2] = Deflater.DEFLATED;
+		header[3] = 0; // flags
+		header[4] = (byte) time;
+		header[5] = (byte) (time >> 8);
+		header[6] = (byte) (time >> 16);
+		header[7] = (byte) (time >> 24);
+		header[8] = (byte) (level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0);
+		header[9] = (byte) myParameters.getOperatingSystem();
+		myOut.write(header);
+	}
+
+	@Override
+	public void write(int b) throws IOException
+	{
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if(myFinished)
+		{
+			throw new IOException("Stream is finished");
+		}
+
+		myCrc.update(b, off, len);
+		mySize += len;
+
+		while(len > 0)
+		{
+			if(myBlockLength == myBlockSize)
+			{
+				submitBlock(false);
+			}
+
+			int count = Math.min(len, myBlockSize - myBlockLength);
+			System.arraycopy(b, off, myBlock, myBlockLength, count);
+			myBlockLength += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	private void submitBlock(boolean last) throws IOException
+	{
+		byte[] block = myBlock;
+		int length = myBlockLength;
+		byte[] dictionary = myPreviousBlock;
+		int level = myParameters.getCompressionLevel();
+
+		myBlocks.add(myExecutor.submit(() -> compressBlock(block, length, dictionary, level, last)));
+
+		myPreviousBlock = block;
+		myBlock = new byte[myBlockSize];
+		myBlockLength = 0;
+
+		// backpressure - do not keep more than limit of blocks in memory
+		while(myBlocks.size() > myMaxBlocksInFlight)
+		{
+			writeFirstBlock();
+		}
+	}
+
+	/**
+	 * @param dictionary previous block, or null for first block
+	 * @return raw deflate data, not last block ends with sync flush
+	 */
+	static byte[] compressBlock(byte[] block, int length, byte[] dictionary, int level, boolean last)
+	{
+		Deflater deflater = new Deflater(level, true);
+		try
+		{
+			if(dictionary != null)
+			{
+				deflater.setDictionary(dictionary, dictionary.length - ourDictionarySize, ourDictionarySize);
+			}
+
+			deflater.setInput(block, 0, length);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+			byte[] buffer = new byte[64 * 1024];
+			if(last)
+			{
+				deflater.finish();
+				while(!deflater.finished())
+				{
+					int count = deflater.deflate(buffer);
+					out.write(buffer, 0, count);
+				}
+			}
+			else
+			{
+				int count;
+				do
+				{
+					count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					out.write(buffer, 0, count);
+				}
+				while(count == buffer.length || !deflater.needsInput());
+			}
+			return out.toByteArray();
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	private void writeFirstBlock() throws IOException
+	{
+		Future<byte[]> future = myBlocks.poll();
+		try
+		{
+			myOut.write(future.get());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch(ExecutionException e)
+		{
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Compress rest of data and write gzip trailer, without closing underlying stream
+	 */
+	public void finish() throws IOException
+	{
+		if(myFinished)
+		{
+			return;
+		}
+
+		myFinished = true;
+		try
+		{
+			submitBlock(true);
+
+			while(!myBlocks.isEmpty())
+			{
+				writeFirstBlock();
+			}
+		}
+		finally
+		{
+			cancelBlocks();
+		}
+
+		if(myRaw)
+		{
+			myOut.flush();
+			return;
+		}
+
+		int crc = (int) myCrc.getValue();
+		int size = (int) mySize;
+		myOut.write(new byte[]{
+				(byte) crc,
+				(byte) (crc >> 8),
+				(byte) (crc >> 16),
+				(byte) (crc >> 24),
+				(byte) size,
+				(byte) (size >> 8),
+				(byte) (size >> 16),
+				(byte) (size >> 24)
+		});
+		myOut.flush();
+	}
+
+	private void cancelBlocks()
+	{
+		for(Future<byte[]> block : myBlocks)
+		{
+			block.cancel(true);
+		}
+		myBlocks.clear();
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		myOut.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			finish();
+		}
+		finally
+		{
+			cancelBlocks();
+			myOut.close();
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Zip stream which deflate entries in parallel. Data of entry is split to blocks, which are compressed same way as
+ * {@link ParallelGzipOutputStream}, blocks of all entries are compressed concurrently.
+ * <p>
+ * Compressed blocks are collected in order of writing, and every entry is written by {@link #addRawArchiveEntry(ZipArchiveEntry, InputStream)}
+ * with CRC and sizes when its last block is ready - order of entries in archive is same as order of {@link #putArchiveEntry(ZipArchiveEntry)} calls.
+ * Stored entries, directories and raw entries are written directly after all previous entries
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ParallelZipOutputStream extends ZipArchiveOutputStream
+{
+	private static final class PendingEntry
+	{
+		private final ZipArchiveEntry myEntry;
+		private final BufferArena myArena;
+		private final CRC32 myCrc = new CRC32();
+		private long mySize;
+
+		// compressed blocks, which are ready but entry is not finished yet
+		private StagingBuffer myCompressed;
+
+		private PendingEntry(ZipArchiveEntry entry, BufferArena arena)
+		{
+			myEntry = entry;
+			myArena = arena;
+		}
+
+		private StagingBuffer getCompressed()
+		{
+			if(myCompressed == null)
+			{
+				myCompressed = myArena.newBuffer("consulo-zip-entry");
+			}
+			return myCompressed;
+		}
+
+		private void deleteCompressed() throws IOException
+		{
+			if(myCompressed != null)
+			{
+				myCompressed.dispose();
+			}
+			myCompressed = null;
+		}
+	}
+
+	private static final class Block
+	{
+		private final PendingEntry myEntry;
+		private final Future<byte[]> myData;
+		private final boolean myLast;
+
+		private Block(PendingEntry entry, Future<byte[]> data, boolean last)
+		{
+			myEntry = entry;
+			myData = data;
+			myLast = last;
+		}
+	}
+
+	private final ExecutorService myExecutor;
+	private final BufferArena myArena;
+	private final int myBlockSize;
+	private final int myLevel;
+	private final int myMaxBlocksInFlight;
+
+	private final Deque<Block> myBlocks = new ArrayDeque<>();
+
+	private PendingEntry myCurrentEntry;
+	private byte[] myPreviousBlock;
+	private byte[] myBlock;
+	private int myBlockLength;
+
+	public ParallelZipOutputStream(OutputStream out, int level, int blockSize, ExecutorService executor, int maxBlocksInFlight, BufferArena arena)
+	{
+		super(out);
+		myExecutor = executor;
+		myArena = arena;
+		myBlockSize = Math.max(blockSize, ParallelGzipOutputStream.ourDictionarySize);
+		myLevel = level;
+		myMaxBlocksInFlight = Math.max(maxBlocksInFlight, 1);
+	}
+
+	@Override
+	public void putArchiveEntry(ZipArchiveEntry entry) throws IOException
+	{
+		if(entry.isDirectory() || entry.getMethod() == ZipArchiveEntry.STORED)
+		{
+			writePendingEntries();
+
+			super.putArchiveEntry(entry);
+			return;
+		}
+
+		myCurrentEntry = new PendingEntry(entry, myArena);
+		myPreviousBlock = null;
+		myBlock = new byte[myBlockSize];
+		myBlockLength = 0;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if(myCurrentEntry == null)
+		{
+			super.write(b, off, len);
+			return;
+		}
+
+		myCurrentEntry.myCrc.update(b, off, len);
+		myCurrentEntry.mySize += len;
+
+		while(len > 0)
+		{
+			if(myBlockLength == myBlockSize)
+			{
+				submitBlock(false);
+			}
+
+			int count = Math.min(len, myBlockSize - myBlockLength);
+			System.arraycopy(b, off, myBlock, myBlockLength, count);
+			myBlockLength += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void closeArchiveEntry() throws IOException
+	{
+		if(myCurrentEntry == null)
+		{
+			super.closeArchiveEntry();
+			return;
+		}
+
+		submitBlock(true);
+
+		myCurrentEntry = null;
+		myPreviousBlock = null;
+		myBlock = null;
+	}
+
+	@Override
+	public void addRawArchiveEntry(ZipArchiveEntry entry, InputStream rawStream) throws IOException
+	{
+		writePendingEntries();
+
+		super.addRawArchiveEntry(entry, rawStream);
+	}
+
+	private void submitBlock(boolean last) throws IOException
+	{
+		byte[] block = myBlock;
+		int length = myBlockLength;
+		byte[] dictionary = myPreviousBlock;
+		int level = myLevel;
+
+		myBlocks.add(new Block(myCurrentEntry, myExecutor.submit(() -> ParallelGzipOutputStream.compressBlock(block, length, dictionary, level, last)), last));
+
+		myPreviousBlock = block;
+		myBlock = last ? null : new byte[myBlockSize];
+		myBlockLength = 0;
+
+		// backpressure - do not keep more than limit of blocks in memory
+		while(myBlocks.size() > myMaxBlocksInFlight)
+		{
+			writeFirstBlock();
+		}
+	}
+
+	private void writeFirstBlock() throws IOException
+	{
+		Block block = myBlocks.poll();
+
+		PendingEntry entry = block.myEntry;
+		try
+		{
+			entry.getCompressed().write(block.myData.get());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch(ExecutionException e)
+		{
+			throw new IOException(e.getCause());
+		}
+
+		if(!block.myLast)
+		{
+			return;
+		}
+
+		// blocks are written in order, all previous entries are written already
+		StagingBuffer compressed = entry.getCompressed();
+		compressed.close();
+		try
+		{
+			ZipArchiveEntry zipEntry = entry.myEntry;
+			zipEntry.setMethod(ZipArchiveEntry.DEFLATED);
+			zipEntry.setCrc(entry.myCrc.getValue());
+			zipEntry.setSize(entry.mySize);
+			zipEntry.setCompressedSize(compressed.size());
+
+			try (InputStream stream = compressed.openStream())
+			{
+				super.addRawArchiveEntry(zipEntry, stream);
+			}
+		}
+		finally
+		{
+			entry.deleteCompressed();
+		}
+	}
+
+	private void writePendingEntries() throws IOException
+	{
+		if(myCurrentEntry != null)
+		{
+			throw new IOException("Entry is not closed");
+		}
+
+		while(!myBlocks.isEmpty())
+		{
+			writeFirstBlock();
+		}
+	}
+
+	@Override
+	public void finish() throws IOException
+	{
+		try
+		{
+			writePendingEntries();
+		}
+		finally
+		{
+			cancelBlocks();
+		}
+
+		super.finish();
+	}
+
+	private void cancelBlocks() throws IOException
+	{
+		for(Block block : myBlocks)
+		{
+			block.myData.cancel(true);
+			block.myEntry.deleteCompressed();
+		}
+		myBlocks.clear();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			// not closed entry is lost, same as not finished archive
+			myCurrentEntry = null;
+			cancelBlocks();
+		}
+		finally
+		{
+			super.close();
+		}
+	}
+}
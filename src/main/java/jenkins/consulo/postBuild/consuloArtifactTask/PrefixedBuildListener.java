@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.console.LineTransformationOutputStream;
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Build listener which prefix every line with target name. Lines are written to parent logger as whole,
+ * so output of targets running in parallel is not mixed inside one line
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class PrefixedBuildListener extends StreamBuildListener
+{
+	private static class PrefixOutputStream extends LineTransformationOutputStream
+	{
+		private final PrintStream myDelegate;
+		private final byte[] myPrefix;
+
+		private PrefixOutputStream(PrintStream delegate, String prefix)
+		{
+			myDelegate = delegate;
+			myPrefix = ("[" + prefix + "] ").getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		protected void eol(byte[] b, int len) throws IOException
+		{
+			synchronized(myDelegate)
+			{
+				myDelegate.write(myPrefix);
+				myDelegate.write(b, 0, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			myDelegate.flush();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			forceEol();
+			myDelegate.flush();
+		}
+	}
+
+	// listener is created on node of workspace, and never sent back
+	private final transient OutputStream myStream;
+
+	public PrefixedBuildListener(BuildListener parent, String prefix)
+	{
+		this(new PrefixOutputStream(parent.getLogger(), prefix));
+	}
+
+	private PrefixedBuildListener(OutputStream stream)
+	{
+		super(stream, StandardCharsets.UTF_8);
+		myStream = stream;
+	}
+
+	/**
+	 * Write not finished line to parent logger. Parent logger itself is not closed
+	 */
+	public void finish() throws IOException
+	{
+		getLogger().flush();
+		myStream.close();
+	}
+}
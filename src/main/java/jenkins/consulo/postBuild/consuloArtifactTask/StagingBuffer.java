@@ -0,0 +1,261 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output which stage data in chunks of {@link BufferArena}. If data is bigger than spill threshold, or arena has no free memory,
+ * data is moved to temp file, which is read by memory mapping. Data can be read several times after {@link #close()},
+ * and must be released by {@link #dispose()}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class StagingBuffer extends OutputStream
+{
+	private static final long ourMappingSize = 64L * 1024 * 1024;
+
+	private final BufferArena myArena;
+	private final String myPrefix;
+
+	private final List<ByteBuffer> myChunks = new ArrayList<>();
+	private long mySize;
+
+	private Path myFile;
+	private FileChannel myChannel;
+
+	StagingBuffer(BufferArena arena, String prefix)
+	{
+		myArena = arena;
+		myPrefix = prefix;
+	}
+
+	BufferArena getArena()
+	{
+		return myArena;
+	}
+
+	@Override
+	public void write(int b) throws IOException
+	{
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if(myChannel == null && mySize + len > myArena.getSpillThreshold())
+		{
+			spill();
+		}
+
+		if(myChannel != null)
+		{
+			writeFully(ByteBuffer.wrap(b, off, len));
+			mySize += len;
+			return;
+		}
+
+		while(len > 0)
+		{
+			ByteBuffer chunk = myChunks.isEmpty() ? null : myChunks.get(myChunks.size() - 1);
+			if(chunk == null || !chunk.hasRemaining())
+			{
+				chunk = myArena.acquire();
+				if(chunk == null)
+				{
+					spill();
+					write(b, off, len);
+					return;
+				}
+				myChunks.add(chunk);
+			}
+
+			int count = Math.min(len, chunk.remaining());
+			chunk.put(b, off, count);
+			off += count;
+			len -= count;
+			mySize += count;
+		}
+	}
+
+	private void spill() throws IOException
+	{
+		myFile = Files.createTempFile(myPrefix, ".tmp");
+		myChannel = FileChannel.open(myFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		for(ByteBuffer chunk : myChunks)
+		{
+			chunk.flip();
+			writeFully(chunk);
+			myArena.release(chunk);
+		}
+		myChunks.clear();
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			myChannel.write(buffer);
+		}
+	}
+
+	public long size()
+	{
+		return mySize;
+	}
+
+	public boolean isInMemory()
+	{
+		return myChannel == null;
+	}
+
+	@Override
+	public void close()
+	{
+		if(myChannel != null)
+		{
+			myArena.spilled(mySize);
+		}
+	}
+
+	/**
+	 * @return stream of staged data. Stream is not valid after {@link #dispose()}
+	 */
+	public InputStream openStream()
+	{
+		return new InputStream()
+		{
+			private int myChunkIndex;
+			private ByteBuffer myCurrent;
+			private long myPosition;
+
+			private ByteBuffer current() throws IOException
+			{
+				if(myCurrent != null && myCurrent.hasRemaining())
+				{
+					return myCurrent;
+				}
+
+				if(myChannel == null)
+				{
+					if(myChunkIndex >= myChunks.size())
+					{
+						return null;
+					}
+					// chunks are not flipped, view of written part
+					ByteBuffer chunk = myChunks.get(myChunkIndex++);
+					ByteBuffer view = chunk.duplicate();
+					view.flip();
+					myCurrent = view;
+				}
+				else
+				{
+					if(myPosition >= mySize)
+					{
+						return null;
+					}
+					long length = Math.min(ourMappingSize, mySize - myPosition);
+					MappedByteBuffer mapping = myChannel.map(FileChannel.MapMode.READ_ONLY, myPosition, length);
+					myPosition += length;
+					myCurrent = mapping;
+				}
+				return myCurrent;
+			}
+
+			@Override
+			public int read() throws IOException
+			{
+				ByteBuffer buffer = current();
+				return buffer == null ? -1 : buffer.get() & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException
+			{
+				if(len == 0)
+				{
+					return 0;
+				}
+
+				ByteBuffer buffer = current();
+				if(buffer == null)
+				{
+					return -1;
+				}
+
+				int count = Math.min(len, buffer.remaining());
+				buffer.get(b, off, count);
+				return count;
+			}
+		};
+	}
+
+	public void writeTo(OutputStream out) throws IOException
+	{
+		try (InputStream stream = openStream())
+		{
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while((read = stream.read(buffer)) != -1)
+			{
+				out.write(buffer, 0, read);
+			}
+		}
+	}
+
+	/**
+	 * Return chunks to arena and delete temp file
+	 */
+	public void dispose() throws IOException
+	{
+		for(ByteBuffer chunk : myChunks)
+		{
+			myArena.release(chunk);
+		}
+		myChunks.clear();
+
+		if(myChannel != null)
+		{
+			myChannel.close();
+			myChannel = null;
+			try
+			{
+				Files.deleteIfExists(myFile);
+			}
+			catch(IOException e)
+			{
+				// file can be locked by mapping on Windows, until mapping is collected
+				myFile.toFile().deleteOnExit();
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Node local content addressed store of installer inputs. File is stored once by SHA-256 of its data, and staging directory
+ * get hard link of stored file instead of copy - staging of unchanged distribution is only hashing of files.
+ * <p>
+ * If staging directory is on another file store, or file system not support hard links, files are copied. Files of staging directory
+ * which are hard links must be replaced, not rewritten in place
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class StagingStore
+{
+	private static final String ourExtension = ".data";
+
+	private static final long ourMaxUnusedTime = TimeUnit.DAYS.toMillis(30);
+
+	private static final int ourMaxStageAttempts = 3;
+
+	private final Path myDirectory;
+
+	private final AtomicInteger myLinked = new AtomicInteger();
+	private final AtomicInteger myCopied = new AtomicInteger();
+	private final AtomicInteger myStored = new AtomicInteger();
+
+	public StagingStore(Path directory)
+	{
+		myDirectory = directory;
+	}
+
+	/**
+	 * Create copy of source directory in target directory, files are hard links of store if it's possible
+	 */
+	public void stageTree(Path sourceDir, Path targetDir) throws IOException
+	{
+		Files.createDirectories(myDirectory);
+		Files.createDirectories(targetDir);
+
+		boolean linksSupported = Files.getFileStore(targetDir).equals(Files.getFileStore(myDirectory));
+
+		Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+			{
+				Files.createDirectories(targetDir.resolve(sourceDir.relativize(dir).toString()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+			{
+				Path target = targetDir.resolve(sourceDir.relativize(file).toString());
+				if(attrs.isSymbolicLink())
+				{
+					Files.copy(file, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+					return FileVisitResult.CONTINUE;
+				}
+
+				stageFile(file, target, linksSupported);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void stageFile(Path source, Path target, boolean linksSupported) throws IOException
+	{
+		Files.deleteIfExists(target);
+
+		for(int attempt = 1; ; attempt++)
+		{
+			Path object = store(source);
+			try
+			{
+				if(linksSupported && link(object, target))
+				{
+					myLinked.incrementAndGet();
+					return;
+				}
+
+				copy(object, target);
+				myCopied.incrementAndGet();
+				return;
+			}
+			catch(NoSuchFileException e)
+			{
+				// object is removed by eviction of another build after store(), it's stored again
+				if(attempt == ourMaxStageAttempts)
+				{
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return false if file system can't create hard link of object
+	 */
+	private static boolean link(Path object, Path target) throws IOException
+	{
+		try
+		{
+			Files.createLink(target, object);
+			return true;
+		}
+		catch(NoSuchFileException e)
+		{
+			throw e;
+		}
+		catch(UnsupportedOperationException | FileSystemException e)
+		{
+			// no hard links in file system, or too many links of one file
+			return false;
+		}
+	}
+
+	Path store(Path source) throws IOException
+	{
+		Path object = myDirectory.resolve(sha256(source) + ourExtension);
+		if(Files.exists(object))
+		{
+			try
+			{
+				// used by eviction
+				Files.setLastModifiedTime(object, FileTime.fromMillis(System.currentTimeMillis()));
+				return object;
+			}
+			catch(NoSuchFileException e)
+			{
+				// removed by eviction of another build
+			}
+		}
+
+		// stored as copy - linked source can be changed by next build of workspace
+		Path tempFile = Files.createTempFile(myDirectory, object.getFileName().toString(), ".tmp");
+		try
+		{
+			copy(source, tempFile);
+
+			Files.move(tempFile, object, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+
+		myStored.incrementAndGet();
+		return object;
+	}
+
+	/**
+	 * Copy by file channels - kernel can do it without user space buffers, or share blocks on copy-on-write file systems
+	 */
+	private static void copy(Path source, Path target) throws IOException
+	{
+		try (FileChannel from = FileChannel.open(source, StandardOpenOption.READ);
+			 FileChannel to = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			long size = from.size();
+			long position = 0;
+			while(position < size)
+			{
+				position += from.transferTo(position, size - position, to);
+			}
+		}
+	}
+
+	private static String sha256(Path file) throws IOException
+	{
+		MessageDigest digest = JreCache.sha256();
+		try (InputStream stream = Files.newInputStream(file))
+		{
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while((read = stream.read(buffer)) != -1)
+			{
+				digest.update(buffer, 0, read);
+			}
+		}
+		return JreCache.toHex(digest.digest());
+	}
+
+	/**
+	 * @return statistics of staging since last call
+	 */
+	public String resetStatistics()
+	{
+		return myLinked.getAndSet(0) + " linked, " + myCopied.getAndSet(0) + " copied, " + myStored.getAndSet(0) + " new files in store";
+	}
+
+	/**
+	 * Remove files which are not used long time
+	 */
+	public void evict() throws IOException
+	{
+		if(!Files.isDirectory(myDirectory))
+		{
+			return;
+		}
+
+		List<Path> files = new ArrayList<>();
+		try (Stream<Path> stream = Files.list(myDirectory))
+		{
+			stream.forEach(files::add);
+		}
+
+		long now = System.currentTimeMillis();
+		for(Path file : files)
+		{
+			// temp files can be left by killed build
+			long maxAge = file.getFileName().toString().endsWith(ourExtension) ? ourMaxUnusedTime : TimeUnit.DAYS.toMillis(1);
+			if(now - Files.getLastModifiedTime(file).toMillis() > maxAge)
+			{
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+}
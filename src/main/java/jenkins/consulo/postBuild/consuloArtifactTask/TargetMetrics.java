@@ -0,0 +1,296 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of one {@link GeneratorTarget}. Updated by thread of target and by stages of {@link EntryPipeline} - compression threads are measured as time which target waits for them.
+ * Times are collected in nanoseconds, and exported in milliseconds
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+@ExportedBean
+public class TargetMetrics implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	public static final int TOP_SIZE = 10;
+
+	@ExportedBean
+	public static final class EntryMetrics implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String myName;
+		private final long mySize;
+		private final long myTime;
+
+		private EntryMetrics(String name, long size, long time)
+		{
+			myName = name;
+			mySize = size;
+			myTime = time;
+		}
+
+		@Exported
+		public String getName()
+		{
+			return myName;
+		}
+
+		@Exported
+		public long getSize()
+		{
+			return mySize;
+		}
+
+		@Exported
+		public long getTimeMillis()
+		{
+			return TimeUnit.NANOSECONDS.toMillis(myTime);
+		}
+	}
+
+	private static final Comparator<EntryMetrics> ourBySize = Comparator.comparingLong(EntryMetrics::getSize).reversed();
+	private static final Comparator<EntryMetrics> ourByTime = Comparator.comparingLong((EntryMetrics e) -> e.myTime).reversed();
+
+	private final String myTargetId;
+
+	private long myWallTime;
+	private long myBytesRead;
+	private long myBytesInflated;
+	private long myBytesWritten;
+	private int myEntryCount;
+
+	private long myReadTime;
+	private long myLineEndTime;
+	private long myCompressionTime;
+	private long myRemoteTime;
+	private long myJreTime;
+
+	private final List<EntryMetrics> myLargestEntries = new ArrayList<>();
+	private final List<EntryMetrics> mySlowestEntries = new ArrayList<>();
+
+	public TargetMetrics(String targetId)
+	{
+		myTargetId = targetId;
+	}
+
+	public synchronized void addEntry(String name, long size, long time)
+	{
+		myEntryCount++;
+		myBytesInflated += Math.max(size, 0);
+
+		EntryMetrics entry = new EntryMetrics(name, size, time);
+		addTop(myLargestEntries, entry, ourBySize);
+		addTop(mySlowestEntries, entry, ourByTime);
+	}
+
+	private static void addTop(List<EntryMetrics> list, EntryMetrics entry, Comparator<EntryMetrics> comparator)
+	{
+		if(list.size() == TOP_SIZE && comparator.compare(entry, list.get(TOP_SIZE - 1)) >= 0)
+		{
+			return;
+		}
+
+		int index = 0;
+		while(index < list.size() && comparator.compare(list.get(index), entry) <= 0)
+		{
+			index++;
+		}
+		list.add(index, entry);
+
+		if(list.size() > TOP_SIZE)
+		{
+			list.remove(TOP_SIZE);
+		}
+	}
+
+	/**
+	 * Add metrics of part of target, which was built separately - for example on another node
+	 */
+	public synchronized void add(TargetMetrics other)
+	{
+		myBytesRead += other.myBytesRead;
+		myBytesInflated += other.myBytesInflated;
+		myBytesWritten += other.myBytesWritten;
+		myEntryCount += other.myEntryCount;
+		myReadTime += other.myReadTime;
+		myLineEndTime += other.myLineEndTime;
+		myCompressionTime += other.myCompressionTime;
+		myRemoteTime += other.myRemoteTime;
+		myJreTime += other.myJreTime;
+
+		for(EntryMetrics entry : other.myLargestEntries)
+		{
+			addTop(myLargestEntries, entry, ourBySize);
+		}
+		for(EntryMetrics entry : other.mySlowestEntries)
+		{
+			addTop(mySlowestEntries, entry, ourByTime);
+		}
+	}
+
+	public synchronized void addBytesRead(long bytes)
+	{
+		myBytesRead += bytes;
+	}
+
+	public synchronized void addBytesWritten(long bytes)
+	{
+		myBytesWritten += bytes;
+	}
+
+	public synchronized void addReadTime(long time)
+	{
+		myReadTime += time;
+	}
+
+	public synchronized void addLineEndTime(long time)
+	{
+		myLineEndTime += time;
+	}
+
+	public synchronized void addCompressionTime(long time)
+	{
+		myCompressionTime += time;
+	}
+
+	public synchronized void addRemoteTime(long time)
+	{
+		myRemoteTime += time;
+	}
+
+	public synchronized void addJreTime(long time)
+	{
+		myJreTime += time;
+	}
+
+	public synchronized void setWallTime(long time)
+	{
+		myWallTime = time;
+	}
+
+	@Exported
+	public String getTargetId()
+	{
+		return myTargetId;
+	}
+
+	@Exported
+	public long getWallTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(myWallTime);
+	}
+
+	/**
+	 * @return size of source archives and files
+	 */
+	@Exported
+	public long getBytesRead()
+	{
+		return myBytesRead;
+	}
+
+	/**
+	 * @return size of entry data before line ends conversion
+	 */
+	@Exported
+	public long getBytesInflated()
+	{
+		return myBytesInflated;
+	}
+
+	/**
+	 * @return size of outputs
+	 */
+	@Exported
+	public long getBytesWritten()
+	{
+		return myBytesWritten;
+	}
+
+	@Exported
+	public int getEntryCount()
+	{
+		return myEntryCount;
+	}
+
+	/**
+	 * @return time of reading and inflating entry data
+	 */
+	@Exported
+	public long getReadTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(myReadTime);
+	}
+
+	@Exported
+	public long getLineEndTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(myLineEndTime);
+	}
+
+	/**
+	 * @return time of writing entries to output archives - compression and output file write
+	 */
+	@Exported
+	public long getCompressionTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(myCompressionTime);
+	}
+
+	/**
+	 * @return time of transfers over remoting channel or network - jre download, packing of distribution
+	 */
+	@Exported
+	public long getRemoteTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(myRemoteTime);
+	}
+
+	/**
+	 * @return time of jre part of target, including preparing of filtered jre
+	 */
+	@Exported
+	public long getJreTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(myJreTime);
+	}
+
+	@Exported
+	public List<EntryMetrics> getLargestEntries()
+	{
+		return myLargestEntries;
+	}
+
+	@Exported
+	public List<EntryMetrics> getSlowestEntries()
+	{
+		return mySlowestEntries;
+	}
+}
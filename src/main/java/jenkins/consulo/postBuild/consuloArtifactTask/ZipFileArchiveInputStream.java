@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Local zip file as archive stream. Unlike {@link org.apache.commons.compress.archivers.zip.ZipArchiveInputStream} entries have
+ * CRC and sizes from central directory, and compressed data of current entry can be read by {@link #getRawInputStream()}.
+ * Entry data is inflated only if it's read
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ZipFileArchiveInputStream extends ArchiveInputStream<ZipArchiveEntry>
+{
+	private final ZipFile myZipFile;
+	private final Iterator<ZipArchiveEntry> myEntries;
+
+	private ZipArchiveEntry myCurrentEntry;
+	private InputStream myCurrentStream;
+
+	public ZipFileArchiveInputStream(File file) throws IOException
+	{
+		this(file, false);
+	}
+
+	/**
+	 * @param sortByName if true, entries are read in order of names, otherwise in physical order - order of zip creation
+	 */
+	public ZipFileArchiveInputStream(File file, boolean sortByName) throws IOException
+	{
+		myZipFile = ZipFile.builder().setFile(file).get();
+
+		List<ZipArchiveEntry> entries = Collections.list(myZipFile.getEntriesInPhysicalOrder());
+		if(sortByName)
+		{
+			entries.sort(Comparator.comparing(ZipArchiveEntry::getName));
+		}
+		myEntries = entries.iterator();
+	}
+
+	@Override
+	public ZipArchiveEntry getNextEntry() throws IOException
+	{
+		closeCurrentStream();
+
+		myCurrentEntry = myEntries.hasNext() ? myEntries.next() : null;
+		return myCurrentEntry;
+	}
+
+	public ZipArchiveEntry getCurrentEntry()
+	{
+		return myCurrentEntry;
+	}
+
+	/**
+	 * @return true if compressed data of current entry can be copied to another zip as is
+	 */
+	public boolean canReadRawData()
+	{
+		return myCurrentEntry != null && myCurrentEntry.getCrc() != -1 && myCurrentEntry.getCompressedSize() != -1 && myZipFile.canReadEntryData(myCurrentEntry);
+	}
+
+	/**
+	 * @return compressed data of current entry, independent of data read from this stream
+	 */
+	public InputStream getRawInputStream() throws IOException
+	{
+		return getRawInputStream(myCurrentEntry);
+	}
+
+	/**
+	 * @param entry entry of this stream, which can be not current. Data can be read by another thread, while stream is not closed
+	 */
+	public InputStream getRawInputStream(ZipArchiveEntry entry) throws IOException
+	{
+		return myZipFile.getRawInputStream(entry);
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if(myCurrentEntry == null || myCurrentEntry.isDirectory())
+		{
+			return -1;
+		}
+
+		if(myCurrentStream == null)
+		{
+			myCurrentStream = myZipFile.getInputStream(myCurrentEntry);
+		}
+
+		int read = myCurrentStream.read(b, off, len);
+		count(read);
+		return read;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		closeCurrentStream();
+
+		myZipFile.close();
+	}
+
+	private void closeCurrentStream() throws IOException
+	{
+		if(myCurrentStream != null)
+		{
+			myCurrentStream.close();
+			myCurrentStream = null;
+		}
+	}
+}
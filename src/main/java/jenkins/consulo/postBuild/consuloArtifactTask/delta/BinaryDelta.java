@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask.delta;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Binary patch of one file: new data is described as copies of old data ranges and added bytes. Matches are found by
+ * rolling hash of {@link #ourBlockSize} blocks of old data (rsync/bsdiff style), and extended forward and backward byte by byte.
+ * <p>
+ * Format: magic, new size, then operations - {@link #ourCopy} (old offset, length), {@link #ourAdd} (length, bytes), and {@link #ourEnd}.
+ * Patch is not compressed, it's stored in compressed delta package
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public final class BinaryDelta
+{
+	private static final int ourMagic = 0x43445031; // CDP1
+
+	private static final int ourEnd = 0;
+	private static final int ourAdd = 1;
+	private static final int ourCopy = 2;
+
+	private static final int ourBlockSize = 32;
+	private static final int ourPrime = 31;
+	// ourPrime ^ ourBlockSize, for removing of first byte from rolling hash
+	private static final int ourPrimePower;
+
+	static
+	{
+		int power = 1;
+		for(int i = 0; i < ourBlockSize; i++)
+		{
+			power *= ourPrime;
+		}
+		ourPrimePower = power;
+	}
+
+	private BinaryDelta()
+	{
+	}
+
+	public static byte[] encode(byte[] oldData, byte[] newData) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(newData.length / 4 + 64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(ourMagic);
+		out.writeInt(newData.length);
+
+		int[] table = buildTable(oldData);
+		int mask = table.length - 1;
+
+		int addStart = 0;
+		int i = 0;
+		int hash = newData.length >= ourBlockSize ? hash(newData, 0) : 0;
+		while(i + ourBlockSize <= newData.length)
+		{
+			int candidate = table[mix(hash) & mask] - 1;
+			if(candidate >= 0 && Arrays.equals(oldData, candidate, candidate + ourBlockSize, newData, i, i + ourBlockSize))
+			{
+				int back = 0;
+				while(i - back > addStart && candidate - back > 0 && oldData[candidate - back - 1] == newData[i - back - 1])
+				{
+					back++;
+				}
+
+				int length = ourBlockSize;
+				int mismatch = Arrays.mismatch(oldData, candidate + length, oldData.length, newData, i + length, newData.length);
+				length += mismatch < 0 ? Math.min(oldData.length - candidate - length, newData.length - i - length) : mismatch;
+
+				writeAdd(out, newData, addStart, i - back - addStart);
+
+				out.writeByte(ourCopy);
+				out.writeInt(candidate - back);
+				out.writeInt(length + back);
+
+				i += length;
+				addStart = i;
+				if(i + ourBlockSize <= newData.length)
+				{
+					hash = hash(newData, i);
+				}
+				continue;
+			}
+
+			if(i + ourBlockSize < newData.length)
+			{
+				hash = hash * ourPrime - newData[i] * ourPrimePower + newData[i + ourBlockSize];
+			}
+			i++;
+		}
+
+		writeAdd(out, newData, addStart, newData.length - addStart);
+		out.writeByte(ourEnd);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	public static byte[] apply(byte[] oldData, byte[] patch) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(patch));
+		if(in.readInt() != ourMagic)
+		{
+			throw new IOException("Not a patch");
+		}
+
+		byte[] newData = new byte[in.readInt()];
+		int position = 0;
+		while(true)
+		{
+			int operation = in.readUnsignedByte();
+			if(operation == ourEnd)
+			{
+				break;
+			}
+
+			if(operation == ourAdd)
+			{
+				int length = in.readInt();
+				in.readFully(newData, position, length);
+				position += length;
+			}
+			else if(operation == ourCopy)
+			{
+				int offset = in.readInt();
+				int length = in.readInt();
+				System.arraycopy(oldData, offset, newData, position, length);
+				position += length;
+			}
+			else
+			{
+				throw new IOException("Unknown operation " + operation);
+			}
+		}
+
+		if(position != newData.length)
+		{
+			throw new IOException("Broken patch");
+		}
+		return newData;
+	}
+
+	private static void writeAdd(DataOutputStream out, byte[] data, int offset, int length) throws IOException
+	{
+		if(length == 0)
+		{
+			return;
+		}
+
+		out.writeByte(ourAdd);
+		out.writeInt(length);
+		out.write(data, offset, length);
+	}
+
+	/**
+	 * Offsets of aligned old data blocks by hash, value is offset + 1. First block wins on collision
+	 */
+	private static int[] buildTable(byte[] oldData)
+	{
+		int blocks = oldData.length / ourBlockSize;
+		int[] table = new int[Integer.highestOneBit(Math.max(blocks, 1) * 2 - 1) << 1];
+		int mask = table.length - 1;
+		for(int offset = 0; offset + ourBlockSize <= oldData.length; offset += ourBlockSize)
+		{
+			int index = mix(hash(oldData, offset)) & mask;
+			if(table[index] == 0)
+			{
+				table[index] = offset + 1;
+			}
+		}
+		return table;
+	}
+
+	private static int hash(byte[] data, int offset)
+	{
+		int hash = 0;
+		for(int i = offset; i < offset + ourBlockSize; i++)
+		{
+			hash = hash * ourPrime + data[i];
+		}
+		return hash;
+	}
+
+	private static int mix(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+}
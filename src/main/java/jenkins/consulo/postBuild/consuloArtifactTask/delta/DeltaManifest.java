@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask.delta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifest of delta package, stored as <code>manifest.json</code>. Entries describe only files which are changed since previous build,
+ * paths are paths of new build (build directory of previous build is renamed)
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class DeltaManifest
+{
+	public static final String ADD = "add";
+	public static final String PATCH = "patch";
+	public static final String REMOVE = "remove";
+	public static final String LINK = "link";
+	public static final String MODE = "mode";
+
+	public static class Entry
+	{
+		public String path;
+		// see constants
+		public String op;
+		// unix mode, 0 if archive has no modes
+		public int mode;
+		// size of new file
+		public long size;
+		// SHA-256 of new file
+		public String sha256;
+		// package entry with file data or patch, see BinaryDelta
+		public String data;
+		// target of symbolic link
+		public String target;
+	}
+
+	public int format = 1;
+	public String artifact;
+	public int fromBuild;
+	public int toBuild;
+	public List<Entry> entries = new ArrayList<>();
+
+	public int count(String op)
+	{
+		int count = 0;
+		for(Entry entry : entries)
+		{
+			if(op.equals(entry.op))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+}
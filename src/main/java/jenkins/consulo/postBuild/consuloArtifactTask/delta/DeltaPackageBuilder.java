@@ -0,0 +1,349 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package jenkins.consulo.postBuild.consuloArtifactTask.delta;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import hudson.FilePath;
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.BufferArena;
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryContent;
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryRules;
+import jenkins.consulo.postBuild.consuloArtifactTask.OutputCodec;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Build delta package of one output against same output of previous build. Package is zip with {@link DeltaManifest}
+ * as <code>manifest.json</code>, and data of added files or {@link BinaryDelta} patches of changed files.
+ * <p>
+ * Previous archive is extracted to local temp directory, new archive is read once
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class DeltaPackageBuilder
+{
+	private static class OldFile
+	{
+		private final Path myPath;
+		private final String mySha256;
+		private final int myMode;
+		private final String myLinkTarget;
+
+		private OldFile(Path path, String sha256, int mode, String linkTarget)
+		{
+			myPath = path;
+			mySha256 = sha256;
+			myMode = mode;
+			myLinkTarget = linkTarget;
+		}
+	}
+
+	/**
+	 * File in directory of previous outputs with number of build, which outputs are in this directory. Written only if all outputs are saved
+	 */
+	public static final String BUILD_MARKER = "artifacts.build";
+
+	public static final String MANIFEST = "manifest.json";
+
+	private static final Pattern ourDeltaFileName = Pattern.compile(".+\\.delta-(\\d+)\\.zip");
+
+	// bigger files are added without patch, both versions are loaded into memory
+	private static final long ourMaxPatchedSize = 64 * 1024 * 1024;
+
+	private final ArchiveStreamFactory myArchiveStreamFactory = new ArchiveStreamFactory();
+
+	private BufferArena myArena = BufferArena.getInstance();
+
+	/**
+	 * @param arena arena for staging of new entries
+	 */
+	public void setArena(BufferArena arena)
+	{
+		myArena = arena;
+	}
+
+	/**
+	 * @return name of delta package of artifact, it's deployed with artifact name and {@code fromBuild}, see {@link #getBaseBuild(String)}
+	 */
+	public static String getDeltaFileName(String artifactFileName, int fromBuild)
+	{
+		return artifactFileName + ".delta-" + fromBuild + ".zip";
+	}
+
+	/**
+	 * @return number of previous build, if file is delta package, otherwise null
+	 */
+	@Nullable
+	public static Integer getBaseBuild(String fileName)
+	{
+		Matcher matcher = ourDeltaFileName.matcher(fileName);
+		return matcher.matches() ? Integer.parseInt(matcher.group(1)) : null;
+	}
+
+	/**
+	 * @return artifact name of delta package, for example <code>consulo.dist.linux64.tar.gz</code>
+	 */
+	public static String getArtifactFileName(String deltaFileName)
+	{
+		return deltaFileName.substring(0, deltaFileName.lastIndexOf(".delta-"));
+	}
+
+	/**
+	 * @param deltaOutput stream of delta package, it's not closed by builder
+	 */
+	public DeltaManifest build(FilePath previousArtifact, int previousBuild, FilePath artifact, int build, OutputStream deltaOutput) throws IOException, InterruptedException
+	{
+		// previous build directory is build<previousBuild>, see Generator#ourBuildSNAPSHOT
+		EntryRules rules = EntryRules.builder()
+				.renameSegment("build" + previousBuild, "build" + build)
+				.build();
+
+		DeltaManifest manifest = new DeltaManifest();
+		manifest.artifact = artifact.getName();
+		manifest.fromBuild = previousBuild;
+		manifest.toBuild = build;
+
+		Path tempDirectory = Files.createTempDirectory("consulo-delta");
+		try
+		{
+			Map<String, OldFile> oldFiles = extract(previousArtifact, rules, tempDirectory);
+
+			Set<String> newFiles = new HashSet<>();
+
+			try (ArchiveInputStream<?> ais = openArchive(artifact);
+				 ZipArchiveOutputStream out = new ZipArchiveOutputStream(new BufferedOutputStream(CloseShieldOutputStream.wrap(deltaOutput), 64 * 1024)))
+			{
+				ArchiveEntry entry;
+				while((entry = ais.getNextEntry()) != null)
+				{
+					if(entry.isDirectory())
+					{
+						continue;
+					}
+
+					String name = entry.getName();
+					newFiles.add(name);
+
+					OldFile oldFile = oldFiles.get(name);
+
+					String linkTarget = getLinkTarget(entry);
+					if(linkTarget != null)
+					{
+						if(oldFile == null || !linkTarget.equals(oldFile.myLinkTarget))
+						{
+							DeltaManifest.Entry manifestEntry = newEntry(name, DeltaManifest.LINK, getMode(entry));
+							manifestEntry.target = linkTarget;
+							manifest.entries.add(manifestEntry);
+						}
+						continue;
+					}
+
+					try (EntryContent content = EntryContent.read(ais, entry.getSize(), true, false, true, false, myArena))
+					{
+						addFile(manifest, out, name, getMode(entry), content, oldFile);
+					}
+				}
+
+				for(String oldName : oldFiles.keySet())
+				{
+					if(!newFiles.contains(oldName))
+					{
+						manifest.entries.add(newEntry(oldName, DeltaManifest.REMOVE, 0));
+					}
+				}
+
+				Gson gson = new GsonBuilder().setPrettyPrinting().create();
+				byte[] manifestData = gson.toJson(manifest).getBytes(StandardCharsets.UTF_8);
+
+				ZipArchiveEntry manifestEntry = new ZipArchiveEntry(MANIFEST);
+				manifestEntry.setSize(manifestData.length);
+				out.putArchiveEntry(manifestEntry);
+				out.write(manifestData);
+				out.closeArchiveEntry();
+
+				out.finish();
+			}
+		}
+		finally
+		{
+			FileUtils.deleteQuietly(tempDirectory.toFile());
+		}
+		return manifest;
+	}
+
+	private void addFile(DeltaManifest manifest, ZipArchiveOutputStream out, String name, int mode, EntryContent content, @Nullable OldFile oldFile) throws IOException
+	{
+		String sha256 = JreCache.toHex(content.getDigest());
+		if(oldFile != null && oldFile.myLinkTarget == null && sha256.equals(oldFile.mySha256))
+		{
+			if(oldFile.myMode != mode)
+			{
+				manifest.entries.add(newEntry(name, DeltaManifest.MODE, mode));
+			}
+			return;
+		}
+
+		DeltaManifest.Entry manifestEntry = newEntry(name, DeltaManifest.ADD, mode);
+		manifestEntry.size = content.getSize();
+		manifestEntry.sha256 = sha256;
+		manifestEntry.data = "data/" + manifest.entries.size();
+
+		byte[] patch = null;
+		if(oldFile != null && oldFile.myLinkTarget == null && content.getSize() <= ourMaxPatchedSize && Files.size(oldFile.myPath) <= ourMaxPatchedSize)
+		{
+			ByteArrayOutputStream newData = new ByteArrayOutputStream((int) content.getSize());
+			content.writeTo(newData);
+
+			patch = BinaryDelta.encode(Files.readAllBytes(oldFile.myPath), newData.toByteArray());
+			// patch of unrelated data is bigger than data
+			if(patch.length >= content.getSize() * 9 / 10)
+			{
+				patch = null;
+			}
+		}
+
+		ZipArchiveEntry dataEntry = new ZipArchiveEntry(manifestEntry.data);
+		out.putArchiveEntry(dataEntry);
+		if(patch != null)
+		{
+			manifestEntry.op = DeltaManifest.PATCH;
+			out.write(patch);
+		}
+		else
+		{
+			content.writeTo(out);
+		}
+		out.closeArchiveEntry();
+
+		manifest.entries.add(manifestEntry);
+	}
+
+	private Map<String, OldFile> extract(FilePath previousArtifact, EntryRules rules, Path directory) throws IOException, InterruptedException
+	{
+		Map<String, OldFile> files = new HashMap<>();
+		try (ArchiveInputStream<?> ais = openArchive(previousArtifact))
+		{
+			ArchiveEntry entry;
+			while((entry = ais.getNextEntry()) != null)
+			{
+				if(entry.isDirectory())
+				{
+					continue;
+				}
+
+				String name = rules.match(entry.getName(), false).getName();
+
+				String linkTarget = getLinkTarget(entry);
+				if(linkTarget != null)
+				{
+					files.put(name, new OldFile(null, null, getMode(entry), linkTarget));
+					continue;
+				}
+
+				Path file = directory.resolve("f" + files.size());
+				MessageDigest digest = JreCache.sha256();
+				try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file), digest))
+				{
+					ais.transferTo(out);
+				}
+
+				files.put(name, new OldFile(file, JreCache.toHex(digest.digest()), getMode(entry), null));
+			}
+		}
+		return files;
+	}
+
+	private ArchiveInputStream<?> openArchive(FilePath artifact) throws IOException, InterruptedException
+	{
+		InputStream in = new BufferedInputStream(artifact.read(), 64 * 1024);
+		try
+		{
+			if(artifact.getName().endsWith(".zip"))
+			{
+				return myArchiveStreamFactory.createArchiveInputStream(ArchiveStreamFactory.ZIP, in);
+			}
+
+			OutputCodec codec = OutputCodec.findByFileName(artifact.getName());
+			if(codec == null)
+			{
+				throw new IOException("Unknown archive " + artifact.getName());
+			}
+			return new TarArchiveInputStream(codec.decompress(in));
+		}
+		catch(Exception e)
+		{
+			in.close();
+			throw e instanceof IOException ? (IOException) e : new IOException(e);
+		}
+	}
+
+	@Nullable
+	private static String getLinkTarget(ArchiveEntry entry)
+	{
+		if(entry instanceof TarArchiveEntry && ((TarArchiveEntry) entry).isSymbolicLink())
+		{
+			return ((TarArchiveEntry) entry).getLinkName();
+		}
+		return null;
+	}
+
+	private static int getMode(ArchiveEntry entry)
+	{
+		if(entry instanceof TarArchiveEntry)
+		{
+			return ((TarArchiveEntry) entry).getMode() & 07777;
+		}
+		if(entry instanceof ZipArchiveEntry)
+		{
+			return ((ZipArchiveEntry) entry).getUnixMode() & 07777;
+		}
+		return 0;
+	}
+
+	private static DeltaManifest.Entry newEntry(String path, String op, int mode)
+	{
+		DeltaManifest.Entry entry = new DeltaManifest.Entry();
+		entry.path = path;
+		entry.op = op;
+		entry.mode = mode;
+		return entry;
+	}
+}
@@ -22,6 +22,8 @@ import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarConstants;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 
+import java.util.List;
+
 /**
  * @author VISTALL
  * @since 17-Jul-16
@@ -152,6 +154,50 @@ public abstract class ArchiveEntryWrapper<E>
 		}
 	}
 
+	/**
+	 * Same entry for several archives
+	 */
+	public static class Multi extends ArchiveEntryWrapper<List<ArchiveEntryWrapper<? extends ArchiveEntry>>>
+	{
+		public Multi(List<ArchiveEntryWrapper<? extends ArchiveEntry>> entries)
+		{
+			super(entries);
+		}
+
+		@Override
+		public boolean isDirectory()
+		{
+			return myItem.get(0).isDirectory();
+		}
+
+		@Override
+		public void setTime(long date)
+		{
+			for(ArchiveEntryWrapper<? extends ArchiveEntry> wrapper : myItem)
+			{
+				wrapper.setTime(date);
+			}
+		}
+
+		@Override
+		public void setMode(int mode)
+		{
+			for(ArchiveEntryWrapper<? extends ArchiveEntry> wrapper : myItem)
+			{
+				wrapper.setMode(mode);
+			}
+		}
+
+		@Override
+		public void setSize(long size)
+		{
+			for(ArchiveEntryWrapper<? extends ArchiveEntry> wrapper : myItem)
+			{
+				wrapper.setSize(size);
+			}
+		}
+	}
+
 	protected final E myItem;
 
 	protected ArchiveEntryWrapper(E archiveEntry)
@@ -16,86 +16,46 @@
 
 package jenkins.consulo.postBuild.consuloArtifactTask.jre;
 
-import com.Ostermiller.util.BinaryDataException;
-import com.Ostermiller.util.LineEnds;
 import hudson.FilePath;
 import jakarta.annotation.Nonnull;
+import jenkins.consulo.postBuild.consuloArtifactTask.ArchiveSink;
 import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.ArchiveInputStream;
-import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 /**
  * @author VISTALL
  * @since 22/05/2023
  */
-public class ArchivedBundledJRE extends BundledJRE<ArchiveEntry>
+public class ArchivedBundledJRE extends BundledJRE<List<ArchiveEntryWrapper<? extends ArchiveEntry>>>
 {
-	private final String myArchiveOutType;
-	private final ArchiveOutputStream myArchiveOutputStream;
+	private final List<ArchiveSink> mySinks;
 
-	public ArchivedBundledJRE(int buildNumber, ArchiveStreamFactory factory, FilePath jdkFilePath, boolean isMac, String archiveOutType, ArchiveOutputStream archiveOutputStream)
+	public ArchivedBundledJRE(int buildNumber, ArchiveStreamFactory factory, FilePath jdkFilePath, boolean isMac, List<ArchiveSink> sinks)
 	{
 		super(buildNumber, factory, jdkFilePath, isMac);
-		myArchiveOutType = archiveOutType;
-		myArchiveOutputStream = archiveOutputStream;
+		mySinks = sinks;
 	}
 
-	@Nonnull
-	protected ArchiveEntryWrapper<? extends ArchiveEntry> createEntry(String name, ArchiveEntry tempEntry)
+	@Override
+	protected String getBuildDirectoryName()
 	{
-		name = replaceBuildDirectory(name);
-
-		if(myArchiveOutType.equals(ArchiveStreamFactory.TAR))
-		{
-			return new ArchiveEntryWrapper.Tar(name, tempEntry);
-		}
-		return new ArchiveEntryWrapper.Zip(name);
+		return "build" + getBuildNumber();
 	}
 
+	@Nonnull
 	@Override
-	protected  void copyEntry(ArchiveInputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends ArchiveEntry> newEntry) throws IOException
+	protected ArchiveEntryWrapper.Multi createEntry(String name, ArchiveEntry tempEntry)
 	{
-		byte[] data = null;
-		if(!tempEntry.isDirectory())
-		{
-			try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream())
-			{
-				IOUtils.copy(ais, byteStream);
-				data = byteStream.toByteArray();
-			}
-
-			// change line breaks
-			try (ByteArrayOutputStream stream = new ByteArrayOutputStream())
-			{
-				if(LineEnds.convert(new ByteArrayInputStream(data), stream, LineEnds.STYLE_UNIX))
-				{
-					data = stream.toByteArray();
-				}
-			}
-			catch(BinaryDataException ignored)
-			{
-				// ignore binary data
-			}
-		}
-
-		if(data != null)
-		{
-			newEntry.setSize(data.length);
-		}
-
-		myArchiveOutputStream.putArchiveEntry(newEntry.getItem());
-
-		if(data != null)
-		{
-			IOUtils.copy(new ByteArrayInputStream(data), myArchiveOutputStream);
-		}
+		return ArchiveSink.createEntry(mySinks, name, tempEntry);
+	}
 
-		myArchiveOutputStream.closeArchiveEntry();
+	@Override
+	protected void copyEntry(InputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends List<ArchiveEntryWrapper<? extends ArchiveEntry>>> newEntry) throws IOException
+	{
+		ArchiveSink.copyEntry(mySinks, ais, tempEntry, (ArchiveEntryWrapper.Multi) newEntry);
 	}
 }
@@ -19,20 +19,25 @@ package jenkins.consulo.postBuild.consuloArtifactTask.jre;
 import com.github.gino0631.xar.XarArchive;
 import hudson.FilePath;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jenkins.consulo.postBuild.consuloArtifactTask.BufferArena;
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryRules;
+import jenkins.consulo.postBuild.consuloArtifactTask.StagingBuffer;
+import jenkins.consulo.postBuild.consuloArtifactTask.TargetMetrics;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashSet;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import static jenkins.consulo.postBuild.consuloArtifactTask.Generator.ourBuildSNAPSHOT;
 
@@ -52,10 +57,20 @@ public abstract class BundledJRE<E>
 			"Contents/Home/lib/src.zip",
 	};
 
+	// relative to java home. Zip and cpio archives do not store mode
+	private static final String[] ourExecutableFromJre = {
+			"bin/",
+			"lib/jspawnhelper",
+			"lib/jexec",
+	};
+
 	private int myBuildNumber;
 	private final ArchiveStreamFactory myArchiveStreamFactory;
 	private final FilePath myJdkArchivePath;
 	private final boolean myIsMac;
+	@Nullable
+	private TargetMetrics myMetrics;
+	private BufferArena myArena = BufferArena.getInstance();
 
 	public BundledJRE(int buildNumber, ArchiveStreamFactory archiveStreamFactory, FilePath jdkArchivePath, boolean isMac)
 	{
@@ -65,140 +80,272 @@ public abstract class BundledJRE<E>
 		myIsMac = isMac;
 	}
 
-	public void build() throws Exception
+	public void setMetrics(@Nullable TargetMetrics metrics)
 	{
-		final String[] rootDirectoryRef = new String[2];
+		myMetrics = metrics;
+	}
 
-		openAndProcessJreArchive(myJdkArchivePath, myArchiveStreamFactory, new ArchiveInputStreamProcessor()
+	/**
+	 * @param arena arena for entries, which are read before root directory is known
+	 */
+	public void setArena(BufferArena arena)
+	{
+		myArena = arena;
+	}
+
+	@Nullable
+	protected TargetMetrics getMetrics()
+	{
+		return myMetrics;
+	}
+
+	/**
+	 * Entry which is read before root directory is known. Data is stored in {@link BufferArena}, or in temp file if it's big
+	 */
+	private static class DeferredEntry implements Closeable
+	{
+		private final ArchiveEntry myEntry;
+		private final StagingBuffer myData;
+
+		private DeferredEntry(ArchiveEntry entry, InputStream in, BufferArena arena) throws IOException
 		{
-			@Override
-			public void run(ArchiveInputStream stream) throws IOException
+			myEntry = entry;
+			myData = arena.newBuffer("consulo-jre-entry");
+			try
 			{
-				ArchiveEntry tempEntry = stream.getNextEntry();
-				while(tempEntry != null)
+				if(!entry.isDirectory())
 				{
-					final String name = skipStartEntry(tempEntry.getName());
-					if(!name.isEmpty())
-					{
-						if(tempEntry.isDirectory())
-						{
-							rootDirectoryRef[0] = name;
-							rootDirectoryRef[1] = tempEntry.getName();
-							break;
-						}
-
-						if(!tempEntry.isDirectory() && name.contains("/bin/"))
-						{
-							String rootPath = name.substring(0, name.indexOf('/'));
-							rootDirectoryRef[0] = rootPath + "/";
-							rootDirectoryRef[1] = rootDirectoryRef[0];
-						}
-					}
-
-					tempEntry = stream.getNextEntry();
+					IOUtils.copyLarge(in, myData);
 				}
 			}
-		});
+			finally
+			{
+				myData.close();
+			}
+		}
 
-		if(rootDirectoryRef[0] == null)
+		private InputStream openStream() throws IOException
 		{
-			throw new IOException("Can't find root directory");
+			return myData.openStream();
 		}
 
-		// if jre archive is zip, path will be jdk-17/
-		final String rootPath = rootDirectoryRef[0];
-		// but if archive is tar, path will be ./jdk-17/, we need it for correct skipping
-		final String originalRootPath = rootDirectoryRef[1];
+		@Override
+		public void close() throws IOException
+		{
+			myData.dispose();
+		}
+	}
+
+	/**
+	 * Archive is read once. Root directory is the first directory entry - usually it's first entry of archive. Entries before it are deferred, and copied after root is known.
+	 * If archive has no directory entries, root is taken from path of last <code>bin/</code> file
+	 */
+	public void build() throws Exception
+	{
+		if(myMetrics != null)
+		{
+			myMetrics.addBytesRead(myJdkArchivePath.length());
+		}
 
 		openAndProcessJreArchive(myJdkArchivePath, myArchiveStreamFactory, new ArchiveInputStreamProcessor()
 		{
 			@Override
 			public void run(ArchiveInputStream ais) throws IOException
 			{
-				ArchiveEntry tempEntry = ais.getNextEntry();
-				while(tempEntry != null)
+				List<DeferredEntry> deferredEntries = new ArrayList<>();
+				try
 				{
-					final String name = skipStartEntry(tempEntry.getName());
-
-					if(isUselessFile(name))
-					{
-						tempEntry = ais.getNextEntry();
-						continue;
-					}
-
-					String[] skipSuffixes = myIsMac ? ourMacSkipListFromJre : ourWinLinuxSkipListFromJre;
-					Set<String> skipPaths = new HashSet<>();
-					for(String skip : skipSuffixes)
-					{
-						skipPaths.add(rootPath + skip);
-					}
+					// if jre archive is zip, path will be jdk-17/, but if archive is tar, path will be ./jdk-17/
+					String rootPath = null;
+					String binRootPath = null;
+					EntryRules rules = null;
 
-					if(myIsMac)
+					ArchiveEntry tempEntry = ais.getNextEntry();
+					while(tempEntry != null)
 					{
-						// dot used in pkg, without root entry like jdk17_1
-						if(name.startsWith(rootPath) || rootPath.equals("."))
+						if(Thread.interrupted())
 						{
-							// do not allow replace dot for all files inside archive
-							String correctName = rootPath.equals(".") ? "jdk/" + name : name.replace(rootPath, "jdk/");
+							throw new InterruptedIOException();
+						}
 
-							if(needAddToArchive(name, skipPaths))
+						if(rootPath == null)
+						{
+							final String name = skipStartEntry(tempEntry.getName());
+							if(!name.isEmpty())
 							{
-								ArchiveEntryWrapper<? extends E> jdkEntry = createEntry("Consulo.app/Contents/platform/buildSNAPSHOT/jre/" + correctName, tempEntry);
-								jdkEntry.setMode(extractMode(tempEntry));
-								jdkEntry.setTime(tempEntry.getLastModifiedDate().getTime());
+								if(tempEntry.isDirectory())
+								{
+									rootPath = name;
+									rules = compileRules(rootPath);
+									copyDeferredEntries(deferredEntries, rules);
+								}
+								else if(name.contains("/bin/"))
+								{
+									binRootPath = name.substring(0, name.indexOf('/')) + "/";
+								}
+							}
 
-								copyEntry(ais, tempEntry, jdkEntry);
+							if(rootPath == null)
+							{
+								deferredEntries.add(new DeferredEntry(tempEntry, ais, myArena));
+								tempEntry = ais.getNextEntry();
+								continue;
 							}
 						}
+
+						processEntry(ais, tempEntry, rules);
+
+						tempEntry = ais.getNextEntry();
 					}
-					else
+
+					if(rootPath == null)
 					{
-						if(name.startsWith(rootPath))
+						if(binRootPath == null)
 						{
-							if(needAddToArchive(name, skipPaths))
-							{
-								String correctName = name.replace(rootPath, "jre/");
-
-								final ArchiveEntryWrapper<? extends E> jdkEntry = createEntry("Consulo/platform/buildSNAPSHOT/" + correctName, tempEntry);
-								jdkEntry.setMode(extractMode(tempEntry));
-								jdkEntry.setTime(tempEntry.getLastModifiedDate().getTime());
-
-								copyEntry(ais, tempEntry, jdkEntry);
-							}
+							throw new IOException("Can't find root directory");
 						}
-					}
 
-					tempEntry = ais.getNextEntry();
+						copyDeferredEntries(deferredEntries, compileRules(binRootPath));
+					}
+				}
+				finally
+				{
+					for(DeferredEntry deferredEntry : deferredEntries)
+					{
+						deferredEntry.close();
+					}
 				}
 			}
 		});
 	}
 
-	@Nonnull
-	protected abstract ArchiveEntryWrapper<? extends E> createEntry(String name, ArchiveEntry tempEntry);
-
-	protected abstract void copyEntry(ArchiveInputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends E> newEntry) throws IOException;
+	private void copyDeferredEntries(List<DeferredEntry> deferredEntries, EntryRules rules) throws IOException
+	{
+		for(DeferredEntry deferredEntry : deferredEntries)
+		{
+			try (InputStream stream = deferredEntry.openStream())
+			{
+				processEntry(stream, deferredEntry.myEntry, rules);
+			}
+		}
+	}
 
-	protected String replaceBuildDirectory(String entryName)
+	/**
+	 * Rules for entries of jdk archive. Entries outside root directory are skipped, root directory is moved to jre directory of distribution
+	 */
+	private EntryRules compileRules(String rootPath)
 	{
-		if(entryName.contains(ourBuildSNAPSHOT))
+		// dot used in pkg, without root entry like jdk17_1
+		String rootPrefix = rootPath.equals(".") ? "" : rootPath;
+
+		String targetPrefix;
+		String homePrefix;
+		if(myIsMac)
 		{
-			return entryName.replace(ourBuildSNAPSHOT, "build" + myBuildNumber);
+			targetPrefix = "Consulo.app/Contents/platform/" + getBuildDirectoryName() + "/jre/jdk/";
+			homePrefix = "Contents/Home/";
 		}
-		return entryName;
+		else
+		{
+			targetPrefix = "Consulo/platform/" + getBuildDirectoryName() + "/jre/";
+			homePrefix = "";
+		}
+
+		EntryRules.Builder builder = EntryRules.builder()
+				.skipUnmatched()
+				.skipName(".")
+				.skipSuffix(".pdb")
+				.skipSuffix(".DS_Store")
+				.skipSuffix(".dSYM");
+
+		// if jre archive is zip, path will be jdk-17/, but if archive is tar, path will be ./jdk-17/
+		for(String prefix : new String[]{rootPrefix, "./" + rootPrefix})
+		{
+			builder.renamePrefix(prefix, targetPrefix);
+
+			for(String skip : myIsMac ? ourMacSkipListFromJre : ourWinLinuxSkipListFromJre)
+			{
+				builder.skipPrefix(prefix + skip);
+			}
+
+			for(String executable : ourExecutableFromJre)
+			{
+				builder.mode(prefix + homePrefix + executable, 0b111_101_101);
+			}
+		}
+		return builder.build();
 	}
 
+	private void processEntry(InputStream ais, ArchiveEntry tempEntry, EntryRules rules) throws IOException
+	{
+		EntryRules.Match match = rules.match(tempEntry.getName(), tempEntry.isDirectory());
+		if(match.isSkipped())
+		{
+			return;
+		}
+
+		ArchiveEntryWrapper<? extends E> jdkEntry = createEntry(match.getName(), tempEntry);
+		jdkEntry.setMode(match.getMode(extractMode(tempEntry)));
+		jdkEntry.setTime(tempEntry.getLastModifiedDate().getTime());
+
+		copyEntry(ais, tempEntry, jdkEntry);
+	}
 
-	protected static boolean needAddToArchive(String name, Set<String> paths)
+	/**
+	 * Copy entries from already filtered jre, see {@link JreCache}. Entry names are final, except build directory - filtered jre always use buildSNAPSHOT
+	 */
+	public void replay(FilePath filteredJre) throws Exception
 	{
-		for(String prefix : paths)
+		if(myMetrics != null)
+		{
+			myMetrics.addBytesRead(filteredJre.length());
+		}
+
+		EntryRules.Builder builder = EntryRules.builder();
+		if(!getBuildDirectoryName().equals(ourBuildSNAPSHOT))
 		{
-			if(name.startsWith(prefix))
+			builder.replace(ourBuildSNAPSHOT, getBuildDirectoryName());
+		}
+		EntryRules rules = builder.build();
+
+		try (InputStream is = new BufferedInputStream(filteredJre.read(), 64 * 1024);
+			 TarArchiveInputStream ais = new TarArchiveInputStream(is))
+		{
+			TarArchiveEntry tempEntry = ais.getNextEntry();
+			while(tempEntry != null)
 			{
-				return false;
+				if(Thread.interrupted())
+				{
+					throw new InterruptedIOException();
+				}
+
+				ArchiveEntryWrapper<? extends E> jdkEntry = createEntry(rules.match(tempEntry.getName(), tempEntry.isDirectory()).getName(), tempEntry);
+				jdkEntry.setMode(extractMode(tempEntry));
+				jdkEntry.setTime(tempEntry.getLastModifiedDate().getTime());
+
+				copyEntry(ais, tempEntry, jdkEntry);
+
+				tempEntry = ais.getNextEntry();
 			}
 		}
-		return true;
+	}
+
+	@Nonnull
+	protected abstract ArchiveEntryWrapper<? extends E> createEntry(String name, ArchiveEntry tempEntry);
+
+	protected abstract void copyEntry(InputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends E> newEntry) throws IOException;
+
+	/**
+	 * @return name of build directory inside distribution, which contains jre
+	 */
+	protected String getBuildDirectoryName()
+	{
+		return ourBuildSNAPSHOT;
+	}
+
+	protected int getBuildNumber()
+	{
+		return myBuildNumber;
 	}
 
 	protected static int extractMode(ArchiveEntry entry)
@@ -277,9 +424,4 @@ public abstract class BundledJRE<E>
 		}
 		return name;
 	}
-
-	private static boolean isUselessFile(String path)
-	{
-		return path.endsWith(".pdb") || path.endsWith(".DS_Store") || path.contains(".dSYM/") || path.equals(".");
-	}
 }
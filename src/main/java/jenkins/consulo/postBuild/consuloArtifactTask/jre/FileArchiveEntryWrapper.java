@@ -16,17 +16,16 @@
 
 package jenkins.consulo.postBuild.consuloArtifactTask.jre;
 
-import hudson.FilePath;
-
-import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * @author VISTALL
  * @since 22/05/2023
  */
-public class FileArchiveEntryWrapper extends ArchiveEntryWrapper<FilePath>
+public class FileArchiveEntryWrapper extends ArchiveEntryWrapper<Path>
 {
-	public FileArchiveEntryWrapper(FilePath targetPath)
+	public FileArchiveEntryWrapper(Path targetPath)
 	{
 		super(targetPath);
 	}
@@ -34,14 +33,7 @@ public class FileArchiveEntryWrapper extends ArchiveEntryWrapper<FilePath>
 	@Override
 	public boolean isDirectory()
 	{
-		try
-		{
-			return myItem.isDirectory();
-		}
-		catch(IOException | InterruptedException e)
-		{
-			throw new RuntimeException(e);
-		}
+		return Files.isDirectory(myItem);
 	}
 
 	@Override
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.jre;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jakarta.annotation.Nonnull;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryContent;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node local cache of filtered jre. Key is SHA-256 of jdk archive, value is uncompressed tar with entries
+ * which passed skip lists, with final names (only build directory is not replaced). Replay of this tar
+ * not require decompression and filtering of jdk archive
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class JreCache
+{
+	private static class Sha256Callable extends MasterToSlaveFileCallable<String>
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public String invoke(File f, VirtualChannel channel) throws IOException
+		{
+			MessageDigest digest = sha256();
+			try (InputStream stream = Files.newInputStream(f.toPath()))
+			{
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while((read = stream.read(buffer)) != -1)
+				{
+					digest.update(buffer, 0, read);
+				}
+			}
+			return toHex(digest.digest());
+		}
+	}
+
+	private static class FilteredJreWriter extends BundledJRE<TarArchiveEntry>
+	{
+		private final TarArchiveOutputStream myOutputStream;
+
+		private FilteredJreWriter(ArchiveStreamFactory archiveStreamFactory, FilePath jdkArchivePath, boolean isMac, TarArchiveOutputStream outputStream)
+		{
+			super(0, archiveStreamFactory, jdkArchivePath, isMac);
+			myOutputStream = outputStream;
+		}
+
+		@Nonnull
+		@Override
+		protected ArchiveEntryWrapper<TarArchiveEntry> createEntry(String name, ArchiveEntry tempEntry)
+		{
+			return new ArchiveEntryWrapper.Tar(name, tempEntry);
+		}
+
+		@Override
+		protected void copyEntry(InputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends TarArchiveEntry> newEntry) throws IOException
+		{
+			TarArchiveEntry entry = newEntry.getItem();
+
+			if(tempEntry instanceof CpioArchiveEntry && ((CpioArchiveEntry) tempEntry).isSymbolicLink())
+			{
+				// cpio store link target as entry data
+				entry.setLinkName(new String(IOUtils.toByteArray(ais), StandardCharsets.UTF_8));
+				entry.setSize(0);
+			}
+
+			if(entry.isDirectory() || entry.isSymbolicLink() || entry.isLink())
+			{
+				myOutputStream.putArchiveEntry(entry);
+				myOutputStream.closeArchiveEntry();
+				return;
+			}
+
+			// data is stored as is, line ends are converted while replay
+			try (EntryContent content = EntryContent.readRaw(ais, tempEntry.getSize(), true))
+			{
+				entry.setSize(content.getSize());
+
+				myOutputStream.putArchiveEntry(entry);
+				content.writeTo(myOutputStream);
+				myOutputStream.closeArchiveEntry();
+			}
+		}
+	}
+
+	private static final String ourFormatVersion = "v1";
+
+	private static final long ourMaxUnusedTime = TimeUnit.DAYS.toMillis(30);
+
+	private final FilePath myDirectory;
+	private final ArchiveStreamFactory myArchiveStreamFactory = new ArchiveStreamFactory();
+	private final ConcurrentMap<String, Object> myLocks = new ConcurrentHashMap<>();
+	// remote path + size + modification time -> SHA-256
+	private final ConcurrentMap<String, String> myHashes = new ConcurrentHashMap<>();
+
+	public JreCache(FilePath directory)
+	{
+		myDirectory = directory;
+	}
+
+	/**
+	 * @return tar with filtered jre entries, which can be passed to {@link BundledJRE#replay(FilePath)}
+	 */
+	public FilePath getFilteredJre(FilePath jdkArchivePath, boolean isMac, TaskListener listener) throws Exception
+	{
+		String key = getHash(jdkArchivePath) + "-" + (isMac ? "mac" : "jre") + "-" + ourFormatVersion;
+
+		FilePath cachedJre = myDirectory.child(key + ".tar");
+
+		synchronized(myLocks.computeIfAbsent(key, k -> new Object()))
+		{
+			if(cachedJre.exists())
+			{
+				listener.getLogger().println("JRE: using cached " + jdkArchivePath.getName());
+				// used by eviction
+				cachedJre.touch(System.currentTimeMillis());
+				return cachedJre;
+			}
+
+			listener.getLogger().println("JRE: caching " + jdkArchivePath.getName());
+
+			myDirectory.mkdirs();
+
+			FilePath tempFile = myDirectory.createTempFile(key, ".tmp");
+			try
+			{
+				try (TarArchiveOutputStream outputStream = new TarArchiveOutputStream(new BufferedOutputStream(tempFile.write(), 64 * 1024)))
+				{
+					outputStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+					outputStream.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+					new FilteredJreWriter(myArchiveStreamFactory, jdkArchivePath, isMac, outputStream).build();
+
+					outputStream.finish();
+				}
+
+				tempFile.renameTo(cachedJre);
+			}
+			catch(Exception e)
+			{
+				tempFile.delete();
+				throw e;
+			}
+
+			evictUnused(cachedJre);
+		}
+		return cachedJre;
+	}
+
+	private String getHash(FilePath jdkArchivePath) throws IOException, InterruptedException
+	{
+		String fileKey = jdkArchivePath.getRemote() + ":" + jdkArchivePath.length() + ":" + jdkArchivePath.lastModified();
+
+		String hash = myHashes.get(fileKey);
+		if(hash == null)
+		{
+			hash = jdkArchivePath.act(new Sha256Callable());
+			myHashes.put(fileKey, hash);
+		}
+		return hash;
+	}
+
+	private void evictUnused(FilePath current) throws IOException, InterruptedException
+	{
+		long now = System.currentTimeMillis();
+		for(FilePath file : myDirectory.list())
+		{
+			if(file.getName().equals(current.getName()))
+			{
+				continue;
+			}
+
+			// temp files can be left by killed build
+			long maxAge = file.getName().endsWith(".tmp") ? TimeUnit.DAYS.toMillis(1) : ourMaxUnusedTime;
+			if(now - file.lastModified() > maxAge)
+			{
+				file.delete();
+			}
+		}
+	}
+
+	public static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static String toHex(byte[] bytes)
+	{
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes)
+		{
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+}
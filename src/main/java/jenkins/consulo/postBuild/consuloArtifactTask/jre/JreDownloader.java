@@ -0,0 +1,359 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.jre;
+
+import hudson.remoting.VirtualChannel;
+import jakarta.annotation.Nullable;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download jdk archive to directory on node where this directory exists.
+ * <p>
+ * Already downloaded file is revalidated by ETag/Last-Modified, partially downloaded file is resumed by Range request. File is stored in
+ * subdirectory of url - different urls with same file name do not overwrite each other.
+ * Url can contains expected SHA-256 of file - {@code https://host/jdk.zip#sha256=<hex>}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class JreDownloader extends MasterToSlaveFileCallable<JreDownloader.Result>
+{
+	public static class Result implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String myPath;
+		private final String myFileName;
+		private final String myStatus;
+
+		public Result(String path, String fileName, String status)
+		{
+			myPath = path;
+			myFileName = fileName;
+			myStatus = status;
+		}
+
+		/**
+		 * @return path of downloaded file relative to download directory
+		 */
+		public String getPath()
+		{
+			return myPath;
+		}
+
+		public String getFileName()
+		{
+			return myFileName;
+		}
+
+		public String getStatus()
+		{
+			return myStatus;
+		}
+	}
+
+	/**
+	 * Server returned other range than requested, or requested range is not satisfiable - download must be restarted
+	 */
+	private static class RangeMismatchException extends IOException
+	{
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String ourSha256Marker = "#sha256=";
+
+	private static final int ourTimeout = (int) TimeUnit.MINUTES.toMillis(10);
+
+	// not defined by HttpURLConnection
+	private static final int ourRangeNotSatisfiable = 416;
+
+	private final String myUrl;
+	@Nullable
+	private final String myExpectedSha256;
+
+	public JreDownloader(String urlWithChecksum)
+	{
+		int index = urlWithChecksum.indexOf(ourSha256Marker);
+		if(index != -1)
+		{
+			myUrl = urlWithChecksum.substring(0, index);
+			myExpectedSha256 = urlWithChecksum.substring(index + ourSha256Marker.length()).trim().toLowerCase();
+		}
+		else
+		{
+			myUrl = urlWithChecksum;
+			myExpectedSha256 = null;
+		}
+	}
+
+	public String getUrl()
+	{
+		return myUrl;
+	}
+
+	@Override
+	public Result invoke(File directory, VirtualChannel channel) throws IOException
+	{
+		return download(directory);
+	}
+
+	public Result download(File directory) throws IOException
+	{
+		Path dir = directory.toPath();
+		Files.createDirectories(dir);
+
+		String id = JreCache.toHex(JreCache.sha256().digest(myUrl.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+
+		// other builds on same node can download same url
+		try (FileChannel lockChannel = FileChannel.open(dir.resolve(id + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+		{
+			FileLock lock = lockChannel.lock();
+			try
+			{
+				return download(dir, id, true);
+			}
+			catch(RangeMismatchException e)
+			{
+				Files.deleteIfExists(dir.resolve(id + ".part"));
+				return download(dir, id, false);
+			}
+			finally
+			{
+				lock.release();
+			}
+		}
+	}
+
+	private Result download(Path dir, String id, boolean allowResume) throws IOException
+	{
+		Path metaFile = dir.resolve(id + ".properties");
+		Path partFile = dir.resolve(id + ".part");
+		Path fileDir = dir.resolve(id);
+
+		Properties meta = new Properties();
+		if(Files.exists(metaFile))
+		{
+			try (InputStream stream = Files.newInputStream(metaFile))
+			{
+				meta.load(stream);
+			}
+		}
+
+		String fileName = meta.getProperty("fileName");
+		String etag = meta.getProperty("etag");
+		String lastModified = meta.getProperty("lastModified");
+		boolean complete = Boolean.parseBoolean(meta.getProperty("complete")) && fileName != null && Files.isRegularFile(fileDir.resolve(fileName));
+
+		HttpURLConnection connection = (HttpURLConnection) new URL(myUrl).openConnection();
+		connection.setConnectTimeout(ourTimeout);
+		connection.setReadTimeout(ourTimeout);
+
+		long resumeFrom = 0;
+		if(complete)
+		{
+			if(etag != null)
+			{
+				connection.setRequestProperty("If-None-Match", etag);
+			}
+			if(lastModified != null)
+			{
+				connection.setRequestProperty("If-Modified-Since", lastModified);
+			}
+		}
+		else if(allowResume && Files.exists(partFile) && (etag != null || lastModified != null))
+		{
+			resumeFrom = Files.size(partFile);
+			connection.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+			// if file changed - server will return full file
+			connection.setRequestProperty("If-Range", etag != null ? etag : lastModified);
+		}
+
+		try
+		{
+			int code = connection.getResponseCode();
+			if(code == HttpURLConnection.HTTP_NOT_MODIFIED && complete)
+			{
+				checkSha256(meta.getProperty("sha256"));
+				return new Result(id + "/" + fileName, fileName, "not modified " + fileName);
+			}
+
+			boolean append = false;
+			if(code == HttpURLConnection.HTTP_PARTIAL && resumeFrom > 0)
+			{
+				String contentRange = connection.getHeaderField("Content-Range");
+				if(contentRange == null || !contentRange.startsWith("bytes " + resumeFrom + "-"))
+				{
+					throw new RangeMismatchException();
+				}
+				append = true;
+			}
+			else if(code == ourRangeNotSatisfiable && resumeFrom > 0)
+			{
+				// part file has all data, if build was killed before it's moved
+				throw new RangeMismatchException();
+			}
+			else if(code != HttpURLConnection.HTTP_OK)
+			{
+				throw new IOException("Failed to download " + myUrl + ", Status Code: " + code);
+			}
+
+			String newFileName = append ? fileName : getFileName(connection);
+
+			MessageDigest digest = JreCache.sha256();
+			if(append)
+			{
+				try (InputStream stream = Files.newInputStream(partFile))
+				{
+					update(digest, stream, null);
+				}
+			}
+			else
+			{
+				meta.clear();
+				putIfNotNull(meta, "etag", connection.getHeaderField("ETag"));
+				putIfNotNull(meta, "lastModified", connection.getHeaderField("Last-Modified"));
+				meta.setProperty("fileName", newFileName);
+				meta.setProperty("url", myUrl);
+				// allow resume if download will be interrupted
+				storeMeta(metaFile, meta);
+			}
+
+			long length = connection.getContentLengthLong();
+			long received;
+			try (InputStream stream = connection.getInputStream();
+				 OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						 append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING), 64 * 1024))
+			{
+				received = update(digest, stream, out);
+			}
+
+			// closed connection is end of stream for HttpURLConnection, part file is resumed by next download
+			if(length >= 0 && received != length)
+			{
+				throw new IOException("Download of " + myUrl + " is interrupted, received " + received + " of " + length + " bytes");
+			}
+
+			String sha256 = JreCache.toHex(digest.digest());
+			try
+			{
+				checkSha256(sha256);
+			}
+			catch(IOException e)
+			{
+				Files.deleteIfExists(partFile);
+				Files.deleteIfExists(metaFile);
+				throw e;
+			}
+
+			Files.createDirectories(fileDir);
+			Files.move(partFile, fileDir.resolve(newFileName), StandardCopyOption.REPLACE_EXISTING);
+			if(fileName != null && !fileName.equals(newFileName))
+			{
+				Files.deleteIfExists(fileDir.resolve(fileName));
+			}
+
+			meta.setProperty("sha256", sha256);
+			meta.setProperty("complete", "true");
+			storeMeta(metaFile, meta);
+
+			return new Result(id + "/" + newFileName, newFileName, (append ? "resumed " : "downloaded ") + newFileName + " (sha256: " + sha256 + ")");
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	private void checkSha256(@Nullable String actual) throws IOException
+	{
+		if(myExpectedSha256 != null && !myExpectedSha256.equals(actual))
+		{
+			throw new IOException("SHA-256 of " + myUrl + " is " + actual + ", but expected " + myExpectedSha256);
+		}
+	}
+
+	private String getFileName(HttpURLConnection connection) throws IOException
+	{
+		String contentDisposition = connection.getHeaderField("Content-Disposition");
+		if(contentDisposition != null)
+		{
+			return sanitizeFileName(contentDisposition.replaceFirst("(?i)^.*filename=\"?([^\"]+)\"?.*$", "$1"));
+		}
+		return sanitizeFileName(myUrl);
+	}
+
+	/**
+	 * File name is sent by server - only last path segment is used, file can't be written outside of download directory
+	 */
+	static String sanitizeFileName(String name) throws IOException
+	{
+		String fileName = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1).trim();
+		if(fileName.isEmpty() || fileName.equals(".") || fileName.equals(".."))
+		{
+			throw new IOException("Bad file name: " + name);
+		}
+		return fileName;
+	}
+
+	private static long update(MessageDigest digest, InputStream stream, @Nullable OutputStream out) throws IOException
+	{
+		byte[] buffer = new byte[64 * 1024];
+		long count = 0;
+		int read;
+		while((read = stream.read(buffer)) != -1)
+		{
+			digest.update(buffer, 0, read);
+			if(out != null)
+			{
+				out.write(buffer, 0, read);
+			}
+			count += read;
+		}
+		return count;
+	}
+
+	private static void putIfNotNull(Properties properties, String key, @Nullable String value)
+	{
+		if(value != null)
+		{
+			properties.setProperty(key, value);
+		}
+	}
+
+	private static void storeMeta(Path metaFile, Properties meta) throws IOException
+	{
+		try (OutputStream stream = Files.newOutputStream(metaFile))
+		{
+			meta.store(stream, null);
+		}
+	}
+}
@@ -16,96 +16,210 @@
 
 package jenkins.consulo.postBuild.consuloArtifactTask.jre;
 
-import com.Ostermiller.util.BinaryDataException;
-import com.Ostermiller.util.LineEnds;
 import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.consulo.postBuild.consuloArtifactTask.EntryContent;
+import jenkins.consulo.postBuild.consuloArtifactTask.TargetMetrics;
 import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
+ * Jre extracted to directory. Directory must be accessible by local file api - use {@link ExtractCallable} to run extraction on node of directory
+ *
  * @author VISTALL
  * @since 22/05/2023
  */
-public class LocalBundledJRE extends BundledJRE<FilePath>
+public class LocalBundledJRE extends BundledJRE<Path>
 {
-	private final FilePath myCurrentPath;
-
-	public LocalBundledJRE(int buildNumber, ArchiveStreamFactory archiveStreamFactory, FilePath jdkArchivePath, boolean isMac, FilePath currentPath)
+	/**
+	 * Extraction of all jre entries by one call on node of target directory
+	 */
+	public static class ExtractCallable extends MasterToSlaveFileCallable<TargetMetrics>
 	{
-		super(buildNumber, archiveStreamFactory, jdkArchivePath, isMac);
-		myCurrentPath = currentPath;
-	}
+		private static final long serialVersionUID = 1L;
 
-	@Nonnull
-	@Override
-	protected ArchiveEntryWrapper<FilePath> createEntry(String name, ArchiveEntry tempEntry)
-	{
-		FilePath parent = myCurrentPath.child(name);
-		return new FileArchiveEntryWrapper(parent);
-	}
+		private final int myBuildNumber;
+		private final FilePath myJdkArchivePath;
+		@Nullable
+		private final FilePath myFilteredJre;
+		private final String myTargetId;
 
-	@Override
-	protected void copyEntry(ArchiveInputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends FilePath> newEntry) throws IOException
-	{
-		FilePath item = newEntry.getItem();
-		if(!tempEntry.isDirectory())
+		/**
+		 * @param filteredJre if not null, entries are replayed from it, see {@link JreCache}
+		 */
+		public ExtractCallable(int buildNumber, FilePath jdkArchivePath, @Nullable FilePath filteredJre, String targetId)
+		{
+			myBuildNumber = buildNumber;
+			myJdkArchivePath = jdkArchivePath;
+			myFilteredJre = filteredJre;
+			myTargetId = targetId;
+		}
+
+		@Override
+		public TargetMetrics invoke(File f, VirtualChannel channel) throws IOException, InterruptedException
 		{
+			TargetMetrics metrics = new TargetMetrics(myTargetId);
+
+			LocalBundledJRE bundledJRE = new LocalBundledJRE(myBuildNumber, new ArchiveStreamFactory(), myJdkArchivePath, false, f.toPath());
+			bundledJRE.setMetrics(metrics);
 			try
 			{
-				item.getParent().mkdirs();
+				if(myFilteredJre != null)
+				{
+					bundledJRE.replay(myFilteredJre);
+				}
+				else
+				{
+					bundledJRE.build();
+				}
+			}
+			catch(IOException | InterruptedException e)
+			{
+				throw e;
 			}
-			catch(InterruptedException e)
+			catch(Exception e)
 			{
-				throw new RuntimeException(e);
+				throw new IOException(e);
 			}
+			return metrics;
+		}
+	}
 
-			byte[] data;
-			try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream())
+	/**
+	 * Output to file channel through reused direct buffer, file data is written by big blocks
+	 */
+	private static class ChannelOutputStream extends OutputStream
+	{
+		private final FileChannel myChannel;
+		private final ByteBuffer myBuffer;
+
+		private ChannelOutputStream(FileChannel channel, ByteBuffer buffer)
+		{
+			myChannel = channel;
+			myBuffer = buffer;
+			myBuffer.clear();
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if(!myBuffer.hasRemaining())
 			{
-				IOUtils.copy(ais, byteStream);
-				data = byteStream.toByteArray();
+				flushBuffer();
 			}
+			myBuffer.put((byte) b);
+		}
 
-			// change line breaks
-			try (ByteArrayOutputStream stream = new ByteArrayOutputStream())
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while(len > 0)
 			{
-				if(LineEnds.convert(new ByteArrayInputStream(data), stream, LineEnds.STYLE_UNIX))
+				if(!myBuffer.hasRemaining())
 				{
-					data = stream.toByteArray();
+					flushBuffer();
 				}
-			}
-			catch(BinaryDataException ignored)
-			{
-				// ignore binary data
-			}
 
-			try (OutputStream stream = newEntry.getItem().write())
-			{
-				stream.write(data);
+				int count = Math.min(len, myBuffer.remaining());
+				myBuffer.put(b, off, count);
+				off += count;
+				len -= count;
 			}
-			catch(InterruptedException e)
+		}
+
+		private void flushBuffer() throws IOException
+		{
+			myBuffer.flip();
+			while(myBuffer.hasRemaining())
 			{
-				throw new RuntimeException(e);
+				myChannel.write(myBuffer);
 			}
+			myBuffer.clear();
 		}
-		else
+
+		@Override
+		public void close() throws IOException
 		{
 			try
 			{
-				item.mkdirs();
+				flushBuffer();
 			}
-			catch(InterruptedException e)
+			finally
 			{
-				throw new RuntimeException(e);
+				myChannel.close();
 			}
 		}
 	}
+
+	private static final int ourWriteBufferSize = 256 * 1024;
+
+	private final Path myCurrentPath;
+	// directories which are created already - parent of every file is created once
+	private final Set<Path> myCreatedDirectories = new HashSet<>();
+	private final ByteBuffer myWriteBuffer = ByteBuffer.allocateDirect(ourWriteBufferSize);
+
+	public LocalBundledJRE(int buildNumber, ArchiveStreamFactory archiveStreamFactory, FilePath jdkArchivePath, boolean isMac, Path currentPath)
+	{
+		super(buildNumber, archiveStreamFactory, jdkArchivePath, isMac);
+		myCurrentPath = currentPath;
+	}
+
+	@Nonnull
+	@Override
+	protected ArchiveEntryWrapper<Path> createEntry(String name, ArchiveEntry tempEntry)
+	{
+		return new FileArchiveEntryWrapper(myCurrentPath.resolve(name));
+	}
+
+	@Override
+	protected void copyEntry(InputStream ais, ArchiveEntry tempEntry, ArchiveEntryWrapper<? extends Path> newEntry) throws IOException
+	{
+		Path item = newEntry.getItem();
+		if(tempEntry.isDirectory())
+		{
+			createDirectories(item);
+			return;
+		}
+
+		long start = System.nanoTime();
+
+		createDirectories(item.getParent());
+		// file can be hard link of staging store, it must be replaced - not rewritten
+		Files.deleteIfExists(item);
+
+		try (EntryContent content = EntryContent.read(ais, tempEntry.getSize(), false);
+			 OutputStream stream = new ChannelOutputStream(FileChannel.open(item, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), myWriteBuffer))
+		{
+			content.writeTo(stream);
+		}
+
+		TargetMetrics metrics = getMetrics();
+		if(metrics != null)
+		{
+			metrics.addEntry(tempEntry.getName(), tempEntry.getSize(), System.nanoTime() - start);
+		}
+	}
+
+	private void createDirectories(Path directory) throws IOException
+	{
+		if(myCreatedDirectories.add(directory))
+		{
+			Files.createDirectories(directory);
+		}
+	}
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ArchiveSinkTest
+{
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	@Test
+	public void testSeveralLargeTextEntries() throws Exception
+	{
+		copyLargeEntries(BufferArena.getInstance());
+	}
+
+	@Test
+	public void testSpilledEntries() throws Exception
+	{
+		// arena of build, entries are staged in temp files
+		BufferArena arena = new BufferArena(2 * BufferArena.CHUNK_SIZE, 1024 * 1024);
+		copyLargeEntries(arena);
+
+		String statistics = arena.resetStatistics();
+		assertTrue(statistics, statistics.contains(" 3 entries spilled to disk"));
+	}
+
+	private void copyLargeEntries(BufferArena arena) throws Exception
+	{
+		// entries bigger than lookahead window are staged, source stream must stay open for next entries
+		Map<String, byte[]> source = new LinkedHashMap<>();
+		source.put("consulo/bin/first.txt", text("first", 2 * 1024 * 1024));
+		source.put("consulo/bin/second.txt", text("second", 3 * 1024 * 1024 + 17));
+		source.put("consulo/lib/binary.dat", binary(1024 * 1024));
+		source.put("consulo/bin/third.txt", text("third", 2 * 1024 * 1024 + 5));
+
+		ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
+		ByteArrayOutputStream tarFile = new ByteArrayOutputStream();
+
+		ArchiveStreamFactory factory = new ArchiveStreamFactory();
+		try (ArchiveSink zipSink = new ArchiveSink(new ArchiveOutput("test.zip", ArchiveStreamFactory.ZIP), zipFile, factory);
+			 ArchiveSink tarSink = new ArchiveSink(new ArchiveOutput("test.tar", ArchiveStreamFactory.TAR), tarFile, factory))
+		{
+			List<ArchiveSink> sinks = Arrays.asList(zipSink, tarSink);
+			for(ArchiveSink sink : sinks)
+			{
+				sink.setArena(arena);
+			}
+
+			// file stream fails if it's read after close
+			File sourceFile = myTemp.newFile("source.tar");
+			Files.write(sourceFile.toPath(), tar(source));
+
+			try (TarArchiveInputStream ais = new TarArchiveInputStream(Files.newInputStream(sourceFile.toPath())))
+			{
+				TarArchiveEntry tempEntry;
+				while((tempEntry = ais.getNextEntry()) != null)
+				{
+					ArchiveSink.copyEntry(sinks, ais, tempEntry, ArchiveSink.createEntry(sinks, tempEntry.getName(), tempEntry));
+				}
+			}
+
+			zipSink.finish();
+			tarSink.finish();
+		}
+
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+		for(Map.Entry<String, byte[]> entry : source.entrySet())
+		{
+			byte[] data = entry.getValue();
+			expected.put(entry.getKey(), entry.getKey().endsWith(".txt") ? unix(data) : data);
+		}
+
+		assertEntries(expected, new ZipArchiveInputStream(new ByteArrayInputStream(zipFile.toByteArray())));
+		assertEntries(expected, new TarArchiveInputStream(new ByteArrayInputStream(tarFile.toByteArray())));
+	}
+
+	private static void assertEntries(Map<String, byte[]> expected, ArchiveInputStream<?> ais) throws IOException
+	{
+		try (InputStream ignored = ais)
+		{
+			Map<String, byte[]> actual = new LinkedHashMap<>();
+			ArchiveEntry entry;
+			while((entry = ais.getNextEntry()) != null)
+			{
+				actual.put(entry.getName(), IOUtils.toByteArray(ais));
+			}
+
+			assertEquals(expected.keySet(), actual.keySet());
+			for(Map.Entry<String, byte[]> expectedEntry : expected.entrySet())
+			{
+				assertArrayEquals(expectedEntry.getKey(), expectedEntry.getValue(), actual.get(expectedEntry.getKey()));
+			}
+		}
+	}
+
+	private static byte[] tar(Map<String, byte[]> entries) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(out))
+		{
+			for(Map.Entry<String, byte[]> entry : entries.entrySet())
+			{
+				TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
+				tarEntry.setSize(entry.getValue().length);
+				tar.putArchiveEntry(tarEntry);
+				tar.write(entry.getValue());
+				tar.closeArchiveEntry();
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] text(String prefix, int size)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+		int line = 0;
+		while(out.size() < size)
+		{
+			byte[] bytes = (prefix + " line " + line++ + "\r\n").getBytes(StandardCharsets.US_ASCII);
+			out.write(bytes, 0, Math.min(bytes.length, size - out.size()));
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] binary(int size)
+	{
+		byte[] data = new byte[size];
+		for(int i = 0; i < size; i++)
+		{
+			data[i] = (byte) (i * 31 + (i >> 8));
+		}
+		return data;
+	}
+
+	private static byte[] unix(byte[] data)
+	{
+		return new String(data, StandardCharsets.US_ASCII).replace("\r\n", "\n").replace('\r', '\n').getBytes(StandardCharsets.US_ASCII);
+	}
+}
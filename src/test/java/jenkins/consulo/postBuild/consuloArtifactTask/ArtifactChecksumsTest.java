@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import hudson.FilePath;
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.JreCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ArtifactChecksumsTest
+{
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	@Test
+	public void testCommitted() throws Exception
+	{
+		File file = myTemp.newFile("consulo.zip");
+		byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+
+		ArtifactChecksums checksums = new ArtifactChecksums();
+		try (ArtifactChecksums.ChecksumOutputStream stream = checksums.wrap(new FilePath(file), new FileOutputStream(file)))
+		{
+			stream.write(data);
+			stream.commit();
+		}
+
+		String sha256 = JreCache.toHex(JreCache.sha256().digest(data));
+		assertEquals(sha256, checksums.getSha256("consulo.zip"));
+		assertEquals(sha256, ArtifactChecksums.readSidecar(new FilePath(file)));
+	}
+
+	@Test
+	public void testNotCommitted() throws Exception
+	{
+		File file = myTemp.newFile("consulo.zip");
+		// sidecar of file which was written before
+		Files.write(new File(myTemp.getRoot(), "consulo.zip" + ArtifactChecksums.SIDECAR_EXTENSION).toPath(), "old *consulo.zip\n".getBytes(StandardCharsets.UTF_8));
+
+		ArtifactChecksums checksums = new ArtifactChecksums();
+		try (ArtifactChecksums.ChecksumOutputStream stream = checksums.wrap(new FilePath(file), new FileOutputStream(file)))
+		{
+			// failure after part of data is written
+			stream.write(1);
+		}
+
+		assertNull(checksums.getSha256("consulo.zip"));
+		assertNull(ArtifactChecksums.readSidecar(new FilePath(file)));
+	}
+
+	@Test
+	public void testCloseFailure() throws Exception
+	{
+		File file = myTemp.newFile("consulo.tar.gz");
+
+		ArtifactChecksums checksums = new ArtifactChecksums();
+		ArtifactChecksums.ChecksumOutputStream stream = checksums.wrap(new FilePath(file), new FilterOutputStream(new FileOutputStream(file))
+		{
+			@Override
+			public void close() throws IOException
+			{
+				super.close();
+				// for example, disk is full on flush
+				throw new IOException("No space left on device");
+			}
+		});
+
+		stream.write(1);
+		stream.commit();
+		try
+		{
+			stream.close();
+			fail();
+		}
+		catch(IOException ignored)
+		{
+		}
+
+		assertNull(checksums.getSha256("consulo.tar.gz"));
+		assertNull(ArtifactChecksums.readSidecar(new FilePath(file)));
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class CompressedEntryCacheTest
+{
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	@Test
+	public void testHitAndMiss() throws IOException
+	{
+		CompressedEntryCache cache = new CompressedEntryCache(myTemp.getRoot().toPath(), Long.MAX_VALUE, Deflater.DEFAULT_COMPRESSION, 0, null, 0);
+
+		byte[] data = data(64 * 1024, 1);
+		assertData(data, cache.getOrCompress(content(data)));
+		assertData(data, cache.getOrCompress(content(data)));
+
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testTruncatedEntry() throws IOException
+	{
+		Path directory = myTemp.getRoot().toPath();
+		CompressedEntryCache cache = new CompressedEntryCache(directory, Long.MAX_VALUE, Deflater.DEFAULT_COMPRESSION, 0, null, 0);
+
+		byte[] data = data(64 * 1024, 2);
+		cache.getOrCompress(content(data));
+
+		// for example, disk was full
+		for(Path file : cacheFiles(directory))
+		{
+			Files.write(file, new byte[5]);
+		}
+
+		assertData(data, cache.getOrCompress(content(data)));
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testEvictionWhileCacheIsUsed() throws IOException
+	{
+		Path directory = myTemp.getRoot().toPath();
+		// two builds on same node, cache of zero size
+		CompressedEntryCache cache1 = new CompressedEntryCache(directory, 0, Deflater.DEFAULT_COMPRESSION, 0, null, 0);
+		CompressedEntryCache cache2 = new CompressedEntryCache(directory, 0, Deflater.DEFAULT_COMPRESSION, 0, null, 0);
+
+		byte[] data = data(64 * 1024, 3);
+		cache1.getOrCompress(content(data));
+		CompressedEntryCache.Entry entry = cache2.getOrCompress(content(data));
+
+		assertFalse(cache1.evict());
+		assertEquals(1, cacheFiles(directory).size());
+		assertData(data, entry);
+
+		assertTrue(cache2.evict());
+		assertEquals(0, cacheFiles(directory).size());
+
+		// cache can be used after eviction
+		assertData(data, cache1.getOrCompress(content(data)));
+		assertTrue(cache1.evict());
+	}
+
+	private static List<Path> cacheFiles(Path directory) throws IOException
+	{
+		try (Stream<Path> stream = Files.list(directory))
+		{
+			return stream.filter(path -> path.getFileName().toString().endsWith(".deflate")).collect(Collectors.toList());
+		}
+	}
+
+	private static void assertData(byte[] expected, CompressedEntryCache.Entry entry) throws IOException
+	{
+		assertEquals(expected.length, entry.getSize());
+		try (InputStream stream = new InflaterInputStream(entry.openCompressed(), new Inflater(true)))
+		{
+			assertArrayEquals(expected, IOUtils.toByteArray(stream));
+		}
+	}
+
+	private static EntryContent content(byte[] data) throws IOException
+	{
+		return EntryContent.read(new ByteArrayInputStream(data), data.length, true, false, true);
+	}
+
+	private static byte[] data(int size, int seed)
+	{
+		byte[] data = new byte[size];
+		for(int i = 0; i < size; i++)
+		{
+			data[i] = (byte) ('a' + (i * seed) % 7);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class EntryPipelineTest
+{
+	/**
+	 * Output which block writer thread on first write, until it's released. Interruption of writer is not handled while it's blocked
+	 */
+	private static class BlockingOutputStream extends OutputStream
+	{
+		private final ByteArrayOutputStream myData = new ByteArrayOutputStream();
+		private final CountDownLatch myWriting = new CountDownLatch(1);
+		private final CountDownLatch myRelease = new CountDownLatch(1);
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			myWriting.countDown();
+
+			boolean interrupted = false;
+			while(true)
+			{
+				try
+				{
+					myRelease.await();
+					break;
+				}
+				catch(InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if(interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			myData.write(b, off, len);
+		}
+	}
+
+	private ExecutorService myWorkers;
+
+	@Before
+	public void setUp()
+	{
+		myWorkers = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown()
+	{
+		myWorkers.shutdownNow();
+	}
+
+	@Test(timeout = 60_000)
+	public void testEntriesAreWritten() throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ArchiveSink sink = new ArchiveSink(new ArchiveOutput("test.tar", ArchiveStreamFactory.TAR), out, new ArchiveStreamFactory()))
+		{
+			List<ArchiveSink> sinks = Collections.singletonList(sink);
+			try (EntryPipeline pipeline = new EntryPipeline(sinks, myWorkers, 2, null))
+			{
+				for(int i = 0; i < 20; i++)
+				{
+					submit(pipeline, sinks, i);
+				}
+				pipeline.finish();
+			}
+			sink.finish();
+		}
+
+		assertTrue(out.size() > 20 * 64 * 1024);
+	}
+
+	@Test(timeout = 60_000)
+	public void testInterruptedWriter() throws Exception
+	{
+		BlockingOutputStream out = new BlockingOutputStream();
+		try (ArchiveSink sink = new ArchiveSink(new ArchiveOutput("test.tar", ArchiveStreamFactory.TAR), out, new ArchiveStreamFactory()))
+		{
+			List<ArchiveSink> sinks = Collections.singletonList(sink);
+			try (EntryPipeline pipeline = new EntryPipeline(sinks, myWorkers, 1, null))
+			{
+				Thread reader = Thread.currentThread();
+				Thread controller = new Thread(() ->
+				{
+					try
+					{
+						out.myWriting.await();
+						// reader is blocked by full queue
+						while(reader.getState() != Thread.State.WAITING)
+						{
+							Thread.sleep(10);
+						}
+
+						// writer finish current entry with interrupted flag
+						pipeline.getWriter().interrupt();
+						out.myRelease.countDown();
+					}
+					catch(InterruptedException ignored)
+					{
+					}
+				});
+				controller.start();
+
+				try
+				{
+					for(int i = 0; i < 100; i++)
+					{
+						submit(pipeline, sinks, i);
+					}
+					pipeline.finish();
+					fail();
+				}
+				catch(IOException e)
+				{
+					assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof InterruptedException);
+				}
+
+				controller.join();
+			}
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void testInterruptedWhileWaitingForWorker() throws Exception
+	{
+		BufferArena arena = new BufferArena(16 * 1024 * 1024, 16 * 1024 * 1024);
+
+		ExecutorService workers = Executors.newSingleThreadExecutor();
+		try (ArchiveSink sink = new ArchiveSink(new ArchiveOutput("test.tar", ArchiveStreamFactory.TAR), new ByteArrayOutputStream(), new ArchiveStreamFactory()))
+		{
+			sink.setArena(arena);
+			List<ArchiveSink> sinks = Collections.singletonList(sink);
+
+			CountDownLatch release = new CountDownLatch(1);
+			// entry is not prepared until worker is released
+			workers.submit(() ->
+			{
+				release.await();
+				return null;
+			});
+
+			try (EntryPipeline pipeline = new EntryPipeline(sinks, workers, 4, null))
+			{
+				submit(pipeline, sinks, 0);
+				assertTrue(arena.getInUse() > 0);
+
+				while(!isWaitingForWorker(pipeline.getWriter()))
+				{
+					Thread.sleep(10);
+				}
+				pipeline.getWriter().interrupt();
+				release.countDown();
+
+				try
+				{
+					pipeline.finish();
+					fail();
+				}
+				catch(IOException e)
+				{
+					assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof InterruptedException);
+				}
+			}
+		}
+		finally
+		{
+			workers.shutdownNow();
+		}
+
+		// staged data of entry is released
+		assertEquals(0, arena.getInUse());
+	}
+
+	private static void submit(EntryPipeline pipeline, List<ArchiveSink> sinks, int index) throws IOException
+	{
+		byte[] data = new byte[64 * 1024 + index];
+		for(int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte) (i * 31 + index);
+		}
+
+		TarArchiveEntry entry = new TarArchiveEntry("consulo/lib/file" + index + ".bin");
+		entry.setSize(data.length);
+		pipeline.submit(new ByteArrayInputStream(data), entry, ArchiveSink.createEntry(sinks, entry.getName(), entry), null, 0, false);
+	}
+
+	private static boolean isWaitingForWorker(Thread writer)
+	{
+		if(writer.getState() != Thread.State.WAITING)
+		{
+			return false;
+		}
+
+		for(StackTraceElement element : writer.getStackTrace())
+		{
+			if(element.getClassName().equals(FutureTask.class.getName()) && element.getMethodName().equals("get"))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class EntryRulesTest
+{
+	@Test
+	public void testRuleAddedToNodeWithManyChildren()
+	{
+		EntryRules.Builder builder = EntryRules.builder();
+		for(char c = 'z'; c >= 'q'; c--)
+		{
+			builder.renamePrefix(c + "/", "renamed-" + c + "/");
+		}
+		// node of 'z/' exists, and root has more children than linear search limit
+		builder.mode("z/bin/", 0755);
+		builder.skipPrefix("a/");
+		EntryRules rules = builder.build();
+
+		EntryRules.Match match = rules.match("z/bin/x", false);
+		assertFalse(match.isSkipped());
+		assertEquals("renamed-z/bin/x", match.getName());
+		assertEquals(0755, match.getMode(0644));
+
+		for(char c = 'q'; c <= 'z'; c++)
+		{
+			assertEquals("renamed-" + c + "/file", rules.match(c + "/file", false).getName());
+		}
+		assertTrue(rules.match("a/file", false).isSkipped());
+		assertEquals(0644, rules.match("y/bin/x", false).getMode(0644));
+	}
+
+	@Test
+	public void testLongestPrefix()
+	{
+		EntryRules rules = EntryRules.builder()
+				.skipUnmatched()
+				.renamePrefix("dist/", "Consulo/")
+				.renamePrefix("dist/mac/", "Consulo.app/")
+				.mode("dist/bin/", 0755)
+				.mode("dist/bin/data/", 0644)
+				.build();
+
+		assertEquals("Consulo/lib/a.jar", rules.match("dist/lib/a.jar", false).getName());
+		assertEquals("Consulo.app/Info.plist", rules.match("dist/mac/Info.plist", false).getName());
+		assertEquals(0755, rules.match("dist/bin/consulo.sh", false).getMode(0600));
+		assertEquals(0644, rules.match("dist/bin/data/a.txt", false).getMode(0600));
+		// directories use default mode
+		assertEquals(0600, rules.match("dist/bin/", true).getMode(0600));
+		assertTrue(rules.match("other/a.txt", false).isSkipped());
+	}
+
+	@Test
+	public void testSkip()
+	{
+		EntryRules rules = EntryRules.builder()
+				.skipPrefix("dist/temp")
+				.skipSuffix(".dSYM")
+				.skipName("dist/readme.txt")
+				.build();
+
+		assertTrue(rules.match("dist/temp/a.txt", false).isSkipped());
+		assertTrue(rules.match("dist/lib/native.dSYM/Contents/a", false).isSkipped());
+		assertTrue(rules.match("dist/readme.txt", false).isSkipped());
+		assertFalse(rules.match("dist/readme.txt.bak", false).isSkipped());
+		assertFalse(rules.match("dist/lib/a.txt", false).isSkipped());
+	}
+
+	@Test
+	public void testSegmentRename()
+	{
+		EntryRules rules = EntryRules.builder()
+				.renamePrefix("dist/", "Consulo/")
+				.renameSegment("build10", "build11")
+				.build();
+
+		assertEquals("Consulo/platform/build11/lib/a.jar", rules.match("dist/platform/build10/lib/a.jar", false).getName());
+		assertEquals("Consulo/platform/build100/lib/a.jar", rules.match("dist/platform/build100/lib/a.jar", false).getName());
+		assertEquals("Consulo/platform/build11", rules.match("dist/platform/build10", true).getName());
+	}
+
+	@Test
+	public void testReplace()
+	{
+		EntryRules rules = EntryRules.builder()
+				.renamePrefix("dist/", "Consulo/")
+				.replace("buildSNAPSHOT", "build42")
+				.build();
+
+		assertEquals("Consulo/platform/build42/lib/a.jar", rules.match("dist/platform/buildSNAPSHOT/lib/a.jar", false).getName());
+		// not only full path segment, like String.replace
+		assertEquals("Consulo/platform/build42.txt", rules.match("dist/platform/buildSNAPSHOT.txt", false).getName());
+		assertEquals("Consulo/build42-build42/a", rules.match("dist/buildSNAPSHOT-buildSNAPSHOT/a", false).getName());
+		assertEquals("other/build42/a", rules.match("other/buildSNAPSHOT/a", false).getName());
+	}
+
+	@Test
+	public void testLineEnds()
+	{
+		EntryRules rules = EntryRules.builder()
+				.lineEnds(".jar", false)
+				.build();
+
+		assertFalse(rules.match("lib/a.jar", false).isConvertLineEnds());
+		assertTrue(rules.match("lib/a.jar.txt", false).isConvertLineEnds());
+		assertTrue(rules.match("bin/consulo.bat", false).isConvertLineEnds());
+	}
+}
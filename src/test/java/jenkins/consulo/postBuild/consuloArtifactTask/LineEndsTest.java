@@ -0,0 +1,249 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import com.Ostermiller.util.BinaryDataException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Conversion must produce same bytes as previous conversion by {@link com.Ostermiller.util.LineEnds}
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class LineEndsTest
+{
+	private static final int[] ourBlockSizes = {1, 2, 3, 7, 8, 9, 15, 16, 17, 64, 8192, 64 * 1024};
+
+	@Test
+	public void testLineEnds() throws IOException
+	{
+		assertSame("");
+		assertSame("a");
+		assertSame("line1\nline2\n");
+		assertSame("line1\r\nline2\r\n");
+		assertSame("line1\rline2\rline3");
+		assertSame("mixed\r\nlines\rand\nmore\r\r\n\n\r");
+		assertSame("\r");
+		assertSame("\r\n");
+		assertSame("\n\r");
+		assertSame("trailing\r");
+		assertSame("\r\r\r\n\r\n\n");
+		assertSame("tab\tand\fform feed\r\n");
+	}
+
+	@Test
+	public void testCRAtBlockBoundary() throws IOException
+	{
+		for(int blockSize : ourBlockSizes)
+		{
+			for(int shift = -2; shift <= 2; shift++)
+			{
+				int position = blockSize + shift;
+				if(position < 0)
+				{
+					continue;
+				}
+
+				byte[] lone = text(position + 10);
+				lone[position] = '\r';
+				assertSame(lone);
+
+				byte[] crlf = text(position + 10);
+				crlf[position] = '\r';
+				crlf[position + 1] = '\n';
+				assertSame(crlf);
+
+				byte[] last = text(position + 1);
+				last[position] = '\r';
+				assertSame(last);
+			}
+		}
+	}
+
+	@Test
+	public void testControlBytes() throws IOException
+	{
+		for(int b = 0; b < 256; b++)
+		{
+			for(int position : new int[]{0, 5, 8, 13, 100})
+			{
+				byte[] data = text(120);
+				data[position] = (byte) b;
+				data[60] = '\r';
+				data[61] = '\n';
+				assertSame(data);
+			}
+		}
+
+		// vertical tab, file/group/record/unit separators and delete
+		assertSame("a\u000Bb\r\n");
+		assertSame("a\u001Cb\r\n");
+		assertSame("a\u001Db\r\n");
+		assertSame("a\u001Eb\r\n");
+		assertSame("a\u001Fb\r\n");
+		assertSame("a\u007Fb\r\n");
+		assertSame("\u00FC\u00E9\u4E2D\r\n".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testBinary() throws IOException
+	{
+		// zip, class, ELF and PE headers
+		assertSame(new byte[]{'P', 'K', 3, 4, '\r', '\n', 0, 0});
+		assertSame(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 55, '\r'});
+		assertSame(new byte[]{0x7F, 'E', 'L', 'F', 2, 1, 1, 0, '\r', '\n'});
+		assertSame(new byte[]{'M', 'Z', (byte) 0x90, 0, 3, 0, 0, 0, '\r', '\n'});
+
+		// control byte after text with CR
+		byte[] data = text(100 * 1024);
+		data[10] = '\r';
+		data[100 * 1024 - 3] = 1;
+		assertSame(data);
+	}
+
+	@Test
+	public void testRandom() throws IOException
+	{
+		byte[] alphabet = {'a', 'b', ' ', '\r', '\r', '\n', '\n', '\t', '\f', 0x7F, (byte) 0xC3, (byte) 0xA9};
+
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++)
+		{
+			byte[] data = new byte[random.nextInt(300)];
+			for(int j = 0; j < data.length; j++)
+			{
+				data[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			if(i % 10 == 0 && data.length > 0)
+			{
+				// binary data
+				data[random.nextInt(data.length)] = (byte) random.nextInt(32);
+			}
+			assertSame(data);
+		}
+	}
+
+	@Test
+	public void testEntryContent() throws IOException
+	{
+		// lookahead window and staging buffer boundaries of EntryContent
+		for(int position : new int[]{8191, 8192, 8193, 8192 + 64 * 1024 - 1, 8192 + 64 * 1024})
+		{
+			byte[] data = text(200 * 1024);
+			data[position] = '\r';
+			data[100] = '\r';
+			data[101] = '\n';
+
+			byte[] expected = convertOld(data);
+			try (EntryContent content = EntryContent.read(new ByteArrayInputStream(data), data.length, true))
+			{
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				content.writeTo(out);
+				assertArrayEquals(expected, out.toByteArray());
+				assertEquals(expected.length, content.getSize());
+			}
+		}
+	}
+
+	private static void assertSame(String text) throws IOException
+	{
+		assertSame(text.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static void assertSame(byte[] data) throws IOException
+	{
+		byte[] expected = convertOld(data);
+		for(int blockSize : ourBlockSizes)
+		{
+			assertArrayEquals("block size " + blockSize + ", data " + Arrays.toString(data), expected, convertNew(data, blockSize));
+		}
+	}
+
+	/**
+	 * Previous conversion, see Generator of 3.9.2
+	 */
+	private static byte[] convertOld(byte[] data) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try
+		{
+			if(com.Ostermiller.util.LineEnds.convert(new ByteArrayInputStream(data), out, com.Ostermiller.util.LineEnds.STYLE_UNIX))
+			{
+				return out.toByteArray();
+			}
+		}
+		catch(BinaryDataException ignored)
+		{
+		}
+		return data;
+	}
+
+	private static byte[] convertNew(byte[] data, int blockSize) throws IOException
+	{
+		List<int[]> blocks = new ArrayList<>();
+		for(int offset = 0; offset < data.length; offset += blockSize)
+		{
+			blocks.add(new int[]{offset, Math.min(blockSize, data.length - offset)});
+		}
+
+		LineEnds.Scanner scanner = new LineEnds.Scanner();
+		for(int[] block : blocks)
+		{
+			if(!scanner.scan(data, block[0], block[1]))
+			{
+				return data;
+			}
+		}
+
+		if(!scanner.hasCR())
+		{
+			return data;
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LineEnds.Converter converter = new LineEnds.Converter();
+		for(int[] block : blocks)
+		{
+			converter.convert(data, block[0], block[1], out);
+		}
+		assertEquals(scanner.getConvertedSize(data.length), out.size());
+		return out.toByteArray();
+	}
+
+	private static byte[] text(int size)
+	{
+		byte[] data = new byte[size];
+		for(int i = 0; i < size; i++)
+		{
+			data[i] = (byte) ('a' + i % 26);
+		}
+		return data;
+	}
+}
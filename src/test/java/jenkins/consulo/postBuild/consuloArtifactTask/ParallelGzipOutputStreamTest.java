@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ParallelGzipOutputStreamTest
+{
+	private static final int ourDictionarySize = ParallelGzipOutputStream.ourDictionarySize;
+
+	private static final int[] ourSizes = {
+			0,
+			1,
+			ourDictionarySize - 1,
+			ourDictionarySize,
+			ourDictionarySize + 1,
+			128 * 1024 - 1,
+			128 * 1024,
+			128 * 1024 + 1,
+			300 * 1024
+	};
+
+	private final ExecutorService myExecutor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void tearDown()
+	{
+		myExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testEmpty() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ParallelGzipOutputStream(out, parameters(Deflater.DEFAULT_COMPRESSION), 64 * 1024, myExecutor, 4).close();
+
+		assertGzip(new byte[0], out.toByteArray());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		Random random = new Random(42);
+		for(int size : ourSizes)
+		{
+			for(boolean compressible : new boolean[]{true, false})
+			{
+				byte[] data = data(size, compressible, random);
+				// block size less than dictionary is increased to dictionary size
+				int[] blockSizes = {1, ourDictionarySize, ourDictionarySize + 1, ourDictionarySize + random.nextInt(128 * 1024), 128 * 1024};
+				for(int blockSize : blockSizes)
+				{
+					for(int maxBlocksInFlight : new int[]{1, 4})
+					{
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						try (ParallelGzipOutputStream stream = new ParallelGzipOutputStream(out, parameters(random.nextInt(10)), blockSize, myExecutor, maxBlocksInFlight))
+						{
+							writeRandomSplits(stream, data, random);
+						}
+
+						assertGzip(data, out.toByteArray());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testWritesStraddleBlockBoundaries() throws IOException
+	{
+		int blockSize = ourDictionarySize;
+		byte[] data = data(6 * blockSize + 3, true, new Random(7));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ParallelGzipOutputStream stream = new ParallelGzipOutputStream(out, parameters(Deflater.DEFAULT_COMPRESSION), blockSize, myExecutor, 2))
+		{
+			int offset = 0;
+			// ends one byte before boundary
+			stream.write(data, offset, blockSize - 1);
+			offset += blockSize - 1;
+			// crosses first boundary
+			stream.write(data, offset, 2);
+			offset += 2;
+			// covers several blocks at once
+			stream.write(data, offset, 3 * blockSize);
+			offset += 3 * blockSize;
+			// single bytes over next boundary
+			for(int i = 0; i < 4; i++)
+			{
+				stream.write(data[offset++]);
+			}
+			// ends exactly on boundary
+			int toBoundary = blockSize - offset % blockSize;
+			stream.write(data, offset, toBoundary);
+			offset += toBoundary;
+			stream.write(data, offset, data.length - offset);
+		}
+
+		assertGzip(data, out.toByteArray());
+	}
+
+	@Test
+	public void testRaw() throws IOException
+	{
+		Random random = new Random(11);
+		for(int size : ourSizes)
+		{
+			byte[] data = data(size, random.nextBoolean(), random);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (ParallelGzipOutputStream stream = ParallelGzipOutputStream.raw(out, Deflater.BEST_SPEED, ourDictionarySize, myExecutor, 4))
+			{
+				writeRandomSplits(stream, data, random);
+			}
+
+			try (InputStream stream = new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()), new Inflater(true)))
+			{
+				assertArrayEquals(String.valueOf(size), data, IOUtils.toByteArray(stream));
+			}
+		}
+	}
+
+	private static void writeRandomSplits(ParallelGzipOutputStream stream, byte[] data, Random random) throws IOException
+	{
+		int offset = 0;
+		while(offset < data.length)
+		{
+			int length = Math.min(data.length - offset, random.nextInt(3) == 0 ? 1 + random.nextInt(16) : 1 + random.nextInt(96 * 1024));
+			if(length == 1)
+			{
+				stream.write(data[offset]);
+			}
+			else
+			{
+				stream.write(data, offset, length);
+			}
+			offset += length;
+		}
+	}
+
+	private static void assertGzip(byte[] expected, byte[] gzip) throws IOException
+	{
+		// checks crc and size from trailer
+		try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(gzip)))
+		{
+			assertArrayEquals(String.valueOf(expected.length), expected, IOUtils.toByteArray(stream));
+		}
+
+		// single member - trailer is at end of data
+		int size = (gzip[gzip.length - 4] & 0xFF) | (gzip[gzip.length - 3] & 0xFF) << 8 | (gzip[gzip.length - 2] & 0xFF) << 16 | (gzip[gzip.length - 1] & 0xFF) << 24;
+		assertEquals(expected.length, size);
+	}
+
+	private static GzipParameters parameters(int level)
+	{
+		GzipParameters parameters = new GzipParameters();
+		parameters.setCompressionLevel(level);
+		return parameters;
+	}
+
+	private static byte[] data(int size, boolean compressible, Random random)
+	{
+		byte[] data = new byte[size];
+		if(compressible)
+		{
+			for(int i = 0; i < size; i++)
+			{
+				data[i] = (byte) ('a' + (i * 31 + i / 1000) % 13);
+			}
+		}
+		else
+		{
+			random.nextBytes(data);
+		}
+		return data;
+	}
+}
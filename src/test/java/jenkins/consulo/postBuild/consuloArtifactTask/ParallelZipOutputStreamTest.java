@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ParallelZipOutputStreamTest
+{
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	private final ExecutorService myExecutor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void tearDown()
+	{
+		myExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testMixedEntries() throws IOException
+	{
+		Random random = new Random(3);
+
+		// source of raw entries, written by jdk
+		Map<String, byte[]> rawEntries = new LinkedHashMap<>();
+		rawEntries.put("consulo/raw/first.txt", data(50 * 1024, true, random));
+		rawEntries.put("consulo/raw/second.bin", data(20 * 1024, false, random));
+		File source = myTemp.newFile("source.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(source)))
+		{
+			for(Map.Entry<String, byte[]> entry : rawEntries.entrySet())
+			{
+				out.putNextEntry(new ZipEntry(entry.getKey()));
+				out.write(entry.getValue());
+				out.closeEntry();
+			}
+		}
+
+		// null data - directory
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+		List<String> stored = new ArrayList<>();
+
+		BufferArena arena = new BufferArena(16 * 1024 * 1024, 16 * 1024 * 1024);
+		File target = myTemp.newFile("target.zip");
+		try (ParallelZipOutputStream out = new ParallelZipOutputStream(new FileOutputStream(target), Deflater.DEFAULT_COMPRESSION, ParallelGzipOutputStream.ourDictionarySize, myExecutor, 2, arena);
+			 ZipFileArchiveInputStream raw = new ZipFileArchiveInputStream(source))
+		{
+			putDirectory(out, expected, "consulo/");
+			putDeflated(out, expected, "consulo/a.bin", data(100 * 1024, true, random), random);
+			putStored(out, expected, stored, "consulo/b.bin", data(40 * 1024, false, random));
+			putDeflated(out, expected, "consulo/empty.txt", new byte[0], random);
+
+			// raw entries between deflated entries, which are not written yet
+			putDeflated(out, expected, "consulo/c.bin", data(70 * 1024, false, random), random);
+			ZipArchiveEntry rawEntry;
+			while((rawEntry = raw.getNextEntry()) != null)
+			{
+				assertTrue(raw.canReadRawData());
+				try (InputStream stream = raw.getRawInputStream())
+				{
+					out.addRawArchiveEntry(new ZipArchiveEntry(rawEntry), stream);
+				}
+				expected.put(rawEntry.getName(), rawEntries.get(rawEntry.getName()));
+			}
+
+			putDirectory(out, expected, "consulo/lib/");
+			putDeflated(out, expected, "consulo/lib/d.bin", data(200 * 1024, true, random), random);
+			putStored(out, expected, stored, "consulo/lib/e.txt", data(10, true, random));
+			putDeflated(out, expected, "consulo/lib/f.bin", data(ParallelGzipOutputStream.ourDictionarySize, true, random), random);
+			out.finish();
+		}
+
+		try (ZipFile zipFile = new ZipFile(target))
+		{
+			List<String> names = new ArrayList<>();
+			for(ZipEntry entry : Collections.list(zipFile.entries()))
+			{
+				names.add(entry.getName());
+
+				byte[] data = expected.get(entry.getName());
+				if(data == null)
+				{
+					assertTrue(entry.getName(), entry.isDirectory());
+					continue;
+				}
+
+				assertEquals(entry.getName(), stored.contains(entry.getName()) ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getMethod());
+				assertEquals(entry.getName(), data.length, entry.getSize());
+				assertEquals(entry.getName(), crc(data), entry.getCrc());
+				try (InputStream stream = zipFile.getInputStream(entry))
+				{
+					assertArrayEquals(entry.getName(), data, IOUtils.toByteArray(stream));
+				}
+			}
+
+			assertEquals(new ArrayList<>(expected.keySet()), names);
+		}
+
+		// compressed blocks of entries are released
+		assertEquals(0, arena.getInUse());
+	}
+
+	private static void putDirectory(ParallelZipOutputStream out, Map<String, byte[]> expected, String name) throws IOException
+	{
+		out.putArchiveEntry(new ZipArchiveEntry(name));
+		out.closeArchiveEntry();
+		expected.put(name, null);
+	}
+
+	private static void putStored(ParallelZipOutputStream out, Map<String, byte[]> expected, List<String> stored, String name, byte[] data) throws IOException
+	{
+		ZipArchiveEntry entry = new ZipArchiveEntry(name);
+		entry.setMethod(ZipArchiveEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCrc(crc(data));
+		out.putArchiveEntry(entry);
+		out.write(data);
+		out.closeArchiveEntry();
+		expected.put(name, data);
+		stored.add(name);
+	}
+
+	private static void putDeflated(ParallelZipOutputStream out, Map<String, byte[]> expected, String name, byte[] data, Random random) throws IOException
+	{
+		out.putArchiveEntry(new ZipArchiveEntry(name));
+		int offset = 0;
+		while(offset < data.length)
+		{
+			int length = Math.min(data.length - offset, 1 + random.nextInt(48 * 1024));
+			out.write(data, offset, length);
+			offset += length;
+		}
+		out.closeArchiveEntry();
+		expected.put(name, data);
+	}
+
+	private static long crc(byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	private static byte[] data(int size, boolean compressible, Random random)
+	{
+		byte[] data = new byte[size];
+		if(compressible)
+		{
+			for(int i = 0; i < size; i++)
+			{
+				data[i] = (byte) ('a' + (i * 17 + i / 500) % 11);
+			}
+		}
+		else
+		{
+			random.nextBytes(data);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import jenkins.consulo.postBuild.consuloArtifactTask.jre.ArchiveEntryWrapper;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Same sources, written in different order and with different times, must give byte-identical outputs in reproducible mode
+ *
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class ReproducibleOutputTest
+{
+	private static final String[] ourFiles = {
+			"consulo/bin/consulo.sh",
+			"consulo/lib/app.jar",
+			"consulo/lib/readme.txt",
+			"consulo/plugins/git/lib/git.jar",
+			"consulo/plugins/git/plugin.xml"
+	};
+
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	private final ExecutorService myExecutor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void tearDown()
+	{
+		myExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testZip() throws Exception
+	{
+		assertReproducibleZip(false);
+	}
+
+	@Test
+	public void testParallelZip() throws Exception
+	{
+		assertReproducibleZip(true);
+	}
+
+	@Test
+	public void testTar() throws Exception
+	{
+		assertReproducibleTar(null, false);
+	}
+
+	@Test
+	public void testTarGz() throws Exception
+	{
+		assertReproducibleTar(OutputCodec.GZIP, false);
+	}
+
+	@Test
+	public void testParallelTarGz() throws Exception
+	{
+		assertReproducibleTar(OutputCodec.GZIP, true);
+	}
+
+	@Test
+	public void testNotReproducible() throws Exception
+	{
+		// check of test itself - sources are really different
+		assertNotEquals(sha256(build(source("first", 1_600_000_000_000L, false), ArchiveStreamFactory.TAR, null, false, false)),
+				sha256(build(source("second", 1_700_000_000_000L, true), ArchiveStreamFactory.TAR, null, false, false)));
+	}
+
+	private void assertReproducibleZip(boolean parallel) throws Exception
+	{
+		byte[] zip = assertSameOutputs(ArchiveStreamFactory.ZIP, null, parallel);
+
+		long time = LocalDateTime.of(2000, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		List<String> names = new ArrayList<>();
+		try (ZipArchiveInputStream ais = new ZipArchiveInputStream(new ByteArrayInputStream(zip)))
+		{
+			ZipArchiveEntry entry;
+			while((entry = ais.getNextEntry()) != null)
+			{
+				names.add(entry.getName());
+				assertEquals(entry.getName(), time, entry.getTime());
+			}
+		}
+		assertSorted(names);
+	}
+
+	private void assertReproducibleTar(OutputCodec codec, boolean parallel) throws Exception
+	{
+		byte[] data = assertSameOutputs(ArchiveStreamFactory.TAR, codec, parallel);
+
+		InputStream tar = new ByteArrayInputStream(data);
+		if(codec == OutputCodec.GZIP)
+		{
+			// gzip header - modification time is zero
+			assertArrayEquals(new byte[4], Arrays.copyOfRange(data, 4, 8));
+			tar = new GzipCompressorInputStream(tar);
+		}
+
+		List<String> names = new ArrayList<>();
+		try (TarArchiveInputStream ais = new TarArchiveInputStream(tar))
+		{
+			TarArchiveEntry entry;
+			while((entry = ais.getNextEntry()) != null)
+			{
+				names.add(entry.getName());
+				assertEquals(entry.getName(), ArchiveSink.REPRODUCIBLE_TIME, entry.getModTime().getTime());
+				assertEquals(entry.getName(), 0, entry.getLongUserId());
+				assertEquals(entry.getName(), 0, entry.getLongGroupId());
+				assertEquals(entry.getName(), "root", entry.getUserName());
+				assertEquals(entry.getName(), "root", entry.getGroupName());
+			}
+		}
+		assertSorted(names);
+	}
+
+	/**
+	 * @return output of first source
+	 */
+	private byte[] assertSameOutputs(String type, OutputCodec codec, boolean parallel) throws Exception
+	{
+		byte[] first = build(source("first", 1_600_000_000_000L, false), type, codec, parallel, true);
+		byte[] second = build(source("second", 1_700_000_000_000L, true), type, codec, parallel, true);
+
+		assertEquals(sha256(first), sha256(second));
+		return first;
+	}
+
+	private static void assertSorted(List<String> names)
+	{
+		List<String> sorted = new ArrayList<>(names);
+		Collections.sort(sorted);
+		assertEquals(sorted, names);
+		assertEquals(names.toString(), ourFiles.length + 7, names.size());
+	}
+
+	/**
+	 * @param reversed if true, files are created in reversed order
+	 */
+	private Path source(String name, long time, boolean reversed) throws IOException
+	{
+		Path root = myTemp.newFolder(name).toPath().resolve("consulo");
+
+		List<String> files = new ArrayList<>(Arrays.asList(ourFiles));
+		if(reversed)
+		{
+			Collections.reverse(files);
+		}
+
+		for(String file : files)
+		{
+			Path path = root.getParent().resolve(file);
+			Files.createDirectories(path.getParent());
+			Files.write(path, data(file));
+			Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+			time += 1000;
+		}
+		Files.createDirectories(root.resolve("empty"));
+
+		try (Stream<Path> stream = Files.walk(root))
+		{
+			for(Path path : (Iterable<Path>) stream::iterator)
+			{
+				if(Files.isDirectory(path))
+				{
+					Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+				}
+			}
+		}
+		return root;
+	}
+
+	private byte[] build(Path source, String type, OutputCodec codec, boolean parallel, boolean reproducible) throws Exception
+	{
+		GeneratorOptions options = new GeneratorOptions();
+		options.setReproducible(reproducible);
+		options.setGzipBlockSize(ParallelGzipOutputStream.ourDictionarySize);
+
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		OutputStream stream = codec == null ? file : codec.compress(file, OutputCodec.DEFAULT_LEVEL, options, parallel ? myExecutor : null);
+
+		ArchiveOutput output = new ArchiveOutput("consulo", type);
+		ArchiveSink sink;
+		if(type.equals(ArchiveStreamFactory.ZIP) && parallel)
+		{
+			sink = new ArchiveSink(output, stream, new ParallelZipOutputStream(stream, Deflater.DEFAULT_COMPRESSION, options.getGzipBlockSize(), myExecutor, 4, BufferArena.getInstance()));
+		}
+		else
+		{
+			sink = new ArchiveSink(output, stream, new ArchiveStreamFactory());
+		}
+		sink.setReproducible(reproducible);
+
+		try (ArchiveSink ignored = sink; ArchiveInputStream<?> ais = new DirectoryArchiveInputStream(source))
+		{
+			List<ArchiveSink> sinks = Collections.singletonList(sink);
+
+			ArchiveEntry entry;
+			while((entry = ais.getNextEntry()) != null)
+			{
+				// same as Generator - time of source file, replaced by sink in reproducible mode
+				ArchiveEntryWrapper.Multi newEntry = ArchiveSink.createEntry(sinks, entry.getName(), entry);
+				newEntry.setTime(entry.getLastModifiedDate().getTime());
+				ArchiveSink.copyEntry(sinks, ais, entry, newEntry);
+			}
+			sink.finish();
+		}
+		return file.toByteArray();
+	}
+
+	private static byte[] data(String file)
+	{
+		if(file.endsWith(".jar"))
+		{
+			byte[] data = new byte[100 * 1024];
+			new Random(file.hashCode()).nextBytes(data);
+			return data;
+		}
+
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < 2000; i++)
+		{
+			builder.append(file).append(' ').append(i).append('\n');
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String sha256(byte[] data) throws Exception
+	{
+		StringBuilder builder = new StringBuilder();
+		for(byte b : MessageDigest.getInstance("SHA-256").digest(data))
+		{
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+}
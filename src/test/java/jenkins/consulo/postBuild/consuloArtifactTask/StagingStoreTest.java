@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class StagingStoreTest
+{
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	@Test
+	public void testStageTree() throws IOException
+	{
+		Path source = myTemp.newFolder("source").toPath();
+		write(source.resolve("bin/consulo.exe"), "exe");
+		write(source.resolve("lib/a.jar"), "jar");
+		write(source.resolve("lib/b.jar"), "jar");
+
+		StagingStore store = new StagingStore(myTemp.getRoot().toPath().resolve("store"));
+		Path target = myTemp.getRoot().toPath().resolve("target");
+		store.stageTree(source, target);
+
+		assertEquals("exe", read(target.resolve("bin/consulo.exe")));
+		assertEquals("jar", read(target.resolve("lib/a.jar")));
+		assertEquals("jar", read(target.resolve("lib/b.jar")));
+		assertEquals("3 linked, 0 copied, 2 new files in store", store.resetStatistics());
+
+		// changed file of next build
+		write(source.resolve("lib/a.jar"), "jar2");
+		store.stageTree(source, target);
+		assertEquals("jar2", read(target.resolve("lib/a.jar")));
+		assertEquals("jar", read(target.resolve("lib/b.jar")));
+		assertEquals("3 linked, 0 copied, 1 new files in store", store.resetStatistics());
+	}
+
+	@Test
+	public void testObjectEvictedWhileStaged() throws IOException
+	{
+		Path source = myTemp.newFolder("source").toPath();
+		write(source.resolve("lib/a.jar"), "jar");
+
+		AtomicInteger evictions = new AtomicInteger();
+		StagingStore store = new StagingStore(myTemp.getRoot().toPath().resolve("store"))
+		{
+			@Override
+			Path store(Path source) throws IOException
+			{
+				Path object = super.store(source);
+				// another build removes object before it's linked
+				if(evictions.getAndIncrement() == 0)
+				{
+					Files.delete(object);
+				}
+				return object;
+			}
+		};
+
+		Path target = myTemp.getRoot().toPath().resolve("target");
+		store.stageTree(source, target);
+
+		assertEquals(2, evictions.get());
+		assertEquals("jar", read(target.resolve("lib/a.jar")));
+		assertEquals("1 linked, 0 copied, 2 new files in store", store.resetStatistics());
+	}
+
+	private static void write(Path file, String text) throws IOException
+	{
+		Files.createDirectories(file.getParent());
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path file) throws IOException
+	{
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+}
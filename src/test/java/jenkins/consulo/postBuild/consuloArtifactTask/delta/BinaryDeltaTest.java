@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.delta;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class BinaryDeltaTest
+{
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		Random random = new Random(5);
+		byte[] data = random(256 * 1024, random);
+
+		assertRoundTrip(new byte[0], new byte[0]);
+		assertRoundTrip(new byte[0], data);
+		assertRoundTrip(data, new byte[0]);
+		assertRoundTrip(data, data);
+		// shorter than block of hash
+		assertRoundTrip(random(10, random), random(20, random));
+		assertRoundTrip(Arrays.copyOf(data, 31), Arrays.copyOf(data, 33));
+		// unrelated data
+		assertRoundTrip(data, random(100 * 1024, random));
+		// repeated data
+		assertRoundTrip(new byte[64 * 1024], new byte[80 * 1024]);
+
+		for(int i = 0; i < 50; i++)
+		{
+			assertRoundTrip(data, edit(data, random));
+		}
+	}
+
+	@Test
+	public void testSimilarDataPatchIsSmall() throws IOException
+	{
+		Random random = new Random(6);
+		byte[] oldData = random(512 * 1024, random);
+
+		// insertion, deletion and replacement in middle, moved block at end
+		byte[] newData = concat(Arrays.copyOfRange(oldData, 0, 100_000),
+				random(1000, random),
+				Arrays.copyOfRange(oldData, 100_000, 200_000),
+				Arrays.copyOfRange(oldData, 210_000, 300_000),
+				random(500, random),
+				Arrays.copyOfRange(oldData, 300_500, oldData.length),
+				Arrays.copyOfRange(oldData, 0, 50_000));
+
+		byte[] patch = assertRoundTrip(oldData, newData);
+		assertTrue(String.valueOf(patch.length), patch.length < 4 * 1024);
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAPatch() throws IOException
+	{
+		BinaryDelta.apply(new byte[10], new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+	}
+
+	private static byte[] assertRoundTrip(byte[] oldData, byte[] newData) throws IOException
+	{
+		byte[] patch = BinaryDelta.encode(oldData, newData);
+		assertArrayEquals(newData, BinaryDelta.apply(oldData, patch));
+		return patch;
+	}
+
+	private static byte[] edit(byte[] data, Random random)
+	{
+		int from = random.nextInt(data.length);
+		int to = Math.min(data.length, from + random.nextInt(4096));
+		switch(random.nextInt(3))
+		{
+			case 0:
+				// insert
+				return concat(Arrays.copyOfRange(data, 0, from), random(1 + random.nextInt(4096), random), Arrays.copyOfRange(data, from, data.length));
+			case 1:
+				// delete
+				return concat(Arrays.copyOfRange(data, 0, from), Arrays.copyOfRange(data, to, data.length));
+			default:
+				// replace
+				byte[] result = data.clone();
+				for(int i = from; i < to; i++)
+				{
+					result[i] = (byte) random.nextInt();
+				}
+				return result;
+		}
+	}
+
+	private static byte[] concat(byte[]... parts)
+	{
+		int length = 0;
+		for(byte[] part : parts)
+		{
+			length += part.length;
+		}
+
+		byte[] result = new byte[length];
+		int offset = 0;
+		for(byte[] part : parts)
+		{
+			System.arraycopy(part, 0, result, offset, part.length);
+			offset += part.length;
+		}
+		return result;
+	}
+
+	private static byte[] random(int size, Random random)
+	{
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+}
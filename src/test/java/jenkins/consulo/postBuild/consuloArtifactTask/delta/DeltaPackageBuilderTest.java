@@ -0,0 +1,211 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.delta;
+
+import hudson.FilePath;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class DeltaPackageBuilderTest
+{
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	@Test
+	public void testManifest() throws Exception
+	{
+		Random random = new Random(9);
+		byte[] oldJar = random(64 * 1024, random);
+		byte[] newJar = oldJar.clone();
+		Arrays.fill(newJar, 30_000, 30_100, (byte) 0);
+
+		byte[] same = "same".getBytes(StandardCharsets.UTF_8);
+		byte[] script = "#!/bin/sh".getBytes(StandardCharsets.UTF_8);
+		byte[] added = "added".getBytes(StandardCharsets.UTF_8);
+		byte[] oldReplaced = random(8 * 1024, random);
+		byte[] newReplaced = random(8 * 1024, random);
+
+		File previous = myTemp.newFile("consulo.dist.linux64.tar.gz");
+		try (TarArchiveOutputStream out = tar(previous))
+		{
+			directory(out, "consulo/");
+			directory(out, "consulo/build100/");
+			file(out, "consulo/build100/lib/app.jar", 0644, oldJar);
+			file(out, "consulo/build100/lib/same.txt", 0644, same);
+			file(out, "consulo/build100/lib/removed.txt", 0644, same);
+			file(out, "consulo/build100/lib/replaced.bin", 0644, oldReplaced);
+			file(out, "consulo/build100/bin/run.sh", 0644, script);
+			link(out, "consulo/build100/jre/link", "a");
+			link(out, "consulo/build100/jre/same-link", "x");
+		}
+
+		File current = new File(myTemp.newFolder("current"), previous.getName());
+		try (TarArchiveOutputStream out = tar(current))
+		{
+			directory(out, "consulo/");
+			directory(out, "consulo/build101/");
+			file(out, "consulo/build101/lib/app.jar", 0644, newJar);
+			file(out, "consulo/build101/lib/same.txt", 0644, same);
+			file(out, "consulo/build101/lib/added.txt", 0644, added);
+			file(out, "consulo/build101/lib/replaced.bin", 0644, newReplaced);
+			file(out, "consulo/build101/bin/run.sh", 0755, script);
+			link(out, "consulo/build101/jre/link", "b");
+			link(out, "consulo/build101/jre/same-link", "x");
+		}
+
+		DeltaPackageBuilder builder = new DeltaPackageBuilder();
+
+		File delta = myTemp.newFile(DeltaPackageBuilder.getDeltaFileName(current.getName(), 100));
+		DeltaManifest manifest;
+		try (OutputStream out = new FileOutputStream(delta))
+		{
+			manifest = builder.build(new FilePath(previous), 100, new FilePath(current), 101, out);
+		}
+
+		assertEquals(current.getName(), manifest.artifact);
+		assertEquals(100, manifest.fromBuild);
+		assertEquals(101, manifest.toBuild);
+
+		Map<String, DeltaManifest.Entry> entries = new HashMap<>();
+		for(DeltaManifest.Entry entry : manifest.entries)
+		{
+			assertNull(entry.path, entries.put(entry.path, entry));
+		}
+		assertEquals(entries.keySet().toString(), 6, entries.size());
+		assertEquals(1, manifest.count(DeltaManifest.PATCH));
+		assertEquals(2, manifest.count(DeltaManifest.ADD));
+		assertEquals(1, manifest.count(DeltaManifest.REMOVE));
+		assertEquals(1, manifest.count(DeltaManifest.MODE));
+		assertEquals(1, manifest.count(DeltaManifest.LINK));
+
+		assertEquals(DeltaManifest.REMOVE, entries.get("consulo/build101/lib/removed.txt").op);
+
+		DeltaManifest.Entry mode = entries.get("consulo/build101/bin/run.sh");
+		assertEquals(DeltaManifest.MODE, mode.op);
+		assertEquals(0755, mode.mode);
+
+		DeltaManifest.Entry link = entries.get("consulo/build101/jre/link");
+		assertEquals(DeltaManifest.LINK, link.op);
+		assertEquals("b", link.target);
+
+		try (ZipFile zipFile = new ZipFile(delta))
+		{
+			assertNotNull(zipFile.getEntry(DeltaPackageBuilder.MANIFEST));
+
+			DeltaManifest.Entry patch = entries.get("consulo/build101/lib/app.jar");
+			assertEquals(DeltaManifest.PATCH, patch.op);
+			assertData(newJar, patch);
+			assertArrayEquals(newJar, BinaryDelta.apply(oldJar, read(zipFile, patch)));
+
+			// unrelated data is added without patch
+			DeltaManifest.Entry replaced = entries.get("consulo/build101/lib/replaced.bin");
+			assertEquals(DeltaManifest.ADD, replaced.op);
+			assertData(newReplaced, replaced);
+			assertArrayEquals(newReplaced, read(zipFile, replaced));
+
+			DeltaManifest.Entry add = entries.get("consulo/build101/lib/added.txt");
+			assertEquals(DeltaManifest.ADD, add.op);
+			assertEquals(0644, add.mode);
+			assertData(added, add);
+			assertArrayEquals(added, read(zipFile, add));
+		}
+	}
+
+	private static void assertData(byte[] expected, DeltaManifest.Entry entry) throws NoSuchAlgorithmException
+	{
+		assertEquals(entry.path, expected.length, entry.size);
+
+		StringBuilder sha256 = new StringBuilder();
+		for(byte b : MessageDigest.getInstance("SHA-256").digest(expected))
+		{
+			sha256.append(String.format("%02x", b));
+		}
+		assertEquals(entry.path, sha256.toString(), entry.sha256);
+	}
+
+	private static byte[] read(ZipFile zipFile, DeltaManifest.Entry entry) throws IOException
+	{
+		ZipEntry zipEntry = zipFile.getEntry(entry.data);
+		assertNotNull(entry.data, zipEntry);
+		try (InputStream stream = zipFile.getInputStream(zipEntry))
+		{
+			return IOUtils.toByteArray(stream);
+		}
+	}
+
+	private static TarArchiveOutputStream tar(File file) throws IOException
+	{
+		return new TarArchiveOutputStream(new GzipCompressorOutputStream(new FileOutputStream(file)));
+	}
+
+	private static void directory(TarArchiveOutputStream out, String name) throws IOException
+	{
+		out.putArchiveEntry(new TarArchiveEntry(name));
+		out.closeArchiveEntry();
+	}
+
+	private static void file(TarArchiveOutputStream out, String name, int mode, byte[] data) throws IOException
+	{
+		TarArchiveEntry entry = new TarArchiveEntry(name);
+		entry.setMode(mode);
+		entry.setSize(data.length);
+		out.putArchiveEntry(entry);
+		out.write(data);
+		out.closeArchiveEntry();
+	}
+
+	private static void link(TarArchiveOutputStream out, String name, String target) throws IOException
+	{
+		TarArchiveEntry entry = new TarArchiveEntry(name, TarArchiveEntry.LF_SYMLINK);
+		entry.setLinkName(target);
+		out.putArchiveEntry(entry);
+		out.closeArchiveEntry();
+	}
+
+	private static byte[] random(int size, Random random)
+	{
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2013-2026 must-be.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jenkins.consulo.postBuild.consuloArtifactTask.jre;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author VISTALL
+ * @since 18/10/2026
+ */
+public class JreDownloaderTest
+{
+	/**
+	 * Request headers which are checked by tests
+	 */
+	private static class Request
+	{
+		private final String myIfNoneMatch;
+		private final String myRange;
+		private final String myIfRange;
+
+		private Request(HttpExchange exchange)
+		{
+			myIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+			myRange = exchange.getRequestHeaders().getFirst("Range");
+			myIfRange = exchange.getRequestHeaders().getFirst("If-Range");
+		}
+	}
+
+	@Rule
+	public TemporaryFolder myTemp = new TemporaryFolder();
+
+	private HttpServer myServer;
+	private final List<Request> myRequests = new ArrayList<>();
+
+	private volatile byte[] myContent;
+	private volatile String myETag;
+	private volatile String myContentDisposition;
+	// if > 0 - connection is closed after this count of bytes, like interrupted download
+	private volatile int myTruncateAt;
+	// if >= 0 - partial response starts from this offset, instead of requested
+	private volatile int myWrongRangeStart = -1;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		myServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		myServer.createContext("/", this::handle);
+		myServer.start();
+	}
+
+	@After
+	public void tearDown()
+	{
+		myServer.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException
+	{
+		Request request = new Request(exchange);
+		synchronized(myRequests)
+		{
+			myRequests.add(request);
+		}
+
+		try
+		{
+			byte[] content = myContent;
+			exchange.getResponseHeaders().set("ETag", myETag);
+			if(myContentDisposition != null)
+			{
+				exchange.getResponseHeaders().set("Content-Disposition", myContentDisposition);
+			}
+
+			if(myETag.equals(request.myIfNoneMatch))
+			{
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+
+			int start = 0;
+			int code = 200;
+			if(request.myRange != null && myETag.equals(request.myIfRange))
+			{
+				start = Integer.parseInt(request.myRange.substring("bytes=".length(), request.myRange.length() - 1));
+				if(myWrongRangeStart >= 0)
+				{
+					start = myWrongRangeStart;
+				}
+				if(start >= content.length)
+				{
+					exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+					exchange.sendResponseHeaders(416, -1);
+					return;
+				}
+				code = 206;
+				exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+			}
+
+			exchange.sendResponseHeaders(code, content.length - start);
+			OutputStream body = exchange.getResponseBody();
+			if(myTruncateAt > 0)
+			{
+				// response is not completed - connection is closed by exchange
+				body.write(content, start, myTruncateAt);
+				return;
+			}
+			body.write(content, start, content.length - start);
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	private String url(String path)
+	{
+		return "http://" + myServer.getAddress().getHostString() + ":" + myServer.getAddress().getPort() + path;
+	}
+
+	private Request lastRequest()
+	{
+		synchronized(myRequests)
+		{
+			return myRequests.get(myRequests.size() - 1);
+		}
+	}
+
+	@Test
+	public void testNotModified() throws Exception
+	{
+		myContent = content(100 * 1024, 1);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk/jdk-17.tar.gz"));
+
+		JreDownloader.Result result = downloader.download(directory);
+		assertEquals("jdk-17.tar.gz", result.getFileName());
+		assertTrue(result.getStatus(), result.getStatus().startsWith("downloaded"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+
+		result = downloader.download(directory);
+		assertEquals("\"v1\"", lastRequest().myIfNoneMatch);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("not modified"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+
+		// changed file is downloaded again
+		myContent = content(50 * 1024, 2);
+		myETag = "\"v2\"";
+
+		result = downloader.download(directory);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("downloaded"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+	}
+
+	@Test
+	public void testResume() throws Exception
+	{
+		myContent = content(1024 * 1024, 3);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk-17.zip"));
+
+		interruptedDownload(downloader, directory, 300 * 1024);
+
+		JreDownloader.Result result = downloader.download(directory);
+		assertEquals("bytes=" + 300 * 1024 + "-", lastRequest().myRange);
+		assertEquals("\"v1\"", lastRequest().myIfRange);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("resumed"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+	}
+
+	@Test
+	public void testIfRangeMismatch() throws Exception
+	{
+		myContent = content(1024 * 1024, 4);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk-17.zip"));
+
+		interruptedDownload(downloader, directory, 300 * 1024);
+
+		// file was changed on server - full file is returned for If-Range request
+		myContent = content(700 * 1024, 5);
+		myETag = "\"v2\"";
+
+		JreDownloader.Result result = downloader.download(directory);
+		assertEquals("\"v1\"", lastRequest().myIfRange);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("downloaded"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+	}
+
+	@Test
+	public void testRangeNotSatisfiable() throws Exception
+	{
+		myContent = content(1024 * 1024, 12);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk-17.zip"));
+
+		interruptedDownload(downloader, directory, 300 * 1024);
+
+		// build was killed after all data is written, but before part file is moved
+		File[] parts = directory.listFiles((dir, name) -> name.endsWith(".part"));
+		assertNotNull(parts);
+		assertEquals(1, parts.length);
+		Files.write(parts[0].toPath(), myContent);
+
+		JreDownloader.Result result = downloader.download(directory);
+		assertNull(lastRequest().myRange);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("downloaded"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+	}
+
+	@Test
+	public void testContentRangeMismatch() throws Exception
+	{
+		myContent = content(1024 * 1024, 6);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk-17.zip"));
+
+		interruptedDownload(downloader, directory, 300 * 1024);
+
+		// server ignores requested offset - download is restarted without Range
+		myWrongRangeStart = 100;
+
+		JreDownloader.Result result = downloader.download(directory);
+		assertNull(lastRequest().myRange);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("downloaded"));
+		assertArrayEquals(myContent, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+	}
+
+	@Test
+	public void testSameFileNameOfDifferentUrls() throws Exception
+	{
+		myETag = "\"v1\"";
+		File directory = myTemp.newFolder();
+
+		myContent = content(10 * 1024, 10);
+		byte[] first = myContent;
+		JreDownloader.Result firstResult = new JreDownloader(url("/first/jdk-17.zip")).download(directory);
+
+		myContent = content(20 * 1024, 11);
+		byte[] second = myContent;
+		JreDownloader.Result secondResult = new JreDownloader(url("/second/jdk-17.zip")).download(directory);
+
+		assertEquals(firstResult.getFileName(), secondResult.getFileName());
+		assertNotEquals(firstResult.getPath(), secondResult.getPath());
+		assertArrayEquals(first, Files.readAllBytes(new File(directory, firstResult.getPath()).toPath()));
+		assertArrayEquals(second, Files.readAllBytes(new File(directory, secondResult.getPath()).toPath()));
+
+		// not modified file of first url is not file of second url
+		JreDownloader.Result result = new JreDownloader(url("/first/jdk-17.zip")).download(directory);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("not modified"));
+		assertArrayEquals(first, Files.readAllBytes(new File(directory, result.getPath()).toPath()));
+	}
+
+	@Test
+	public void testSha256Mismatch() throws Exception
+	{
+		myContent = content(10 * 1024, 7);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk-17.zip") + "#sha256=" + JreCache.toHex(JreCache.sha256().digest("other".getBytes(StandardCharsets.UTF_8))));
+
+		try
+		{
+			downloader.download(directory);
+			fail();
+		}
+		catch(IOException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("SHA-256 of"));
+		}
+
+		File[] files = directory.listFiles((dir, name) -> !name.endsWith(".lock"));
+		assertNotNull(files);
+		assertEquals(0, files.length);
+	}
+
+	@Test
+	public void testSha256Match() throws Exception
+	{
+		myContent = content(10 * 1024, 8);
+		myETag = "\"v1\"";
+
+		File directory = myTemp.newFolder();
+		JreDownloader downloader = new JreDownloader(url("/jdk-17.zip") + "#sha256=" + JreCache.toHex(JreCache.sha256().digest(myContent)));
+
+		JreDownloader.Result result = downloader.download(directory);
+		assertTrue(result.getStatus(), result.getStatus().startsWith("downloaded"));
+	}
+
+	@Test
+	public void testContentDispositionFileName() throws Exception
+	{
+		myContent = content(1024, 9);
+		myETag = "\"v1\"";
+		myContentDisposition = "attachment; filename=\"../../evil/jdk-17.zip\"";
+
+		File root = myTemp.newFolder();
+		File directory = new File(root, "downloads");
+
+		JreDownloader.Result result = new JreDownloader(url("/download?id=1")).download(directory);
+		assertEquals("jdk-17.zip", result.getFileName());
+		assertTrue(new File(directory, result.getPath()).isFile());
+		assertFalse(new File(root.getParentFile(), "evil").exists());
+
+		myContentDisposition = "attachment; filename=\"..\"";
+		try
+		{
+			new JreDownloader(url("/download?id=2")).download(directory);
+			fail();
+		}
+		catch(IOException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Bad file name"));
+		}
+	}
+
+	@Test
+	public void testSanitizeFileName() throws Exception
+	{
+		assertEquals("jdk.zip", JreDownloader.sanitizeFileName("jdk.zip"));
+		assertEquals("jdk.zip", JreDownloader.sanitizeFileName("../jdk.zip"));
+		assertEquals("jdk.zip", JreDownloader.sanitizeFileName("..\\..\\jdk.zip"));
+		assertEquals("jdk.zip", JreDownloader.sanitizeFileName("/tmp/jdk.zip"));
+		assertEquals("jdk..zip", JreDownloader.sanitizeFileName("jdk..zip"));
+
+		for(String name : new String[]{"", "dir/", "..", "dir/..", ".", "dir\\.."})
+		{
+			try
+			{
+				JreDownloader.sanitizeFileName(name);
+				fail(name);
+			}
+			catch(IOException ignored)
+			{
+			}
+		}
+	}
+
+	private void interruptedDownload(JreDownloader downloader, File directory, int size) throws IOException
+	{
+		myTruncateAt = size;
+		try
+		{
+			downloader.download(directory);
+			fail();
+		}
+		catch(IOException ignored)
+		{
+		}
+		myTruncateAt = 0;
+	}
+
+	private static byte[] content(int size, int seed)
+	{
+		byte[] data = new byte[size];
+		for(int i = 0; i < size; i++)
+		{
+			data[i] = (byte) (i * seed + (i >> 10));
+		}
+		return data;
+	}
+}